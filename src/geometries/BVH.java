@@ -0,0 +1,287 @@
+package geometries;
+
+import primitives.BoundingBox;
+import primitives.Ray;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounding volume hierarchy over a collection of geometries.
+ * <p>
+ * The nested {@link Geometries} groups of a geometry tree are flattened into their leaf geometries,
+ * and a binary hierarchy of bounding boxes is built over the bounded ones, then collapsed into a 4-wide
+ * hierarchy for the traversal. A ray visits only the leaves whose boxes it passes through, nearer boxes first,
+ * and the closest intersection search skips the boxes behind the closest intersection found so far.
+ * Unbounded geometries (planes, tubes) are tested for every ray.
+ * </p>
+ * <p>
+ * A hierarchy is also a shareable asset: hierarchies, {@link Instance}s and meshes inside the tree are kept
+ * as leaves. Building a hierarchy once over a model and placing it by instances makes a two-level structure,
+ * where rebuilding the top level (e.g. after moving an instance) doesn't rebuild the model's hierarchy.
+ * Changes made to the original tree after the hierarchy is built don't affect it,
+ * and moved geometries are picked up by {@link #refit(double)}.
+ * </p>
+ */
+public final class BVH extends Intersectable {
+    /**
+     * Methods of building a hierarchy
+     */
+    public enum Builder {
+        /**
+         * Sequential recursive median splits along the longest axis
+         */
+        MEDIAN,
+        /**
+         * Linear hierarchy of the Morton codes order of the geometries, built in parallel
+         */
+        MORTON,
+        /**
+         * Linear hierarchy whose top levels are split by the surface area heuristic, built in parallel
+         */
+        MORTON_SAH
+    }
+
+    /**
+     * The bounded leaf geometries, indexed by the hierarchy
+     */
+    private final Intersectable[] geometries;
+
+    /**
+     * The unbounded leaf geometries
+     */
+    private final Intersectable[] unbounded;
+
+    /**
+     * The order of the bounded geometries in the original tree, which decides between intersections at exactly
+     * the same distance
+     */
+    private final int[] ranks;
+
+    /**
+     * The order of the unbounded geometries in the original tree
+     */
+    private final int[] unboundedRanks;
+
+    /**
+     * The building method of the hierarchy, {@code null} for the default one
+     */
+    private final Builder builder;
+
+    /**
+     * The hierarchy over the bounded geometries
+     */
+    private BVHNodes nodes;
+
+    /**
+     * The wide hierarchy collapsed from the binary one, which the rays traverse
+     */
+    private WideBVHNodes wideNodes;
+
+    /**
+     * The estimated traversal cost of the hierarchy when it was built
+     */
+    private double buildCost;
+
+    /**
+     * The index of every bounded geometry, computed by the first refit of changed geometries
+     */
+    private Map<Intersectable, Integer> indices = null;
+
+    /**
+     * Builds a hierarchy over the leaves of a geometry tree, by median splits for a few leaves
+     * and by {@link Builder#MORTON_SAH} for many
+     *
+     * @param geometry the root of the geometry tree
+     */
+    public BVH(Intersectable geometry) {
+        this(geometry, null);
+    }
+
+    /**
+     * Builds a hierarchy over the leaves of a geometry tree by a given method
+     *
+     * @param geometry the root of the geometry tree
+     * @param builder  the building method, or {@code null} for the default one
+     */
+    public BVH(Intersectable geometry, Builder builder) {
+        List<Intersectable> leaves = new ArrayList<>();
+        collect(geometry, leaves);
+        geometries = leaves.stream().filter(g -> g.getBoundingBox() != null).toArray(Intersectable[]::new);
+        unbounded = leaves.stream().filter(g -> g.getBoundingBox() == null).toArray(Intersectable[]::new);
+        ranks = new int[geometries.length];
+        unboundedRanks = new int[unbounded.length];
+        for (int i = 0, b = 0, u = 0; i < leaves.size(); ++i)
+            if (leaves.get(i).getBoundingBox() != null)
+                ranks[b++] = i;
+            else
+                unboundedRanks[u++] = i;
+
+        this.builder = builder;
+        rebuild(leafBounds());
+    }
+
+    /**
+     * Collects the current bounds of the bounded geometries
+     *
+     * @return the bounds - minX, minY, minZ, maxX, maxY, maxZ of each geometry
+     */
+    private double[] leafBounds() {
+        double[] bounds = new double[6 * geometries.length];
+        for (int i = 0; i < geometries.length; ++i) {
+            BoundingBox box = geometries[i].getBoundingBox();
+            bounds[6 * i] = box.minX;
+            bounds[6 * i + 1] = box.minY;
+            bounds[6 * i + 2] = box.minZ;
+            bounds[6 * i + 3] = box.maxX;
+            bounds[6 * i + 4] = box.maxY;
+            bounds[6 * i + 5] = box.maxZ;
+        }
+        return bounds;
+    }
+
+    /**
+     * Builds the hierarchy from scratch
+     *
+     * @param bounds the bounds of the bounded geometries
+     */
+    private void rebuild(double[] bounds) {
+        nodes = builder == null ? BVHNodes.build(bounds) : BVHNodes.build(bounds, builder);
+        buildCost = nodes.cost();
+        wideNodes = new WideBVHNodes(nodes, WideBVHNodes.DEFAULT_WIDTH);
+    }
+
+    /**
+     * Updates the hierarchy after its geometries moved (e.g. a sphere's center or an instance's transformation
+     * changed). The boxes are refitted bottom-up, keeping the tree, which is much faster than a rebuild
+     * but degrades as the geometries move away from their neighbors in the tree - so the hierarchy is rebuilt
+     * when its estimated traversal cost grows by more than a given factor since it was built.
+     * <p>
+     * Only the leaves of the hierarchy are refitted: a moved geometry inside a shared hierarchy leaf must be
+     * refitted in that hierarchy first, and then the boxes of the instances placing that hierarchy follow it.
+     * The geometries mustn't be moved while rays are traced.
+     * </p>
+     *
+     * @param maxCostGrowth the allowed growth factor of the cost, or {@link Double#POSITIVE_INFINITY}
+     *                      to never rebuild
+     * @return true if the hierarchy was rebuilt
+     */
+    public boolean refit(double maxCostGrowth) {
+        double[] bounds = leafBounds();
+        nodes.refit(bounds);
+        return rebuildIfDegraded(bounds, maxCostGrowth);
+    }
+
+    /**
+     * Updates the hierarchy after some of its geometries moved, refitting only the boxes above them.
+     * See {@link #refit(double)}.
+     *
+     * @param changed       the moved geometries - leaves of the hierarchy
+     * @param maxCostGrowth the allowed growth factor of the cost, or {@link Double#POSITIVE_INFINITY}
+     *                      to never rebuild
+     * @return true if the hierarchy was rebuilt
+     * @throws IllegalArgumentException if a geometry isn't a bounded leaf of the hierarchy
+     */
+    public boolean refit(Collection<? extends Intersectable> changed, double maxCostGrowth) {
+        if (indices == null) {
+            Map<Intersectable, Integer> map = new IdentityHashMap<>();
+            for (int i = 0; i < geometries.length; ++i)
+                map.put(geometries[i], i);
+            indices = map;
+        }
+        int[] primitives = new int[changed.size()];
+        int count = 0;
+        for (Intersectable geometry : changed) {
+            Integer index = indices.get(geometry);
+            if (index == null)
+                throw new IllegalArgumentException("The geometry isn't a bounded leaf of the hierarchy");
+            primitives[count++] = index;
+        }
+        double[] bounds = leafBounds();
+        nodes.refit(bounds, primitives);
+        return rebuildIfDegraded(bounds, maxCostGrowth);
+    }
+
+    /**
+     * Rebuilds the hierarchy if its estimated traversal cost grew too much since it was built
+     *
+     * @param bounds        the current bounds of the bounded geometries
+     * @param maxCostGrowth the allowed growth factor of the cost
+     * @return true if the hierarchy was rebuilt
+     */
+    private boolean rebuildIfDegraded(double[] bounds, double maxCostGrowth) {
+        // The box of the hierarchy may have changed - the instances of the hierarchy recompute their boxes
+        boundsChanged();
+        if (!(nodes.cost() > buildCost * maxCostGrowth)) {
+            wideNodes.refit();
+            return false;
+        }
+        rebuild(bounds);
+        return true;
+    }
+
+    /**
+     * Collects the leaf geometries of a geometry tree in depth-first order
+     *
+     * @param geometry the root of the geometry tree
+     * @param leaves   the list of leaves to fill
+     */
+    private static void collect(Intersectable geometry, List<Intersectable> leaves) {
+        if (geometry instanceof Geometries group)
+            for (Intersectable child : group.getGeometries())
+                collect(child, leaves);
+        else if (geometry instanceof FlatGeometries flat)
+            leaves.addAll(flat.getGeometries());
+        else
+            leaves.add(geometry);
+    }
+
+    /**
+     * Returns the leaf geometries of the hierarchy
+     *
+     * @return an unmodifiable list of the bounded leaves followed by the unbounded ones
+     */
+    public List<Intersectable> getGeometries() {
+        List<Intersectable> leaves = new ArrayList<>(List.of(geometries));
+        leaves.addAll(List.of(unbounded));
+        return List.copyOf(leaves);
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return unbounded.length > 0 ? null : nodes.getBoundingBox();
+    }
+
+    @Override
+    protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
+        List<Intersection> result = new LinkedList<>();
+        for (Intersectable geometry : unbounded) {
+            var intersections = geometry.calculateIntersectionsHelper(ray, maxDistance);
+            if (intersections != null)
+                result.addAll(intersections);
+        }
+        wideNodes.traverse(ray, maxDistance, (i, distance) -> {
+            var intersections = geometries[i].calculateIntersectionsHelper(ray, distance);
+            if (intersections != null)
+                result.addAll(intersections);
+            return distance;
+        });
+        return result.isEmpty() ? null : result;
+    }
+
+    @Override
+    protected Intersection calculateClosestIntersectionHelper(Ray ray, double maxDistance) {
+        ClosestHit hit = new ClosestHit(ray, maxDistance);
+        for (int i = 0; i < unbounded.length; ++i)
+            hit.offer(unbounded[i].calculateClosestIntersectionHelper(ray, hit.limit()), unboundedRanks[i]);
+        wideNodes.traverse(ray, hit.limit(), (i, distance) -> {
+            hit.offer(geometries[i].calculateClosestIntersectionHelper(ray, distance), ranks[i]);
+            return hit.limit();
+        });
+        return hit.result();
+    }
+}
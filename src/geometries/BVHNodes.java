@@ -0,0 +1,789 @@
+package geometries;
+
+import primitives.BoundingBox;
+import primitives.Point;
+import primitives.Ray;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+/**
+ * Binary bounding volume hierarchy over primitives which are given only by their bounding boxes.
+ * <p>
+ * The nodes are stored in flat arrays in depth-first order: the first child of an inner node
+ * directly follows it, and the node holds the index of its second child. A leaf holds a range
+ * of the primitives order array. The hierarchy doesn't know the primitives themselves - the traversal
+ * hands the primitive indices to a visitor, so geometry collections and meshes share it.
+ * </p>
+ * <p>
+ * Small hierarchies are built by sequential median splits. Large ones are built as linear hierarchies:
+ * the primitives are sorted by the Morton codes of their centroids, and the sorted range is split
+ * recursively at the highest differing code bit - in parallel on the fork/join pool, optionally with
+ * surface area heuristic splits of the top levels, which matter most for the traversal.
+ * </p>
+ */
+final class BVHNodes {
+    /**
+     * Maximal number of primitives in a leaf (unless they can't be split)
+     */
+    static final int MAX_LEAF_SIZE = 4;
+
+    /**
+     * Initial size of the traversal stack, which grows for deeper hierarchies
+     */
+    private static final int STACK_SIZE = 64;
+
+    /**
+     * Number of primitives from which a hierarchy is built by Morton codes in parallel by default
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 12;
+
+    /**
+     * Number of top levels of a linear hierarchy which are split by the surface area heuristic
+     */
+    static final int SAH_LEVELS = 8;
+
+    /**
+     * The bounds of the nodes - minX, minY, minZ, maxX, maxY, maxZ of each node
+     */
+    final double[] bounds;
+
+    /**
+     * The second child of an inner node, or the first position in the order array of a leaf
+     */
+    final int[] links;
+
+    /**
+     * The number of primitives of a leaf, zero for an inner node
+     */
+    final int[] counts;
+
+    /**
+     * The primitive indices in the order of the leaves
+     */
+    final int[] order;
+
+    /**
+     * The number of nodes
+     */
+    final int size;
+
+    /**
+     * The parent of every node (-1 for the root), computed by the first incremental refit
+     */
+    private int[] parents = null;
+
+    /**
+     * The leaf of every primitive, computed by the first incremental refit
+     */
+    private int[] leaves = null;
+
+    /**
+     * Visits the primitives of the leaves which a ray passes through
+     */
+    @FunctionalInterface
+    interface Visitor {
+        /**
+         * Visits a primitive
+         *
+         * @param primitive   the primitive index
+         * @param maxDistance the current maximal distance of the traversal
+         * @return the new maximal distance - the distance of a closer hit to stop looking beyond it,
+         * or the given one to keep it
+         */
+        double visit(int primitive, double maxDistance);
+    }
+
+    /**
+     * Constructs a hierarchy from its arrays
+     *
+     * @param bounds the bounds of the nodes
+     * @param links  the second children of the inner nodes and the first positions of the leaves
+     * @param counts the primitives counts of the leaves
+     * @param order  the primitive indices in the order of the leaves
+     * @param size   the number of nodes
+     */
+    private BVHNodes(double[] bounds, int[] links, int[] counts, int[] order, int size) {
+        this.bounds = bounds;
+        this.links = links;
+        this.counts = counts;
+        this.order = order;
+        this.size = size;
+    }
+
+    /**
+     * Constructs a hierarchy from stored arrays, checking that its links stay within the arrays
+     *
+     * @param bounds         the bounds of the nodes
+     * @param links          the second children of the inner nodes and the first positions of the leaves
+     * @param counts         the primitives counts of the leaves
+     * @param order          the primitive indices in the order of the leaves
+     * @param primitiveCount the number of primitives
+     * @return the hierarchy
+     * @throws IllegalArgumentException if the arrays don't form a hierarchy of the primitives
+     */
+    static BVHNodes of(double[] bounds, int[] links, int[] counts, int[] order, int primitiveCount) {
+        int size = links.length;
+        if (bounds.length != 6 * size || counts.length != size || order.length != primitiveCount
+                || (size == 0) != (primitiveCount == 0))
+            throw new IllegalArgumentException("Inconsistent hierarchy arrays");
+        // The first child of an inner node follows it, so the links lead forward and the traversal ends
+        for (int node = 0; node < size; ++node)
+            if (counts[node] < 0 || counts[node] > 0 && (links[node] < 0 || links[node] > primitiveCount - counts[node])
+                    || counts[node] == 0 && (links[node] <= node + 1 || links[node] >= size))
+                throw new IllegalArgumentException("Invalid hierarchy node " + node);
+        for (int primitive : order)
+            if (primitive < 0 || primitive >= primitiveCount)
+                throw new IllegalArgumentException("Hierarchy primitive index out of range: " + primitive);
+        return new BVHNodes(bounds, links, counts, order, size);
+    }
+
+    /**
+     * Builds a hierarchy by the default method for the number of primitives - median splits for
+     * a few primitives, and a parallel linear hierarchy with surface area heuristic top levels for many
+     *
+     * @param primitiveBounds the bounds of the primitives - six per primitive, like the nodes bounds
+     * @return the hierarchy
+     */
+    static BVHNodes build(double[] primitiveBounds) {
+        return build(primitiveBounds,
+                primitiveBounds.length / 6 < PARALLEL_THRESHOLD ? BVH.Builder.MEDIAN : BVH.Builder.MORTON_SAH);
+    }
+
+    /**
+     * Builds a hierarchy by a given method
+     *
+     * @param primitiveBounds the bounds of the primitives - six per primitive, like the nodes bounds
+     * @param builder         the building method
+     * @return the hierarchy
+     */
+    static BVHNodes build(double[] primitiveBounds, BVH.Builder builder) {
+        if (builder == BVH.Builder.MEDIAN) {
+            MedianBuilder median = new MedianBuilder(primitiveBounds);
+            if (median.order.length > 0)
+                median.build(0, median.order.length);
+            return new BVHNodes(Arrays.copyOf(median.bounds, 6 * median.size),
+                    Arrays.copyOf(median.links, median.size), Arrays.copyOf(median.counts, median.size),
+                    median.order, median.size);
+        }
+        return new MortonBuilder(primitiveBounds, builder == BVH.Builder.MORTON_SAH ? SAH_LEVELS : 0).build();
+    }
+
+    /**
+     * Returns the bounding box of the whole hierarchy
+     *
+     * @return the root bounds, or {@code null} if there are no primitives
+     */
+    BoundingBox getBoundingBox() {
+        return size == 0 ? null
+                : new BoundingBox(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]);
+    }
+
+    /**
+     * Returns the memory footprint of the hierarchy
+     *
+     * @return the size of the node and order arrays in bytes
+     */
+    long footprint() {
+        return (long) bounds.length * Double.BYTES + ((long) links.length + counts.length + order.length) * Integer.BYTES;
+    }
+
+    /**
+     * Updates the bounds of all the nodes bottom-up from the current bounds of the primitives,
+     * keeping the tree structure
+     *
+     * @param primitiveBounds the bounds of the primitives - six per primitive, like the nodes bounds
+     */
+    void refit(double[] primitiveBounds) {
+        // A node's children follow it, so a reverse sweep updates the children before their parents
+        for (int node = size - 1; node >= 0; --node)
+            refitNode(node, primitiveBounds);
+    }
+
+    /**
+     * Updates the bounds of the nodes above changed primitives bottom-up, keeping the tree structure
+     *
+     * @param primitiveBounds the bounds of the primitives - six per primitive, like the nodes bounds
+     * @param changed         the indices of the primitives whose bounds changed
+     */
+    void refit(double[] primitiveBounds, int[] changed) {
+        if (parents == null)
+            computeParents();
+        boolean[] dirty = new boolean[size];
+        int[] path = new int[size];
+        int count = 0;
+        for (int primitive : changed)
+            for (int node = leaves[primitive]; node >= 0 && !dirty[node]; node = parents[node]) {
+                dirty[node] = true;
+                path[count++] = node;
+            }
+        // Children have higher indices than their parents, so they are updated first
+        Arrays.sort(path, 0, count);
+        for (int i = count - 1; i >= 0; --i)
+            refitNode(path[i], primitiveBounds);
+    }
+
+    /**
+     * Computes the parents of the nodes and the leaves of the primitives
+     */
+    private void computeParents() {
+        int[] nodeParents = new int[size];
+        int[] primitiveLeaves = new int[order.length];
+        if (size > 0)
+            nodeParents[0] = -1;
+        for (int node = 0; node < size; ++node)
+            if (counts[node] > 0)
+                for (int i = links[node]; i < links[node] + counts[node]; ++i)
+                    primitiveLeaves[order[i]] = node;
+            else {
+                nodeParents[node + 1] = node;
+                nodeParents[links[node]] = node;
+            }
+        leaves = primitiveLeaves;
+        parents = nodeParents;
+    }
+
+    /**
+     * Updates the bounds of a node from its primitives or from its children
+     *
+     * @param node            the node index
+     * @param primitiveBounds the bounds of the primitives
+     */
+    private void refitNode(int node, double[] primitiveBounds) {
+        int b = 6 * node;
+        if (counts[node] > 0) {
+            Arrays.fill(bounds, b, b + 3, Double.POSITIVE_INFINITY);
+            Arrays.fill(bounds, b + 3, b + 6, Double.NEGATIVE_INFINITY);
+            for (int i = links[node]; i < links[node] + counts[node]; ++i) {
+                int p = 6 * order[i];
+                for (int axis = 0; axis < 3; ++axis) {
+                    bounds[b + axis] = Math.min(bounds[b + axis], primitiveBounds[p + axis]);
+                    bounds[b + axis + 3] = Math.max(bounds[b + axis + 3], primitiveBounds[p + axis + 3]);
+                }
+            }
+        } else {
+            int first = 6 * (node + 1), second = 6 * links[node];
+            for (int axis = 0; axis < 3; ++axis) {
+                bounds[b + axis] = Math.min(bounds[first + axis], bounds[second + axis]);
+                bounds[b + axis + 3] = Math.max(bounds[first + axis + 3], bounds[second + axis + 3]);
+            }
+        }
+    }
+
+    /**
+     * Estimates the traversal cost of the hierarchy by the surface area heuristic - the sum of the nodes
+     * surface areas, weighted by the primitives counts of the leaves, relative to the root surface area.
+     * Refitting moving primitives makes the nodes overlap and grow, which increases the cost.
+     *
+     * @return the relative cost, zero for an empty hierarchy or a hierarchy without volume and area
+     */
+    double cost() {
+        double root = size == 0 ? 0 : area(0);
+        if (root == 0)
+            return 0;
+        double cost = 0;
+        for (int node = 0; node < size; ++node)
+            cost += area(node) * Math.max(1, counts[node]);
+        return cost / root;
+    }
+
+    /**
+     * Calculates half the surface area of a node
+     *
+     * @param node the node index
+     * @return half the surface area
+     */
+    private double area(int node) {
+        int b = 6 * node;
+        double x = bounds[b + 3] - bounds[b], y = bounds[b + 4] - bounds[b + 1], z = bounds[b + 5] - bounds[b + 2];
+        return x * y + y * z + z * x;
+    }
+
+    /**
+     * Traverses the nodes which a ray passes through within a distance, nearer child first,
+     * skipping the nodes beyond the maximal distance returned by the visitor
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the ray's head
+     * @param visitor     the visitor of the primitives of the reached leaves
+     */
+    void traverse(Ray ray, double maxDistance, Visitor visitor) {
+        if (size == 0)
+            return;
+        Point head = ray.getHead();
+        Ray.InverseDirection inverse = ray.getInverseDirection();
+        double x = head.getX(), y = head.getY(), z = head.getZ();
+        double inverseX = inverse.x(), inverseY = inverse.y(), inverseZ = inverse.z();
+        // The offsets of the near planes of a node's bounds along each axis, by the ray's direction
+        int nearX = (inverse.signs() & Ray.InverseDirection.NEGATIVE_X) != 0 ? 3 : 0;
+        int nearY = (inverse.signs() & Ray.InverseDirection.NEGATIVE_Y) != 0 ? 4 : 1;
+        int nearZ = (inverse.signs() & Ray.InverseDirection.NEGATIVE_Z) != 0 ? 5 : 2;
+        if (entry(0, nearX, nearY, nearZ, x, y, z, inverseX, inverseY, inverseZ, maxDistance) == Double.POSITIVE_INFINITY)
+            return;
+
+        int[] nodeStack = new int[STACK_SIZE];
+        double[] entryStack = new double[STACK_SIZE];
+        int top = 0;
+        int node = 0;
+        while (true) {
+            if (counts[node] > 0) {
+                for (int i = links[node], end = i + counts[node]; i < end; ++i)
+                    maxDistance = visitor.visit(order[i], maxDistance);
+            } else {
+                int near = node + 1, far = links[node];
+                double nearEntry = entry(near, nearX, nearY, nearZ, x, y, z, inverseX, inverseY, inverseZ, maxDistance);
+                double farEntry = entry(far, nearX, nearY, nearZ, x, y, z, inverseX, inverseY, inverseZ, maxDistance);
+                if (farEntry < nearEntry) {
+                    int n = near; near = far; far = n;
+                    double e = nearEntry; nearEntry = farEntry; farEntry = e;
+                }
+                if (nearEntry != Double.POSITIVE_INFINITY) {
+                    if (farEntry != Double.POSITIVE_INFINITY) {
+                        if (top == nodeStack.length) {
+                            nodeStack = Arrays.copyOf(nodeStack, 2 * top);
+                            entryStack = Arrays.copyOf(entryStack, 2 * top);
+                        }
+                        nodeStack[top] = far;
+                        entryStack[top++] = farEntry;
+                    }
+                    node = near;
+                    continue;
+                }
+            }
+            // Continue with the next pushed node which isn't beyond a hit found meanwhile
+            do {
+                if (top == 0)
+                    return;
+                node = nodeStack[--top];
+            } while (entryStack[top] > maxDistance);
+        }
+    }
+
+    /**
+     * Calculates the distance at which a ray enters a node
+     *
+     * @param node        the node index
+     * @param nearX       offset of the near X plane in the node's bounds - 0 for the minimal plane, 3 for the maximal
+     * @param nearY       offset of the near Y plane in the node's bounds - 1 for the minimal plane, 4 for the maximal
+     * @param nearZ       offset of the near Z plane in the node's bounds - 2 for the minimal plane, 5 for the maximal
+     * @param x           X coordinate of the ray's head
+     * @param y           Y coordinate of the ray's head
+     * @param z           Z coordinate of the ray's head
+     * @param inverseX    inverse of the X coordinate of the ray's direction
+     * @param inverseY    inverse of the Y coordinate of the ray's direction
+     * @param inverseZ    inverse of the Z coordinate of the ray's direction
+     * @param maxDistance the maximal distance from the ray's head
+     * @return the entry distance, or {@link Double#POSITIVE_INFINITY} if the ray misses the node
+     */
+    private double entry(int node, int nearX, int nearY, int nearZ, double x, double y, double z,
+                         double inverseX, double inverseY, double inverseZ, double maxDistance) {
+        int b = 6 * node;
+        return BoundingBox.entryDistance(bounds[b + nearX], bounds[b + nearY], bounds[b + nearZ],
+                bounds[b + 3 - nearX], bounds[b + 5 - nearY], bounds[b + 7 - nearZ],
+                x, y, z, inverseX, inverseY, inverseZ, maxDistance);
+    }
+
+    /**
+     * Builder of a hierarchy by recursive median splits
+     */
+    private static final class MedianBuilder {
+        /** The bounds of the primitives */
+        private final double[] primitiveBounds;
+        /** The centroids of the primitives bounds */
+        private final double[] centroids;
+        /** The primitive indices, reordered by the splits */
+        private final int[] order;
+        /** The bounds of the nodes */
+        private final double[] bounds;
+        /** The second children and the leaves first positions */
+        private final int[] links;
+        /** The primitives counts of the leaves */
+        private final int[] counts;
+        /** The number of built nodes */
+        private int size = 0;
+
+        /**
+         * Prepares the builder
+         *
+         * @param primitiveBounds the bounds of the primitives
+         */
+        MedianBuilder(double[] primitiveBounds) {
+            this.primitiveBounds = primitiveBounds;
+            int count = primitiveBounds.length / 6;
+            order = new int[count];
+            centroids = new double[3 * count];
+            for (int i = 0; i < count; ++i) {
+                order[i] = i;
+                for (int axis = 0; axis < 3; ++axis)
+                    centroids[3 * i + axis] = (primitiveBounds[6 * i + axis] + primitiveBounds[6 * i + axis + 3]) / 2;
+            }
+            int capacity = Math.max(1, 2 * count - 1);
+            bounds = new double[6 * capacity];
+            links = new int[capacity];
+            counts = new int[capacity];
+        }
+
+        /**
+         * Builds the subtree of a range of the order array
+         *
+         * @param first the first position of the range
+         * @param last  the position after the end of the range
+         */
+        void build(int first, int last) {
+            int node = size++;
+            int b = 6 * node;
+            Arrays.fill(bounds, b, b + 3, Double.POSITIVE_INFINITY);
+            Arrays.fill(bounds, b + 3, b + 6, Double.NEGATIVE_INFINITY);
+            double[] centroidBounds = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                    Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+            for (int i = first; i < last; ++i) {
+                int p = order[i];
+                for (int axis = 0; axis < 3; ++axis) {
+                    bounds[b + axis] = Math.min(bounds[b + axis], primitiveBounds[6 * p + axis]);
+                    bounds[b + axis + 3] = Math.max(bounds[b + axis + 3], primitiveBounds[6 * p + axis + 3]);
+                    centroidBounds[axis] = Math.min(centroidBounds[axis], centroids[3 * p + axis]);
+                    centroidBounds[axis + 3] = Math.max(centroidBounds[axis + 3], centroids[3 * p + axis]);
+                }
+            }
+            int axis = 0;
+            for (int a = 1; a < 3; ++a)
+                if (centroidBounds[a + 3] - centroidBounds[a] > centroidBounds[axis + 3] - centroidBounds[axis])
+                    axis = a;
+            if (last - first <= MAX_LEAF_SIZE || centroidBounds[axis + 3] == centroidBounds[axis]) {
+                links[node] = first;
+                counts[node] = last - first;
+                return;
+            }
+            int middle = (first + last) >>> 1;
+            select(first, last, middle, axis);
+            build(first, middle);
+            links[node] = size;
+            build(middle, last);
+        }
+
+        /**
+         * Partially sorts a range of the order array by the centroids along an axis, so the primitive
+         * at a given position is the one which would be there in a full sort (quickselect)
+         *
+         * @param first    the first position of the range
+         * @param last     the position after the end of the range
+         * @param position the position to select
+         * @param axis     the axis of the centroids
+         */
+        private void select(int first, int last, int position, int axis) {
+            int low = first, high = last - 1;
+            while (low < high) {
+                double pivot = centroids[3 * order[(low + high) >>> 1] + axis];
+                int i = low, j = high;
+                while (i <= j) {
+                    while (centroids[3 * order[i] + axis] < pivot) ++i;
+                    while (centroids[3 * order[j] + axis] > pivot) --j;
+                    if (i <= j) {
+                        int t = order[i]; order[i] = order[j]; order[j] = t;
+                        ++i;
+                        --j;
+                    }
+                }
+                if (position <= j) high = j;
+                else if (position >= i) low = i;
+                else return;
+            }
+        }
+    }
+
+    /**
+     * Builder of a linear hierarchy by the Morton codes order of the primitives.
+     * <p>
+     * The subtree of a range of n sorted primitives is given 2n-1 node slots, starting with its root,
+     * followed by the slots of its first child, then the slots of its second child. So the subtrees are
+     * built in parallel into disjoint slots, already in depth-first order, and the slots left unused
+     * by the leaves are squeezed out at the end.
+     * </p>
+     */
+    private static final class MortonBuilder {
+        /** Number of code bits per axis */
+        private static final int BITS = 10;
+        /** Number of primitives below which a subtree is built by a single task */
+        private static final int GRAIN = 1 << 12;
+        /** Marker of an unused node slot in the counts array */
+        private static final int UNUSED = -1;
+
+        /** The bounds of the primitives, in the sorted order for sequential memory access */
+        private final double[] sortedBounds;
+        /** Number of top levels split by the surface area heuristic */
+        private final int sahLevels;
+        /** The primitive indices, sorted by their Morton codes */
+        private final int[] order;
+        /** The Morton codes of the sorted primitives */
+        private final int[] codes;
+        /** The bounds of the node slots */
+        private final double[] bounds;
+        /** The second children slots and the leaves first positions */
+        private final int[] links;
+        /** The primitives counts of the leaves, zero for an inner node and {@link #UNUSED} for a free slot */
+        private final int[] counts;
+
+        /**
+         * Prepares the builder - calculates and sorts the Morton codes of the primitives centroids
+         *
+         * @param primitiveBounds the bounds of the primitives
+         * @param sahLevels       number of top levels split by the surface area heuristic
+         */
+        MortonBuilder(double[] primitiveBounds, int sahLevels) {
+            this.sahLevels = sahLevels;
+            int count = primitiveBounds.length / 6;
+            double[] centroidBounds = IntStream.range(0, count).parallel().collect(
+                    () -> new double[]{Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                            Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY},
+                    (box, p) -> {
+                        for (int axis = 0; axis < 3; ++axis) {
+                            double centroid = centroid(primitiveBounds, p, axis);
+                            box[axis] = Math.min(box[axis], centroid);
+                            box[axis + 3] = Math.max(box[axis + 3], centroid);
+                        }
+                    },
+                    (box, other) -> {
+                        for (int axis = 0; axis < 3; ++axis) {
+                            box[axis] = Math.min(box[axis], other[axis]);
+                            box[axis + 3] = Math.max(box[axis + 3], other[axis + 3]);
+                        }
+                    });
+
+            // A code in the high half and a primitive index in the low half, so one sort orders both
+            long[] keys = new long[count];
+            IntStream.range(0, count).parallel()
+                    .forEach(p -> keys[p] = (long) code(primitiveBounds, p, centroidBounds) << 32 | p);
+            Arrays.parallelSort(keys);
+            order = new int[count];
+            codes = new int[count];
+            sortedBounds = new double[6 * count];
+            IntStream.range(0, count).parallel().forEach(i -> {
+                order[i] = (int) keys[i];
+                codes[i] = (int) (keys[i] >>> 32);
+                System.arraycopy(primitiveBounds, 6 * order[i], sortedBounds, 6 * i, 6);
+            });
+
+            int capacity = Math.max(1, 2 * count - 1);
+            bounds = new double[6 * capacity];
+            links = new int[capacity];
+            counts = new int[capacity];
+            Arrays.fill(counts, UNUSED);
+        }
+
+        /**
+         * Calculates the centroid coordinate of a primitive's bounds
+         *
+         * @param primitiveBounds the bounds of the primitives
+         * @param primitive       the primitive index
+         * @param axis            the axis
+         * @return the centroid coordinate
+         */
+        private static double centroid(double[] primitiveBounds, int primitive, int axis) {
+            return (primitiveBounds[6 * primitive + axis] + primitiveBounds[6 * primitive + axis + 3]) / 2;
+        }
+
+        /**
+         * Calculates the Morton code of a primitive - the interleaved bits of its quantized centroid
+         *
+         * @param primitiveBounds the bounds of the primitives
+         * @param primitive       the primitive index
+         * @param centroidBounds  the bounds of all the centroids
+         * @return the Morton code
+         */
+        private static int code(double[] primitiveBounds, int primitive, double[] centroidBounds) {
+            int code = 0;
+            for (int axis = 0; axis < 3; ++axis) {
+                double extent = centroidBounds[axis + 3] - centroidBounds[axis];
+                int cell = extent > 0
+                        ? (int) Math.min((1 << BITS) - 1,
+                        (centroid(primitiveBounds, primitive, axis) - centroidBounds[axis]) / extent * (1 << BITS))
+                        : 0;
+                for (int bit = 0; bit < BITS; ++bit)
+                    code |= (cell >>> bit & 1) << (3 * bit + 2 - axis);
+            }
+            return code;
+        }
+
+        /**
+         * Builds the hierarchy and squeezes out the unused node slots
+         *
+         * @return the hierarchy
+         */
+        BVHNodes build() {
+            int count = order.length;
+            if (count == 0)
+                return new BVHNodes(new double[0], new int[0], new int[0], order, 0);
+            new BuildTask(0, count, 0, 0).invoke();
+
+            // The slots of a subtree follow its root, so the slots order is the depth-first order
+            int[] slots = new int[counts.length];
+            int size = 0;
+            for (int slot = 0; slot < counts.length; ++slot)
+                if (counts[slot] != UNUSED)
+                    slots[slot] = size++;
+            double[] nodeBounds = new double[6 * size];
+            int[] nodeLinks = new int[size];
+            int[] nodeCounts = new int[size];
+            for (int slot = 0; slot < counts.length; ++slot) {
+                if (counts[slot] == UNUSED)
+                    continue;
+                int node = slots[slot];
+                System.arraycopy(bounds, 6 * slot, nodeBounds, 6 * node, 6);
+                nodeCounts[node] = counts[slot];
+                nodeLinks[node] = counts[slot] > 0 ? links[slot] : slots[links[slot]];
+            }
+            return new BVHNodes(nodeBounds, nodeLinks, nodeCounts, order, size);
+        }
+
+        /**
+         * Finds the split position of a sorted range at the highest bit in which its codes differ,
+         * or the middle of the range if all its codes are equal
+         *
+         * @param first the first position of the range
+         * @param last  the position after the end of the range
+         * @return the first position of the second part
+         */
+        private int mortonSplit(int first, int last) {
+            int firstCode = codes[first];
+            int differentBits = firstCode ^ codes[last - 1];
+            if (differentBits == 0)
+                return (first + last) >>> 1;
+            int prefix = Integer.numberOfLeadingZeros(differentBits);
+            // The codes which share more than the common prefix with the first code form the first part
+            int low = first + 1, high = last - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (Integer.numberOfLeadingZeros(firstCode ^ codes[middle]) > prefix)
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+            return low;
+        }
+
+        /**
+         * Finds the split position of a sorted range with the lowest surface area heuristic cost
+         * (the sum of the parts' surface areas weighted by their primitives counts), keeping the Morton
+         * split unless another position is strictly better
+         *
+         * @param first the first position of the range
+         * @param last  the position after the end of the range
+         * @return the first position of the second part
+         */
+        private int sahSplit(int first, int last) {
+            double[] costs = new double[last - first];
+            double[] box = emptyBox();
+            for (int i = last - 1; i > first; --i) {
+                include(box, i);
+                costs[i - first] = area(box) * (last - i);
+            }
+            box = emptyBox();
+            for (int i = first + 1; i < last; ++i) {
+                include(box, i - 1);
+                costs[i - first] += area(box) * (i - first);
+            }
+            int best = mortonSplit(first, last);
+            for (int i = first + 1; i < last; ++i)
+                if (costs[i - first] < costs[best - first])
+                    best = i;
+            return best;
+        }
+
+        /**
+         * Creates an empty box accumulator
+         *
+         * @return minimal coordinates of positive infinity and maximal coordinates of negative infinity
+         */
+        private static double[] emptyBox() {
+            return new double[]{Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                    Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        }
+
+        /**
+         * Expands a box accumulator by the bounds of a sorted primitive
+         *
+         * @param box      the box accumulator
+         * @param position the position of the primitive in the sorted order
+         */
+        private void include(double[] box, int position) {
+            for (int axis = 0; axis < 3; ++axis) {
+                box[axis] = Math.min(box[axis], sortedBounds[6 * position + axis]);
+                box[axis + 3] = Math.max(box[axis + 3], sortedBounds[6 * position + axis + 3]);
+            }
+        }
+
+        /**
+         * Calculates half the surface area of a box accumulator
+         *
+         * @param box the box accumulator
+         * @return half the surface area
+         */
+        private static double area(double[] box) {
+            double x = box[3] - box[0], y = box[4] - box[1], z = box[5] - box[2];
+            return x * y + y * z + z * x;
+        }
+
+        /**
+         * Task of building the subtree of a sorted range into its node slots
+         */
+        private final class BuildTask extends RecursiveAction {
+            @java.io.Serial
+            private static final long serialVersionUID = 1L;
+            /** The first position of the range */
+            private final int first;
+            /** The position after the end of the range */
+            private final int last;
+            /** The slot of the subtree root */
+            private final int slot;
+            /** The depth of the subtree root */
+            private final int depth;
+
+            /**
+             * Constructs the task
+             *
+             * @param first the first position of the range
+             * @param last  the position after the end of the range
+             * @param slot  the slot of the subtree root
+             * @param depth the depth of the subtree root
+             */
+            BuildTask(int first, int last, int slot, int depth) {
+                this.first = first;
+                this.last = last;
+                this.slot = slot;
+                this.depth = depth;
+            }
+
+            @Override
+            protected void compute() {
+                int b = 6 * slot;
+                if (last - first <= MAX_LEAF_SIZE) {
+                    double[] box = emptyBox();
+                    for (int i = first; i < last; ++i)
+                        include(box, i);
+                    System.arraycopy(box, 0, bounds, b, 6);
+                    links[slot] = first;
+                    counts[slot] = last - first;
+                    return;
+                }
+                int middle = depth < sahLevels ? sahSplit(first, last) : mortonSplit(first, last);
+                int firstChild = slot + 1, secondChild = slot + 2 * (middle - first);
+                BuildTask firstTask = new BuildTask(first, middle, firstChild, depth + 1);
+                BuildTask secondTask = new BuildTask(middle, last, secondChild, depth + 1);
+                if (last - first >= GRAIN)
+                    invokeAll(firstTask, secondTask);
+                else {
+                    firstTask.compute();
+                    secondTask.compute();
+                }
+                for (int axis = 0; axis < 3; ++axis) {
+                    bounds[b + axis] = Math.min(bounds[6 * firstChild + axis], bounds[6 * secondChild + axis]);
+                    bounds[b + axis + 3] = Math.max(bounds[6 * firstChild + axis + 3],
+                            bounds[6 * secondChild + axis + 3]);
+                }
+                links[slot] = secondChild;
+                counts[slot] = 0;
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package geometries;
 
+import primitives.BoundingBox;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Util;
@@ -39,9 +40,20 @@ public class Circle extends RadialGeometry {
     @Override
     public Vector getNormal(Point point) { return plane.getNormal(point); }
 
+    @Override
+    public BoundingBox getBoundingBox() {
+        // The extent of a disk along an axis is the radius scaled by the sine of the angle between the axis and the normal
+        Vector normal = plane.getNormal(center);
+        double dx = radius * Math.sqrt(Math.max(0, 1 - normal.getX() * normal.getX()));
+        double dy = radius * Math.sqrt(Math.max(0, 1 - normal.getY() * normal.getY()));
+        double dz = radius * Math.sqrt(Math.max(0, 1 - normal.getZ() * normal.getZ()));
+        return new BoundingBox(center.getX() - dx, center.getY() - dy, center.getZ() - dz,
+                center.getX() + dx, center.getY() + dy, center.getZ() + dz);
+    }
+
     @Override
     public List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
-        List<Intersection> intersections = plane.calculateIntersections(ray, maxDistance);
+        List<Intersection> intersections = plane.calculateIntersectionsHelper(ray, maxDistance);
         if (intersections != null && Util.alignZero(center.distance(intersections.getFirst().point) - radius) < 0)
             return List.of(new Intersection(this, intersections.getFirst().point));
         return null;
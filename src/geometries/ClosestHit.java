@@ -0,0 +1,105 @@
+package geometries;
+
+import geometries.Intersectable.Intersection;
+import primitives.Point;
+import primitives.Ray;
+
+/**
+ * Accumulator of the closest intersection of a ray with a collection of geometries.
+ * <p>
+ * The result is the same as picking the closest of all the intersections by {@link Ray#findClosestIntersection}:
+ * the intersection with the smallest squared distance wins, and of intersections at exactly the same distance
+ * (e.g. coplanar geometries) the one of the geometry which comes first in the collection wins,
+ * whatever the order in which the geometries are tested.
+ * </p>
+ * <p>
+ * The geometries are queried up to a limit slightly beyond the closest distance found so far, because
+ * the geometries reject intersections at (almost) their maximal distance, and such an intersection
+ * may still be the closest one by the rule above.
+ * </p>
+ */
+final class ClosestHit {
+    /**
+     * Margin added to the closest distance when querying the remaining geometries,
+     * larger than the tolerance of {@link primitives.Util#alignZero}
+     */
+    private static final double SLACK = 1e-9;
+
+    /**
+     * The head of the ray
+     */
+    private final Point head;
+
+    /**
+     * The maximal distance of the search
+     */
+    private final double maxDistance;
+
+    /**
+     * The closest intersection found so far
+     */
+    private Intersection closest = null;
+
+    /**
+     * The squared distance of the closest intersection
+     */
+    private double distanceSquared = Double.POSITIVE_INFINITY;
+
+    /**
+     * The order of the geometry of the closest intersection in the collection
+     */
+    private int rank = Integer.MAX_VALUE;
+
+    /**
+     * The current query limit
+     */
+    private double limit;
+
+    /**
+     * Starts a search
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance of the search
+     */
+    ClosestHit(Ray ray, double maxDistance) {
+        this.head = ray.getHead();
+        this.maxDistance = maxDistance;
+        this.limit = maxDistance;
+    }
+
+    /**
+     * Returns the distance up to which the remaining geometries should be queried
+     *
+     * @return the query limit
+     */
+    double limit() {
+        return limit;
+    }
+
+    /**
+     * Offers a candidate intersection
+     *
+     * @param candidate the closest intersection with a geometry, or {@code null} if there is none
+     * @param rank      the order of the geometry in the collection
+     */
+    void offer(Intersection candidate, int rank) {
+        if (candidate == null)
+            return;
+        double candidateDistance = candidate.point.distanceSquared(head);
+        if (candidateDistance < distanceSquared || candidateDistance == distanceSquared && rank < this.rank) {
+            closest = candidate;
+            distanceSquared = candidateDistance;
+            this.rank = rank;
+            limit = Math.min(maxDistance, Math.sqrt(candidateDistance) + SLACK);
+        }
+    }
+
+    /**
+     * Returns the result of the search
+     *
+     * @return the closest intersection, or {@code null} if there is none
+     */
+    Intersection result() {
+        return closest;
+    }
+}
@@ -1,5 +1,6 @@
 package geometries;
 
+import primitives.BoundingBox;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Util;
@@ -61,6 +62,11 @@ public class Cylinder extends Tube {
         return super.getNormal(point);
     }
 
+    @Override
+    public BoundingBox getBoundingBox() {
+        return bottomBase.getBoundingBox().union(topBase.getBoundingBox());
+    }
+
     @Override
     public List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
         Point baseCenter = axis.getHead();
@@ -95,7 +101,7 @@ public class Cylinder extends Tube {
      * @return an updated list of intersections including any new intersection with the given circle
      */
     private List<Intersection> getIntersections(Ray ray, Circle circle, List<Intersection> intersections, double maxDistance) {
-        var list = circle.calculateIntersections(ray, maxDistance);
+        var list = circle.calculateIntersectionsHelper(ray, maxDistance);
         if (list != null) {
             if (intersections == null)
                 intersections = new LinkedList<>();
@@ -0,0 +1,255 @@
+package geometries;
+
+import primitives.BoundingBox;
+import primitives.Ray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * A flattened collection of geometries prepared for rendering.
+ * <p>
+ * The nested {@link Geometries} groups of a geometry tree are flattened into the leaf geometries,
+ * which are partitioned by their concrete type into homogeneous arrays. Each array is intersected
+ * in its own loop, so every call site in the loops sees a single geometry type and can be inlined by the JIT,
+ * unlike a single loop over a mixed list of geometries. Geometries of other types are kept in a generic array.
+ * </p>
+ * <p>
+ * The bounding box of every bounded leaf geometry is precomputed, so a ray which misses the box
+ * skips the exact intersection test of the geometry.
+ * Changes made to the original tree after the collection is constructed don't affect it,
+ * and the boxes of moved geometries are updated by {@link #refit()}.
+ * </p>
+ */
+public final class FlatGeometries extends Intersectable {
+    /**
+     * The geometry types which are kept in their own homogeneous arrays
+     */
+    private static final Set<Class<?>> PARTITIONED_TYPES = Set.of(
+            Sphere.class, Triangle.class, Polygon.class, Circle.class, Cylinder.class, Plane.class, Tube.class);
+
+    /**
+     * The leaf geometries of the flattened tree, in depth-first order
+     */
+    private final Intersectable[] geometries;
+
+    /** The spheres of the collection */
+    private final Sphere[] spheres;
+    /** The bounding boxes of the spheres */
+    private final BoundingBox[] sphereBoxes;
+    /** The triangles of the collection */
+    private final Triangle[] triangles;
+    /** The bounding boxes of the triangles */
+    private final BoundingBox[] triangleBoxes;
+    /** The polygons of the collection */
+    private final Polygon[] polygons;
+    /** The bounding boxes of the polygons */
+    private final BoundingBox[] polygonBoxes;
+    /** The circles of the collection */
+    private final Circle[] circles;
+    /** The bounding boxes of the circles */
+    private final BoundingBox[] circleBoxes;
+    /** The cylinders of the collection */
+    private final Cylinder[] cylinders;
+    /** The bounding boxes of the cylinders */
+    private final BoundingBox[] cylinderBoxes;
+    /** The (unbounded) planes of the collection */
+    private final Plane[] planes;
+    /** The (unbounded) tubes of the collection */
+    private final Tube[] tubes;
+    /** The geometries of any other type */
+    private final Intersectable[] others;
+    /** The bounding boxes of the geometries of other types ({@code null} for unbounded geometries) */
+    private final BoundingBox[] otherBoxes;
+
+    /**
+     * Constructs a flattened collection of the given geometry tree.
+     *
+     * @param geometry the root of the geometry tree
+     */
+    public FlatGeometries(Intersectable geometry) {
+        List<Intersectable> leaves = new ArrayList<>();
+        flatten(geometry, leaves);
+        geometries = leaves.toArray(new Intersectable[0]);
+
+        spheres = partition(Sphere.class, Sphere[]::new);
+        sphereBoxes = boxes(spheres);
+        triangles = partition(Triangle.class, Triangle[]::new);
+        triangleBoxes = boxes(triangles);
+        polygons = partition(Polygon.class, Polygon[]::new);
+        polygonBoxes = boxes(polygons);
+        circles = partition(Circle.class, Circle[]::new);
+        circleBoxes = boxes(circles);
+        cylinders = partition(Cylinder.class, Cylinder[]::new);
+        cylinderBoxes = boxes(cylinders);
+        planes = partition(Plane.class, Plane[]::new);
+        tubes = partition(Tube.class, Tube[]::new);
+        others = Arrays.stream(geometries).filter(g -> !PARTITIONED_TYPES.contains(g.getClass()))
+                .toArray(Intersectable[]::new);
+        otherBoxes = boxes(others);
+    }
+
+    /**
+     * Collects the leaf geometries of a geometry tree in depth-first order.
+     *
+     * @param geometry the root of the geometry tree
+     * @param leaves   the list of leaves to fill
+     */
+    private static void flatten(Intersectable geometry, List<Intersectable> leaves) {
+        if (geometry instanceof Geometries group)
+            for (Intersectable child : group.getGeometries())
+                flatten(child, leaves);
+        else if (geometry instanceof FlatGeometries flat)
+            leaves.addAll(flat.getGeometries());
+        else
+            leaves.add(geometry);
+    }
+
+    /**
+     * Selects the leaf geometries of exactly the given type (subclasses are not included).
+     *
+     * @param type    the geometry type
+     * @param factory the array constructor of the type
+     * @param <T>     the geometry type
+     * @return the array of the leaf geometries of the type
+     */
+    private <T extends Intersectable> T[] partition(Class<T> type, IntFunction<T[]> factory) {
+        return Arrays.stream(geometries).filter(g -> g.getClass() == type).map(type::cast).toArray(factory);
+    }
+
+    /**
+     * Precomputes the bounding boxes of geometries.
+     *
+     * @param geometries the geometries
+     * @return the array of the bounding boxes, in the same order
+     */
+    private static BoundingBox[] boxes(Intersectable[] geometries) {
+        BoundingBox[] boxes = new BoundingBox[geometries.length];
+        for (int i = 0; i < geometries.length; ++i)
+            boxes[i] = geometries[i].getBoundingBox();
+        return boxes;
+    }
+
+    /**
+     * Updates the precomputed bounding boxes after geometries moved.
+     * The geometries mustn't be moved while rays are traced.
+     */
+    public void refit() {
+        refit(spheres, sphereBoxes);
+        refit(triangles, triangleBoxes);
+        refit(polygons, polygonBoxes);
+        refit(circles, circleBoxes);
+        refit(cylinders, cylinderBoxes);
+        refit(others, otherBoxes);
+    }
+
+    /**
+     * Updates the precomputed bounding boxes of geometries.
+     *
+     * @param geometries the geometries
+     * @param boxes      the array of their bounding boxes, in the same order
+     */
+    private static void refit(Intersectable[] geometries, BoundingBox[] boxes) {
+        for (int i = 0; i < geometries.length; ++i)
+            boxes[i] = geometries[i].getBoundingBox();
+    }
+
+    /**
+     * Returns the leaf geometries of the collection.
+     *
+     * @return an unmodifiable list of the leaf geometries in depth-first order
+     */
+    public List<Intersectable> getGeometries() {
+        return List.of(geometries);
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        BoundingBox box = null;
+        for (Intersectable geometry : geometries) {
+            BoundingBox childBox = geometry.getBoundingBox();
+            if (childBox == null)
+                return null;
+            box = box == null ? childBox : box.union(childBox);
+        }
+        return box;
+    }
+
+    @Override
+    protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
+        List<Intersection> result = null;
+        for (int i = 0; i < spheres.length; ++i)
+            if (sphereBoxes[i].intersects(ray, maxDistance))
+                result = merge(result, spheres[i].calculateIntersectionsHelper(ray, maxDistance));
+        for (int i = 0; i < triangles.length; ++i)
+            if (triangleBoxes[i].intersects(ray, maxDistance))
+                result = merge(result, triangles[i].calculateIntersectionsHelper(ray, maxDistance));
+        for (int i = 0; i < polygons.length; ++i)
+            if (polygonBoxes[i].intersects(ray, maxDistance))
+                result = merge(result, polygons[i].calculateIntersectionsHelper(ray, maxDistance));
+        for (int i = 0; i < circles.length; ++i)
+            if (circleBoxes[i].intersects(ray, maxDistance))
+                result = merge(result, circles[i].calculateIntersectionsHelper(ray, maxDistance));
+        for (int i = 0; i < cylinders.length; ++i)
+            if (cylinderBoxes[i].intersects(ray, maxDistance))
+                result = merge(result, cylinders[i].calculateIntersectionsHelper(ray, maxDistance));
+        for (Plane plane : planes)
+            result = merge(result, plane.calculateIntersectionsHelper(ray, maxDistance));
+        for (Tube tube : tubes)
+            result = merge(result, tube.calculateIntersectionsHelper(ray, maxDistance));
+        for (int i = 0; i < others.length; ++i)
+            if (otherBoxes[i] == null || otherBoxes[i].intersects(ray, maxDistance))
+                result = merge(result, others[i].calculateIntersectionsHelper(ray, maxDistance));
+        return result;
+    }
+
+    @Override
+    protected Intersection calculateClosestIntersectionHelper(Ray ray, double maxDistance) {
+        // Every closer intersection shrinks the search limit, so the following bounding boxes reject more geometries
+        ClosestHit hit = new ClosestHit(ray, maxDistance);
+        int rank = 0;
+        for (int i = 0; i < spheres.length; ++i, ++rank)
+            if (sphereBoxes[i].intersects(ray, hit.limit()))
+                hit.offer(spheres[i].calculateClosestIntersectionHelper(ray, hit.limit()), rank);
+        for (int i = 0; i < triangles.length; ++i, ++rank)
+            if (triangleBoxes[i].intersects(ray, hit.limit()))
+                hit.offer(triangles[i].calculateClosestIntersectionHelper(ray, hit.limit()), rank);
+        for (int i = 0; i < polygons.length; ++i, ++rank)
+            if (polygonBoxes[i].intersects(ray, hit.limit()))
+                hit.offer(polygons[i].calculateClosestIntersectionHelper(ray, hit.limit()), rank);
+        for (int i = 0; i < circles.length; ++i, ++rank)
+            if (circleBoxes[i].intersects(ray, hit.limit()))
+                hit.offer(circles[i].calculateClosestIntersectionHelper(ray, hit.limit()), rank);
+        for (int i = 0; i < cylinders.length; ++i, ++rank)
+            if (cylinderBoxes[i].intersects(ray, hit.limit()))
+                hit.offer(cylinders[i].calculateClosestIntersectionHelper(ray, hit.limit()), rank);
+        for (Plane plane : planes)
+            hit.offer(plane.calculateClosestIntersectionHelper(ray, hit.limit()), rank++);
+        for (Tube tube : tubes)
+            hit.offer(tube.calculateClosestIntersectionHelper(ray, hit.limit()), rank++);
+        for (int i = 0; i < others.length; ++i, ++rank)
+            if (otherBoxes[i] == null || otherBoxes[i].intersects(ray, hit.limit()))
+                hit.offer(others[i].calculateClosestIntersectionHelper(ray, hit.limit()), rank);
+        return hit.result();
+    }
+
+    /**
+     * Appends intersections to the accumulated intersections list.
+     *
+     * @param result        the accumulated intersections, or {@code null} if there are none yet
+     * @param intersections the intersections to append, or {@code null} if there are none
+     * @return the accumulated intersections
+     */
+    private static List<Intersection> merge(List<Intersection> result, List<Intersection> intersections) {
+        if (intersections == null)
+            return result;
+        if (result == null)
+            return new LinkedList<>(intersections);
+        result.addAll(intersections);
+        return result;
+    }
+}
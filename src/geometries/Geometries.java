@@ -1,13 +1,23 @@
 package geometries;
 
+import primitives.BoundingBox;
 import primitives.Ray;
 
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A container class for multiple geometric objects that extends {@link Intersectable}.
  * Allows treating a collection of geometries as a single unit for intersection tests.
+ * <p>
+ * The bounding boxes of the children are cached on first use. A ray skips the children whose boxes
+ * it misses, and the closest intersection search visits the children by the distance at which the ray enters
+ * their boxes, stopping at the first child which is entered behind the closest intersection found so far -
+ * so nested groups make a hand-built hierarchy. The cached boxes are dropped when any collection
+ * is changed or any geometry is moved.
+ * </p>
  */
 public class Geometries extends Intersectable{
     /**
@@ -15,6 +25,29 @@ public class Geometries extends Intersectable{
      */
     private final List<Intersectable> geometries = new LinkedList<>();
 
+    /**
+     * Counter of the changes of all the collections and of the moves of geometries.
+     * A change of a nested collection or a move of a geometry changes the boxes of the collections containing it,
+     * which aren't known to it, so every change invalidates the caches of all the collections.
+     * Moved geometries report their moves by {@link Intersectable#boundsChanged()}.
+     */
+    private static final AtomicLong changes = new AtomicLong();
+
+    /**
+     * The children with their cached bounding boxes
+     *
+     * @param geometries the children, in insertion order
+     * @param boxes      the bounding boxes of the children ({@code null} for unbounded children)
+     * @param box        the bounding box of the collection, {@code null} if it is unbounded
+     * @param version    the changes counter when the boxes were computed
+     */
+    private record Children(Intersectable[] geometries, BoundingBox[] boxes, BoundingBox box, long version) {}
+
+    /**
+     * The cached children boxes, {@code null} until first used
+     */
+    private volatile Children children = null;
+
     /**
      * Default constructor creating an empty collection of geometries.
      */
@@ -36,13 +69,76 @@ public class Geometries extends Intersectable{
      */
     public void add(Intersectable... geometries) {
         this.geometries.addAll(List.of(geometries));
+        changed();
+    }
+
+    /**
+     * Invalidates the cached bounding boxes of all the collections,
+     * called when a collection is changed or a geometry is moved
+     */
+    static void changed() {
+        changes.incrementAndGet();
+    }
+
+    /**
+     * Returns the changes counter of the collections and of the moves of geometries,
+     * for caches of bounding boxes outside the collections
+     *
+     * @return the number of the changes so far
+     */
+    static long version() {
+        return changes.get();
+    }
+
+    /**
+     * Returns the children with their bounding boxes, computing them if they aren't cached
+     *
+     * @return the children and their boxes
+     */
+    private Children children() {
+        long version = changes.get();
+        Children cached = children;
+        if (cached != null && cached.version == version)
+            return cached;
+        Intersectable[] array = geometries.toArray(new Intersectable[0]);
+        BoundingBox[] boxes = new BoundingBox[array.length];
+        BoundingBox box = null;
+        boolean unbounded = false;
+        for (int i = 0; i < array.length; ++i) {
+            boxes[i] = array[i].getBoundingBox();
+            if (boxes[i] == null)
+                unbounded = true;
+            else
+                box = box == null ? boxes[i] : box.union(boxes[i]);
+        }
+        cached = new Children(array, boxes, unbounded ? null : box, version);
+        children = cached;
+        return cached;
+    }
+
+    /**
+     * Returns the geometries in the collection.
+     *
+     * @return an unmodifiable view of the geometries in the collection
+     */
+    public List<Intersectable> getGeometries() {
+        return Collections.unmodifiableList(geometries);
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return children().box();
     }
 
     @Override
     public List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
+        Children children = children();
         List<Intersection> allIntersections = null;
-        for (Intersectable geometry : geometries) {
-            var intersections = geometry.calculateIntersections(ray, maxDistance);
+        for (int i = 0; i < children.geometries.length; ++i) {
+            BoundingBox box = children.boxes[i];
+            if (box != null && !box.intersects(ray, maxDistance))
+                continue;
+            var intersections = children.geometries[i].calculateIntersections(ray, maxDistance);
             if (intersections != null)
                 if (allIntersections == null)
                     allIntersections = new LinkedList<>(intersections);
@@ -51,4 +147,33 @@ public class Geometries extends Intersectable{
         }
         return allIntersections;
     }
+
+    @Override
+    protected Intersection calculateClosestIntersectionHelper(Ray ray, double maxDistance) {
+        Children children = children();
+
+        // Sort the entered children by their entry distance (unbounded children are entered at the ray's head)
+        int count = 0;
+        int[] order = new int[children.geometries.length];
+        double[] entries = new double[children.geometries.length];
+        for (int child = 0; child < order.length; ++child) {
+            BoundingBox box = children.boxes[child];
+            double entry = box == null ? 0 : box.entryDistance(ray, maxDistance);
+            if (entry == Double.POSITIVE_INFINITY)
+                continue;
+            int i = count++;
+            for (; i > 0 && entries[i - 1] > entry; --i) {
+                order[i] = order[i - 1];
+                entries[i] = entries[i - 1];
+            }
+            order[i] = child;
+            entries[i] = entry;
+        }
+
+        // The children are ranked by insertion order, so ties are decided as among all the intersections
+        ClosestHit hit = new ClosestHit(ray, maxDistance);
+        for (int i = 0; i < count && entries[i] <= hit.limit(); ++i)
+            hit.offer(children.geometries[order[i]].calculateClosestIntersectionHelper(ray, hit.limit()), order[i]);
+        return hit.result();
+    }
 }
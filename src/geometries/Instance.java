@@ -0,0 +1,192 @@
+package geometries;
+
+import primitives.BoundingBox;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Transform;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A placed copy of a shared geometry.
+ * <p>
+ * The instance holds a reference to the geometry and an affine transformation from the geometry's
+ * object space to the world, instead of a transformed copy of the geometry. Rays are transformed into
+ * object space and intersected with the shared geometry, and the intersection points and normals
+ * are transformed back to the world. Many instances of one large model cost only their transformations.
+ * </p>
+ * <p>
+ * The intersections refer to the shared geometry, so all the instances of a geometry have its material and emission.
+ * </p>
+ */
+public final class Instance extends Intersectable {
+    /**
+     * The shared geometry, in object space
+     */
+    private final Intersectable geometry;
+
+    /**
+     * The transformation from object space to the world
+     */
+    private Transform toWorld;
+
+    /**
+     * The transformation from the world to object space
+     */
+    private Transform toObject;
+
+    /**
+     * The world bounding box of the instance with the changes counter when it was computed
+     *
+     * @param box     the world bounding box, {@code null} if the geometry is unbounded
+     * @param version the changes counter of the geometries (see {@link Geometries#version()})
+     */
+    private record Bounds(BoundingBox box, long version) {}
+
+    /**
+     * The cached world bounding box, {@code null} until first used
+     */
+    private volatile Bounds bounds = null;
+
+    /**
+     * Constructs an instance of a geometry
+     *
+     * @param geometry  the shared geometry
+     * @param transform the transformation from the geometry's object space to the world
+     * @throws IllegalArgumentException if the transformation is singular
+     */
+    public Instance(Intersectable geometry, Transform transform) {
+        this.geometry = geometry;
+        setTransform(transform);
+    }
+
+    /**
+     * Calculates the world bounding box of a transformed box - the bounds of its eight transformed corners
+     *
+     * @param box       the object space box, or {@code null} for an unbounded geometry
+     * @param transform the transformation to the world
+     * @return the world bounding box, or {@code null} for an unbounded geometry
+     */
+    private static BoundingBox transformBox(BoundingBox box, Transform transform) {
+        if (box == null)
+            return null;
+        List<Point> corners = new ArrayList<>(8);
+        for (int i = 0; i < 8; i++)
+            corners.add(transform.apply(new Point((i & 1) == 0 ? box.minX : box.maxX,
+                    (i & 2) == 0 ? box.minY : box.maxY, (i & 4) == 0 ? box.minZ : box.maxZ)));
+        return BoundingBox.of(corners);
+    }
+
+    /**
+     * Returns the shared geometry of the instance
+     *
+     * @return the geometry in object space
+     */
+    public Intersectable getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Returns the transformation of the instance
+     *
+     * @return the transformation from object space to the world
+     */
+    public Transform getTransform() {
+        return toWorld;
+    }
+
+    /**
+     * Moves the instance - replaces its transformation.
+     * The shared geometry is not changed, so a scene hierarchy containing the instance needs
+     * only its top level rebuilt.
+     *
+     * @param transform the transformation from object space to the world
+     * @return the instance itself (for method chaining)
+     * @throws IllegalArgumentException if the transformation is singular
+     */
+    public Instance setTransform(Transform transform) {
+        Transform inverse = transform.inverse();
+        toWorld = transform;
+        toObject = inverse;
+        bounds = null;
+        boundsChanged();
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The box is recomputed from the box of the shared geometry after any geometry is moved,
+     * so it follows the moves and refits of the geometries inside the shared geometry.
+     * </p>
+     */
+    @Override
+    public BoundingBox getBoundingBox() {
+        long version = Geometries.version();
+        Bounds cached = bounds;
+        if (cached == null || cached.version != version) {
+            cached = new Bounds(transformBox(geometry.getBoundingBox(), toWorld), version);
+            bounds = cached;
+        }
+        return cached.box;
+    }
+
+    /**
+     * Transforms a ray into object space
+     *
+     * @param ray       the world ray
+     * @param direction the object space direction of the ray (not normalized)
+     * @return the object space ray
+     */
+    private Ray toObject(Ray ray, Vector direction) {
+        return new Ray(toObject.apply(ray.getHead()), direction);
+    }
+
+    /**
+     * Calculates the object space length of a world distance along a ray.
+     * Distances along the ray are scaled by the length of the transformed unit direction.
+     *
+     * @param direction the object space direction of the ray (not normalized)
+     * @param distance  the world distance
+     * @return the object space distance
+     */
+    private static double toObject(Vector direction, double distance) {
+        return distance * direction.length();
+    }
+
+    /**
+     * Transforms an object space intersection to the world
+     *
+     * @param objectIntersection the object space intersection
+     * @return the world intersection, with its normal set
+     */
+    private Intersection toWorld(Intersection objectIntersection) {
+        Vector normal = objectIntersection.normal != null ? objectIntersection.normal
+                : objectIntersection.geometry.getNormal(objectIntersection.point);
+        Intersection intersection = new Intersection(objectIntersection.geometry, toWorld.apply(objectIntersection.point));
+        intersection.normal = toObject.applyTransposed(normal).normalize();
+        return intersection;
+    }
+
+    @Override
+    protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
+        Vector direction = toObject.applyToVector(ray.getDirection());
+        var intersections = geometry.calculateIntersectionsHelper(toObject(ray, direction), toObject(direction, maxDistance));
+        if (intersections == null)
+            return null;
+        List<Intersection> result = new ArrayList<>(intersections.size());
+        for (Intersection objectIntersection : intersections)
+            result.add(toWorld(objectIntersection));
+        return result;
+    }
+
+    @Override
+    protected Intersection calculateClosestIntersectionHelper(Ray ray, double maxDistance) {
+        Vector direction = toObject.applyToVector(ray.getDirection());
+        Intersection intersection = geometry.calculateClosestIntersectionHelper(toObject(ray, direction),
+                toObject(direction, maxDistance));
+        return intersection == null ? null : toWorld(intersection);
+    }
+}
@@ -1,6 +1,7 @@
 package geometries;
 
 import lighting.LightSource;
+import primitives.BoundingBox;
 import primitives.Material;
 import primitives.Point;
 import primitives.Ray;
@@ -72,6 +73,71 @@ public abstract class Intersectable {
      */
     protected abstract List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance);
 
+    /**
+     * Calculates the intersection of the ray with the geometry which is closest to the ray's head.
+     *
+     * @param ray the ray to intersect with
+     * @return the closest intersection, or {@code null} if there are no intersections
+     */
+    public final Intersection calculateClosestIntersection(Ray ray) {
+        return calculateClosestIntersectionHelper(ray, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Calculates the intersection of the ray with the geometry which is closest to the ray's head,
+     * within a maximum distance.
+     *
+     * @param ray         the ray to intersect with
+     * @param maxDistance the maximum distance from the ray origin to consider for intersections
+     * @return the closest intersection, or {@code null} if there are no intersections within the distance
+     */
+    public final Intersection calculateClosestIntersection(Ray ray, double maxDistance) {
+        return calculateClosestIntersectionHelper(ray, maxDistance);
+    }
+
+    /**
+     * Calculates the closest intersection of the ray with the geometry, limited to a maximum distance.
+     * <p>
+     * The default implementation picks the closest of all the intersections. Collections and hierarchies
+     * override it to shrink the distance as closer intersections are found, and skip whatever lies beyond.
+     * </p>
+     *
+     * @param ray         the ray to intersect with the geometry
+     * @param maxDistance the maximum allowed distance from the ray's origin to an intersection point
+     * @return the closest intersection, or {@code null} if there are no intersections within the distance
+     */
+    protected Intersection calculateClosestIntersectionHelper(Ray ray, double maxDistance) {
+        return ray.findClosestIntersection(calculateIntersectionsHelper(ray, maxDistance));
+    }
+
+    /**
+     * Returns the axis-aligned bounding box of the geometry.
+     * <p>
+     * The default implementation returns {@code null}, which means the geometry is unbounded
+     * (e.g. an infinite plane or tube) and can't be rejected by a bounding box test.
+     * </p>
+     * <p>
+     * The boxes are cached by the collections and instances containing the geometry, which don't know when
+     * it moves. A geometry whose box may change after construction must call {@link #boundsChanged()}
+     * whenever it changes, or the containing collections keep testing the rays against its old box.
+     * </p>
+     *
+     * @return the bounding box of the geometry, or {@code null} if the geometry is unbounded
+     */
+    public BoundingBox getBoundingBox() {
+        return null;
+    }
+
+    /**
+     * Reports that the bounding box of a geometry changed, so the cached boxes of the collections and
+     * instances are recomputed on their next use. All the cached boxes are dropped, so a geometry moved
+     * every frame costs a recomputation of the boxes of the whole scene per frame, but nothing per ray.
+     * See {@link #getBoundingBox()}.
+     */
+    protected static void boundsChanged() {
+        Geometries.changed();
+    }
+
 
     /**
      * Represents an intersection between a ray and a geometry object.
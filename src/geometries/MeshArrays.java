@@ -0,0 +1,247 @@
+package geometries;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * The storage of the arrays of a {@link TriangleMesh}.
+ * <p>
+ * A mesh reads its coordinates and indices through the {@link Coordinates} and {@link Indices} interfaces,
+ * so they may be stored in heap arrays, in double or single precision, or outside the heap - in direct
+ * buffers, or in buffers mapped from a mesh file, which several processes can share and which the
+ * garbage collector never copies or scans.
+ * </p>
+ */
+final class MeshArrays {
+    /**
+     * Don't let anyone instantiate this class.
+     */
+    private MeshArrays() {
+    }
+
+    /**
+     * Coordinates array of a mesh, in its storage precision
+     */
+    sealed interface Coordinates
+            permits DoubleCoordinates, FloatCoordinates, DoubleBufferCoordinates, FloatBufferCoordinates {
+        /**
+         * Returns a coordinate
+         *
+         * @param index the coordinate index
+         * @return the coordinate value
+         */
+        double get(int index);
+
+        /**
+         * Returns the number of the coordinates
+         *
+         * @return the array length
+         */
+        int length();
+
+        /**
+         * Checks whether the coordinates are stored in single precision
+         *
+         * @return true for floats, false for doubles
+         */
+        boolean single();
+
+        /**
+         * Copies the coordinates to a direct buffer of the same precision
+         *
+         * @return the off-heap coordinates
+         */
+        default Coordinates offHeap() {
+            if (single()) {
+                FloatBuffer buffer = allocate(length() * Float.BYTES).asFloatBuffer();
+                for (int i = 0; i < length(); ++i)
+                    buffer.put(i, (float) get(i));
+                return new FloatBufferCoordinates(buffer);
+            }
+            DoubleBuffer buffer = allocate(length() * Double.BYTES).asDoubleBuffer();
+            for (int i = 0; i < length(); ++i)
+                buffer.put(i, get(i));
+            return new DoubleBufferCoordinates(buffer);
+        }
+    }
+
+    /**
+     * Integers array of a mesh
+     */
+    sealed interface Indices permits ArrayIndices, BufferIndices {
+        /**
+         * Returns an integer
+         *
+         * @param index the integer index
+         * @return the integer value
+         */
+        int get(int index);
+
+        /**
+         * Returns the number of the integers
+         *
+         * @return the array length
+         */
+        int length();
+
+        /**
+         * Copies the integers to a direct buffer
+         *
+         * @return the off-heap integers
+         */
+        default Indices offHeap() {
+            IntBuffer buffer = allocate(length() * Integer.BYTES).asIntBuffer();
+            for (int i = 0; i < length(); ++i)
+                buffer.put(i, get(i));
+            return new BufferIndices(buffer);
+        }
+    }
+
+    /**
+     * Allocates a direct buffer in the native byte order
+     *
+     * @param bytes the buffer size
+     * @return the buffer
+     */
+    private static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Coordinates stored in a double precision array
+     *
+     * @param array the coordinates
+     */
+    record DoubleCoordinates(double[] array) implements Coordinates {
+        @Override
+        public double get(int index) {
+            return array[index];
+        }
+
+        @Override
+        public int length() {
+            return array.length;
+        }
+
+        @Override
+        public boolean single() {
+            return false;
+        }
+    }
+
+    /**
+     * Coordinates stored in a single precision array
+     *
+     * @param array the coordinates
+     */
+    record FloatCoordinates(float[] array) implements Coordinates {
+        /**
+         * Rounds double coordinates to floats
+         *
+         * @param coordinates the double coordinates
+         * @return the single precision coordinates
+         */
+        static FloatCoordinates of(double[] coordinates) {
+            float[] array = new float[coordinates.length];
+            for (int i = 0; i < array.length; ++i)
+                array[i] = (float) coordinates[i];
+            return new FloatCoordinates(array);
+        }
+
+        @Override
+        public double get(int index) {
+            return array[index];
+        }
+
+        @Override
+        public int length() {
+            return array.length;
+        }
+
+        @Override
+        public boolean single() {
+            return true;
+        }
+    }
+
+    /**
+     * Coordinates stored in a double precision buffer
+     *
+     * @param buffer the coordinates
+     */
+    record DoubleBufferCoordinates(DoubleBuffer buffer) implements Coordinates {
+        @Override
+        public double get(int index) {
+            return buffer.get(index);
+        }
+
+        @Override
+        public int length() {
+            return buffer.limit();
+        }
+
+        @Override
+        public boolean single() {
+            return false;
+        }
+    }
+
+    /**
+     * Coordinates stored in a single precision buffer
+     *
+     * @param buffer the coordinates
+     */
+    record FloatBufferCoordinates(FloatBuffer buffer) implements Coordinates {
+        @Override
+        public double get(int index) {
+            return buffer.get(index);
+        }
+
+        @Override
+        public int length() {
+            return buffer.limit();
+        }
+
+        @Override
+        public boolean single() {
+            return true;
+        }
+    }
+
+    /**
+     * Integers stored in an array
+     *
+     * @param array the integers
+     */
+    record ArrayIndices(int[] array) implements Indices {
+        @Override
+        public int get(int index) {
+            return array[index];
+        }
+
+        @Override
+        public int length() {
+            return array.length;
+        }
+    }
+
+    /**
+     * Integers stored in a buffer
+     *
+     * @param buffer the integers
+     */
+    record BufferIndices(IntBuffer buffer) implements Indices {
+        @Override
+        public int get(int index) {
+            return buffer.get(index);
+        }
+
+        @Override
+        public int length() {
+            return buffer.limit();
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package geometries;
+
+import primitives.BoundingBox;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Triangle mesh paged in from a file on demand, for meshes larger than the memory.
+ * <p>
+ * {@link #write(TriangleMesh, Path, int)} partitions a mesh into spatial clusters - runs of triangles in
+ * the leaf order of its hierarchy, which keeps close triangles together - and saves every cluster as a
+ * mesh of its own, with its hierarchy, after a table of the cluster bounds. A paged mesh reads only the table,
+ * and builds a hierarchy of the cluster bounds. A ray which reaches the bounds of a cluster pages it in - maps it
+ * from the file and loads its hierarchy - and the clusters are kept in a least recently used cache
+ * within a memory budget. The clusters are visited nearer first, and the closest intersection search
+ * stops before the clusters behind its hit, so a ray pages in few clusters beyond the ones it hits.
+ * </p>
+ * <p>
+ * The intersections refer to the paged mesh, which holds the material and the emission of the whole mesh.
+ * The cache is shared by the rendering threads: a cached cluster is found without locking, a cluster is
+ * paged in by the first thread which needs it while the other threads which need it wait for it, and only
+ * the accounting of the budget is locked. An I/O error while paging in a cluster is thrown as
+ * an {@link UncheckedIOException}, because the intersection methods don't declare it.
+ * </p>
+ */
+public class PagedMesh extends Geometry {
+    /**
+     * The default number of triangles of a cluster
+     */
+    public static final int DEFAULT_CLUSTER_SIZE = 1 << 16;
+
+    /**
+     * The magic number at the start of a paged mesh file - "PAGE"
+     */
+    private static final int FILE_MAGIC = 0x50414745;
+
+    /**
+     * The format version of paged mesh files
+     */
+    private static final int FILE_VERSION = 1;
+
+    /**
+     * The size of the header of a paged mesh file - magic, version, cluster count and padding
+     */
+    private static final int FILE_HEADER_SIZE = 16;
+
+    /**
+     * The size of a cluster entry of the table - six bounds, the offset and the end offset of the cluster
+     */
+    private static final int TABLE_ENTRY_SIZE = 6 * Double.BYTES + 2 * Long.BYTES;
+
+    /**
+     * The file of the clusters
+     */
+    private final Path file;
+
+    /**
+     * The memory budget of the cached clusters in bytes
+     */
+    private final long memoryBudget;
+
+    /**
+     * The bounds of the clusters - minX, minY, minZ, maxX, maxY, maxZ of each cluster
+     */
+    private final double[] clusterBounds;
+
+    /**
+     * The offsets of the clusters in the file, and the end offset of the last one
+     */
+    private final long[] offsets;
+
+    /**
+     * The wide hierarchy of the cluster bounds
+     */
+    private final WideBVHNodes nodes;
+
+    /**
+     * The cached clusters by index, each completed when it is paged in
+     */
+    private final ConcurrentHashMap<Integer, CompletableFuture<TriangleMesh>> cache = new ConcurrentHashMap<>();
+
+    /**
+     * The last use of every cluster, as the page-ins count at the use - the clusters used since the last
+     * page-in are all equally recent, so a cache hit doesn't write a shared counter
+     */
+    private final AtomicLongArray lastUse;
+
+    /**
+     * The lock of the accounting of the cached clusters
+     */
+    private final Object accounting = new Object();
+
+    /**
+     * The estimated footprint of the cached clusters in bytes
+     */
+    private long cachedBytes = 0;
+
+    /**
+     * The number of clusters paged in so far, written under the accounting lock
+     */
+    private volatile long pageIns = 0;
+
+    /**
+     * Opens a paged mesh file written by {@link #write(TriangleMesh, Path, int)}
+     *
+     * @param file         the file path
+     * @param memoryBudget the memory budget of the cached clusters in bytes. The most recently used cluster
+     *                     is kept even if it exceeds the budget.
+     * @throws IOException              if the file can't be read, or isn't a paged mesh file
+     * @throws IllegalArgumentException if the budget isn't positive
+     */
+    public PagedMesh(Path file, long memoryBudget) throws IOException {
+        if (memoryBudget <= 0)
+            throw new IllegalArgumentException("Memory budget must be positive");
+        this.file = file;
+        this.memoryBudget = memoryBudget;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < FILE_HEADER_SIZE || header.getInt() != FILE_MAGIC)
+                throw new IOException("Not a paged mesh file");
+            if (header.getInt() != FILE_VERSION)
+                throw new IOException("Unsupported paged mesh file version");
+            int clusterCount = header.getInt();
+            if (clusterCount < 0 || channel.size() < FILE_HEADER_SIZE + (long) clusterCount * TABLE_ENTRY_SIZE)
+                throw new IOException("Truncated paged mesh file");
+
+            ByteBuffer table = ByteBuffer.allocate(clusterCount * TABLE_ENTRY_SIZE);
+            channel.read(table, FILE_HEADER_SIZE);
+            table.flip();
+            clusterBounds = new double[6 * clusterCount];
+            offsets = new long[clusterCount + 1];
+            for (int cluster = 0; cluster < clusterCount; ++cluster) {
+                for (int i = 0; i < 6; ++i)
+                    clusterBounds[6 * cluster + i] = table.getDouble();
+                offsets[cluster] = table.getLong();
+                offsets[cluster + 1] = table.getLong();
+            }
+            if (clusterCount > 0 && channel.size() < offsets[clusterCount])
+                throw new IOException("Truncated paged mesh file");
+        }
+        nodes = new WideBVHNodes(BVHNodes.build(clusterBounds), WideBVHNodes.DEFAULT_WIDTH);
+        lastUse = new AtomicLongArray(offsets.length - 1);
+    }
+
+    /**
+     * Partitions a mesh into spatial clusters and writes them to a paged mesh file.
+     * The hierarchy of every cluster is written with it, so paging a cluster in doesn't build it.
+     *
+     * @param mesh        the mesh
+     * @param file        the file path
+     * @param clusterSize the maximal number of triangles of a cluster
+     * @throws IOException              if the file can't be written
+     * @throws IllegalArgumentException if the cluster size isn't positive
+     */
+    public static void write(TriangleMesh mesh, Path file, int clusterSize) throws IOException {
+        if (clusterSize <= 0)
+            throw new IllegalArgumentException("Cluster size must be positive");
+        int[] order = mesh.spatialOrder();
+        int clusterCount = (order.length + clusterSize - 1) / clusterSize;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+            header.putInt(FILE_MAGIC).putInt(FILE_VERSION).putInt(clusterCount);
+            header.rewind();
+            channel.write(header, 0);
+
+            ByteBuffer table = ByteBuffer.allocate(clusterCount * TABLE_ENTRY_SIZE);
+            long offset = TriangleMesh.align(FILE_HEADER_SIZE + (long) clusterCount * TABLE_ENTRY_SIZE);
+            for (int from = 0; from < order.length; from += clusterSize) {
+                TriangleMesh cluster = mesh.subMesh(order, from, Math.min(order.length, from + clusterSize));
+                long end = cluster.write(channel, offset);
+                BoundingBox box = cluster.getBoundingBox();
+                table.putDouble(box.minX).putDouble(box.minY).putDouble(box.minZ)
+                        .putDouble(box.maxX).putDouble(box.maxY).putDouble(box.maxZ)
+                        .putLong(offset).putLong(end);
+                offset = TriangleMesh.align(end);
+            }
+            table.flip();
+            channel.write(table, FILE_HEADER_SIZE);
+        }
+    }
+
+    /**
+     * Returns the number of the clusters of the mesh
+     *
+     * @return the cluster count
+     */
+    public int getClusterCount() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Returns the number of clusters paged in so far, including clusters paged in again after their eviction
+     *
+     * @return the page-ins count
+     */
+    public long getPageIns() {
+        return pageIns;
+    }
+
+    /**
+     * Returns the estimated footprint of the cached clusters
+     *
+     * @return the size of the cached clusters in bytes
+     */
+    public long getCachedBytes() {
+        synchronized (accounting) {
+            return cachedBytes;
+        }
+    }
+
+    /**
+     * Returns a cluster, paging it in if it isn't cached and evicting the least recently used clusters
+     * beyond the memory budget
+     *
+     * @param cluster the cluster index
+     * @return the cluster mesh
+     * @throws UncheckedIOException if the cluster can't be read
+     */
+    private TriangleMesh cluster(int cluster) {
+        long use = pageIns;
+        if (lastUse.get(cluster) != use)
+            lastUse.set(cluster, use);
+        CompletableFuture<TriangleMesh> future = cache.get(cluster);
+        if (future == null) {
+            CompletableFuture<TriangleMesh> pageIn = new CompletableFuture<>();
+            future = cache.putIfAbsent(cluster, pageIn);
+            if (future == null)
+                return pageIn(cluster, pageIn);
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            if (e.getCause() instanceof Error cause)
+                throw cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Pages a cluster in, outside the accounting lock, and evicts the least recently used clusters
+     * beyond the memory budget
+     *
+     * @param cluster the cluster index
+     * @param pageIn  the future of the cluster in the cache, completed by this method
+     * @return the cluster mesh
+     * @throws UncheckedIOException if the cluster can't be read
+     */
+    private TriangleMesh pageIn(int cluster, CompletableFuture<TriangleMesh> pageIn) {
+        TriangleMesh mesh;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            mesh = TriangleMesh.map(channel, offsets[cluster], offsets[cluster + 1]);
+        } catch (IOException e) {
+            throw failPageIn(cluster, pageIn, new UncheckedIOException(e));
+        } catch (RuntimeException e) {
+            throw failPageIn(cluster, pageIn, e);
+        } catch (Error e) {
+            throw failPageIn(cluster, pageIn, e);
+        }
+        synchronized (accounting) {
+            // The cluster is completed under the lock, so every completed cluster is accounted for
+            cachedBytes += mesh.footprint();
+            lastUse.set(cluster, ++pageIns);
+            pageIn.complete(mesh);
+            // Rays still tracing an evicted cluster keep it until they finish
+            while (cachedBytes > memoryBudget) {
+                int eldest = -1;
+                for (var entry : cache.entrySet())
+                    if (entry.getKey() != cluster && entry.getValue().isDone()
+                            && (eldest < 0 || lastUse.get(entry.getKey()) < lastUse.get(eldest)))
+                        eldest = entry.getKey();
+                if (eldest < 0)
+                    break;
+                cachedBytes -= cache.remove(eldest).join().footprint();
+            }
+        }
+        return mesh;
+    }
+
+    /**
+     * Fails a page-in - the threads waiting for the cluster fail too, and a later ray tries again
+     *
+     * @param <T>     the type of the failure
+     * @param cluster the cluster index
+     * @param pageIn  the future of the cluster in the cache
+     * @param failure the failure
+     * @return the failure, to be thrown
+     */
+    private <T extends Throwable> T failPageIn(int cluster, CompletableFuture<TriangleMesh> pageIn, T failure) {
+        cache.remove(cluster, pageIn);
+        pageIn.completeExceptionally(failure);
+        return failure;
+    }
+
+    /**
+     * Converts an intersection with a cluster to an intersection with the paged mesh
+     *
+     * @param clusterIntersection the intersection with the cluster
+     * @return the intersection with the mesh, with the normal of the cluster
+     */
+    private Intersection toMesh(Intersection clusterIntersection) {
+        Intersection intersection = new Intersection(this, clusterIntersection.point);
+        intersection.normal = clusterIntersection.normal;
+        return intersection;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return nodes.getBoundingBox();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The normal is of the triangle nearest to the point, searched in the clusters nearer to the point
+     * than the nearest triangle found so far, which pages them in.
+     * Intersections found by the mesh already carry their normals, so this search is rarely needed.
+     * </p>
+     */
+    @Override
+    public Vector getNormal(Point point) {
+        double x = point.getX(), y = point.getY(), z = point.getZ();
+        int clusterCount = getClusterCount();
+        // The clusters sorted by the squared distance from the point to their bounds
+        double[] boxDistances = new double[clusterCount];
+        Integer[] clusters = new Integer[clusterCount];
+        for (int cluster = 0; cluster < clusterCount; ++cluster) {
+            int b = 6 * cluster;
+            double dx = Math.max(0, Math.max(clusterBounds[b] - x, x - clusterBounds[b + 3]));
+            double dy = Math.max(0, Math.max(clusterBounds[b + 1] - y, y - clusterBounds[b + 4]));
+            double dz = Math.max(0, Math.max(clusterBounds[b + 2] - z, z - clusterBounds[b + 5]));
+            boxDistances[cluster] = dx * dx + dy * dy + dz * dz;
+            clusters[cluster] = cluster;
+        }
+        Arrays.sort(clusters, Comparator.comparingDouble(cluster -> boxDistances[cluster]));
+
+        Vector normal = null;
+        double nearestDistance = Double.POSITIVE_INFINITY;
+        double[] distance = new double[1];
+        for (int cluster : clusters) {
+            if (boxDistances[cluster] >= nearestDistance)
+                break;
+            Vector clusterNormal = cluster(cluster).getNormal(point, distance);
+            if (distance[0] < nearestDistance) {
+                nearestDistance = distance[0];
+                normal = clusterNormal;
+            }
+        }
+        return normal;
+    }
+
+    @Override
+    protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
+        List<Intersection> result = new LinkedList<>();
+        nodes.traverse(ray, maxDistance, (cluster, distance) -> {
+            var intersections = cluster(cluster).calculateIntersectionsHelper(ray, distance);
+            if (intersections != null)
+                for (Intersection intersection : intersections)
+                    result.add(toMesh(intersection));
+            return distance;
+        });
+        return result.isEmpty() ? null : result;
+    }
+
+    @Override
+    protected Intersection calculateClosestIntersectionHelper(Ray ray, double maxDistance) {
+        ClosestHit hit = new ClosestHit(ray, maxDistance);
+        nodes.traverse(ray, hit.limit(), (cluster, distance) -> {
+            Intersection intersection = cluster(cluster).calculateClosestIntersectionHelper(ray, distance);
+            hit.offer(intersection == null ? null : toMesh(intersection), cluster);
+            return hit.limit();
+        });
+        return hit.result();
+    }
+}
@@ -4,6 +4,7 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Util;
 import primitives.Vector;
+import primitives.VectorMath;
 
 import java.util.List;
 
@@ -51,19 +52,29 @@ public class Plane extends Geometry {
         return this.normal;
     }
 
-    @Override
-    public List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
+    /**
+     * Calculates the distance of the intersection point of a ray with the plane, without creating the point
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the ray's head
+     * @return the distance of the intersection point along the ray, or {@link Double#NaN} if there is none
+     */
+    double intersectionDistance(Ray ray, double maxDistance) {
         Point head = ray.getHead();
-        if (q.equals(head))
-            return null;
-        Vector u = q.subtract(head);
-        double nominator = u.dotProduct(normal);
+        double ux = q.getX() - head.getX(), uy = q.getY() - head.getY(), uz = q.getZ() - head.getZ();
+        if (VectorMath.isZero(ux, uy, uz))
+            return Double.NaN;
+        double nominator = VectorMath.dot(ux, uy, uz, normal.getX(), normal.getY(), normal.getZ());
         double denominator = normal.dotProduct(ray.getDirection());
         if (Util.isZero(denominator))
-            return null;
+            return Double.NaN;
         double t = Util.alignZero(nominator / denominator);
-        if (t > 0 && Util.alignZero(t - maxDistance) < 0)
-            return List.of(new Intersection(this, ray.getPoint(t)));
-        return null;
+        return t > 0 && Util.alignZero(t - maxDistance) < 0 ? t : Double.NaN;
+    }
+
+    @Override
+    public List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
+        double t = intersectionDistance(ray, maxDistance);
+        return Double.isNaN(t) ? null : List.of(new Intersection(this, ray.getPoint(t)));
     }
 }
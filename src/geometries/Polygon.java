@@ -92,41 +92,45 @@ public class Polygon extends Geometry {
         return plane.getNormal(point);
     }
 
+    @Override
+    public BoundingBox getBoundingBox() {
+        return BoundingBox.of(vertices);
+    }
+
     @Override
     public List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
-        List<Intersection> planeIntersections = plane.calculateIntersections(ray, maxDistance);
-        if (planeIntersections == null) {
+        double t = plane.intersectionDistance(ray, maxDistance);
+        if (Double.isNaN(t))
             return null;
-        }
 
         Point rayHead = ray.getHead();
         Vector rayDirection = ray.getDirection();
+        double hx = rayHead.getX(), hy = rayHead.getY(), hz = rayHead.getZ();
 
+        // The normals of the sides of the pyramid from the ray's head to the polygon's edges
+        // must all be on the same side of the ray
         int size = vertices.size();
-        Vector[] normals = new Vector[size];
-
+        boolean isPositive = false;
+        Point pi = vertices.get(size - 1);
+        double vix = pi.getX() - hx, viy = pi.getY() - hy, viz = pi.getZ() - hz;
         for (int i = 0; i < size; i++) {
-            Point pi = vertices.get(i);
-            Point pj = vertices.get((i + 1) % size);
-
-            Vector vi = pi.subtract(rayHead);
-            Vector vj = pj.subtract(rayHead);
-
-            normals[i] = vi.crossProduct(vj).normalize();
-        }
-
-        double dotProduct = alignZero(normals[0].dotProduct(rayDirection));
-        if (dotProduct == 0)
-            return null;
-
-        boolean isPositive = dotProduct > 0;
-
-        for (int i = 1; i < size; i++) {
-            dotProduct = alignZero(normals[i].dotProduct(rayDirection));
-            if (dotProduct == 0 || (dotProduct > 0) != isPositive)
+            Point pj = vertices.get(i);
+            double vjx = pj.getX() - hx, vjy = pj.getY() - hy, vjz = pj.getZ() - hz;
+            double nx = viy * vjz - viz * vjy;
+            double ny = viz * vjx - vix * vjz;
+            double nz = vix * vjy - viy * vjx;
+            if (VectorMath.isZero(nx, ny, nz))
+                return null;
+            double scale = 1 / Math.sqrt(VectorMath.lengthSquared(nx, ny, nz));
+            double dotProduct = alignZero(VectorMath.dot(rayDirection, nx * scale, ny * scale, nz * scale));
+            if (dotProduct == 0 || i > 0 && (dotProduct > 0) != isPositive)
                 return null;  // Return null if dotProduct is zero or signs don't match
+            isPositive = dotProduct > 0;
+            vix = vjx;
+            viy = vjy;
+            viz = vjz;
         }
-        return List.of(new Intersection(this, planeIntersections.getFirst().point));
+        return List.of(new Intersection(this, ray.getPoint(t)));
     }
 
     /**
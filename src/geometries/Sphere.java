@@ -1,9 +1,11 @@
 package geometries;
 
+import primitives.BoundingBox;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Util;
 import primitives.Vector;
+import primitives.VectorMath;
 
 import java.util.List;
 
@@ -14,7 +16,12 @@ public class Sphere extends RadialGeometry {
     /**
      * The center point of the sphere
      */
-    private final Point center;
+    private Point center;
+
+    /**
+     * The squared radius of the sphere
+     */
+    private final double radiusSquared;
 
     /**
      * Constructor to create a sphere with a given center and radius.
@@ -25,6 +32,26 @@ public class Sphere extends RadialGeometry {
     public Sphere(Point center, double radius) {
         super(radius);
         this.center = center;
+        this.radiusSquared = radius * radius;
+    }
+
+    /**
+     * Moves the sphere to a new center.
+     * A compiled scene picks up the move when it is refitted (see {@link BVH#refit(double)}).
+     *
+     * @param center the new center point of the sphere
+     * @return the sphere itself (for method chaining)
+     */
+    public Sphere setCenter(Point center) {
+        this.center = center;
+        boundsChanged();
+        return this;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return new BoundingBox(center.getX() - radius, center.getY() - radius, center.getZ() - radius,
+                center.getX() + radius, center.getY() + radius, center.getZ() + radius);
     }
 
     @Override
@@ -36,14 +63,15 @@ public class Sphere extends RadialGeometry {
     @Override
     public List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
         Point head = ray.getHead();
-        if (center.equals(head))
+        double ux = center.getX() - head.getX(), uy = center.getY() - head.getY(), uz = center.getZ() - head.getZ();
+        if (VectorMath.isZero(ux, uy, uz))
             return Util.alignZero(radius - maxDistance) < 0 ? List.of(new Intersection(this, ray.getPoint(radius))) : null;
-        Vector u = center.subtract(head);
-        double tm = u.dotProduct(ray.getDirection());
-        double d = Math.sqrt(u.lengthSquared() - tm * tm);
+        double tm = VectorMath.dot(ray.getDirection(), ux, uy, uz);
+        // A ray through the center may give a slightly negative squared distance by rounding
+        double d = Math.sqrt(Math.max(0, VectorMath.lengthSquared(ux, uy, uz) - tm * tm));
         if (Util.alignZero(d - radius) >= 0)
             return null;
-        double th = Math.sqrt(radius * radius - d * d);
+        double th = Math.sqrt(radiusSquared - d * d);
         double t1 = Util.alignZero(tm - th);
         double t2 = Util.alignZero(tm + th);
         if (t1 > 0 && t2 > 0 && Util.alignZero(t1 - maxDistance) < 0 && Util.alignZero(t2 - maxDistance) < 0)
@@ -3,6 +3,7 @@ package geometries;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
+import primitives.VectorMath;
 
 import java.util.List;
 
@@ -12,6 +13,26 @@ import static primitives.Util.alignZero;
  * Class representing a triangle in 3D space.
  */
 public class Triangle extends Polygon {
+    /**
+     * The edge from the first vertex to the third one
+     */
+    private final Vector edge1;
+
+    /**
+     * The edge from the first vertex to the second one
+     */
+    private final Vector edge2;
+
+    /**
+     * Dot products of the edges, used by the barycentric coordinates calculation
+     */
+    private final double dot00, dot01, dot11;
+
+    /**
+     * Denominator of the barycentric coordinates calculation
+     */
+    private final double denominator;
+
     /**
      * Constructor to create a triangle using three points.
      *
@@ -21,27 +42,27 @@ public class Triangle extends Polygon {
      */
     public Triangle(Point point1, Point point2, Point point3) {
         super(point1, point2, point3);
+        edge1 = point3.subtract(point1);
+        edge2 = point2.subtract(point1);
+        dot00 = edge1.dotProduct(edge1);
+        dot01 = edge1.dotProduct(edge2);
+        dot11 = edge2.dotProduct(edge2);
+        denominator = dot00 * dot11 - dot01 * dot01;
     }
 
     @Override
     public List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
-        var intersections = plane.calculateIntersections(ray, maxDistance);
-        if (intersections == null || intersections.getFirst().point.equals(vertices.get(0)))
+        double t = plane.intersectionDistance(ray, maxDistance);
+        if (Double.isNaN(t))
+            return null;
+        Point intersect = ray.getPoint(t);
+        Point vertex = vertices.get(0);
+        double x = intersect.getX() - vertex.getX(), y = intersect.getY() - vertex.getY(), z = intersect.getZ() - vertex.getZ();
+        if (VectorMath.isZero(x, y, z))
             return null;
-        
-        Point intersect = intersections.getFirst().point;
-
-        Vector v1 = vertices.get(2).subtract(vertices.get(0));
-        Vector v2 = vertices.get(1).subtract(vertices.get(0));
-        Vector v3 = intersect.subtract(vertices.get(0));
-
-        double dot00 = v1.dotProduct(v1);
-        double dot01 = v1.dotProduct(v2);
-        double dot02 = v1.dotProduct(v3);
-        double dot11 = v2.dotProduct(v2);
-        double dot12 = v2.dotProduct(v3);
 
-        double denominator = dot00 * dot11 - dot01 * dot01;
+        double dot02 = VectorMath.dot(edge1, x, y, z);
+        double dot12 = VectorMath.dot(edge2, x, y, z);
 
         double u = alignZero((dot11 * dot02 - dot01 * dot12) / denominator);
         double v = alignZero((dot00 * dot12 - dot01 * dot02) / denominator);
@@ -0,0 +1,1180 @@
+package geometries;
+
+import geometries.MeshArrays.ArrayIndices;
+import geometries.MeshArrays.BufferIndices;
+import geometries.MeshArrays.Coordinates;
+import geometries.MeshArrays.DoubleBufferCoordinates;
+import geometries.MeshArrays.DoubleCoordinates;
+import geometries.MeshArrays.FloatBufferCoordinates;
+import geometries.MeshArrays.FloatCoordinates;
+import geometries.MeshArrays.Indices;
+import primitives.BoundingBox;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
+
+/**
+ * Indexed triangle mesh.
+ * <p>
+ * Every vertex is stored once, in a primitive coordinates array, and the triangles refer to their vertices
+ * by index, so vertices shared by several triangles are not duplicated as they are in a list of
+ * {@link Triangle}s. The mesh keeps the adjacency of its triangles (the neighbor across each edge)
+ * and optionally smooth vertex normals, which are interpolated across the triangles at the hit points.
+ * </p>
+ * <p>
+ * The intersection rules are the same as of a {@link Triangle}: a hit on an edge or a vertex is not an intersection.
+ * The triangles are indexed by a bounding volume hierarchy, so a ray tests only the triangles near its path.
+ * The normal of every intersection is set by the mesh, so the shading doesn't need to find the hit triangle again.
+ * </p>
+ * <p>
+ * Large meshes may store their vertices and normals in {@link Precision#SINGLE single precision}, which halves
+ * their footprint (the hierarchy bounds are single precision anyway). The floats are widened exactly,
+ * so the intersections are still calculated in double precision, of the float vertices - the triangles sharing
+ * a vertex still meet exactly there, with no cracks opened by rounding. The mesh is still not watertight:
+ * as the edges are excluded, a ray through an edge shared by two triangles (or through a vertex) misses both.
+ * </p>
+ * <p>
+ * The arrays of a mesh may also live outside the heap: {@link #toOffHeap()} copies them to direct buffers,
+ * and {@link #write(Path)} saves them to a mesh file which {@link #map(Path)} maps back into memory,
+ * so very large meshes neither load the garbage collector nor need reading, and processes rendering
+ * the same mesh share its pages. Only the hierarchy is on the heap - it is stored in the file too,
+ * and loaded rather than built.
+ * </p>
+ */
+public class TriangleMesh extends Geometry {
+    /**
+     * Index of a missing neighbor - the edge is on the boundary of the mesh
+     */
+    public static final int NO_NEIGHBOR = -1;
+
+    /**
+     * The magic number at the start of a mesh file - "MESH"
+     */
+    private static final int FILE_MAGIC = 0x4D455348;
+
+    /**
+     * The format version of mesh files
+     */
+    private static final int FILE_VERSION = 1;
+
+    /**
+     * The size of the header of a mesh file - magic, version, flags, vertex count, triangle count,
+     * hierarchy nodes count and padding
+     */
+    private static final int FILE_HEADER_SIZE = 32;
+
+    /**
+     * Mesh file flag of single precision coordinates
+     */
+    private static final int SINGLE_FLAG = 1;
+
+    /**
+     * Mesh file flag of stored vertex normals
+     */
+    private static final int SMOOTH_FLAG = 2;
+
+    /**
+     * Mesh file flag of little-endian arrays (the header is always big-endian)
+     */
+    private static final int LITTLE_ENDIAN_FLAG = 4;
+
+    /**
+     * Mesh file flag of a stored binary hierarchy of the triangles, which is loaded instead of being built
+     */
+    private static final int HIERARCHY_FLAG = 8;
+
+    /**
+     * Storage precisions of the vertices and the normals of a mesh
+     */
+    public enum Precision {
+        /**
+         * The coordinates are stored as doubles
+         */
+        DOUBLE,
+        /**
+         * The coordinates are stored as floats, rounded to the nearest float
+         */
+        SINGLE
+    }
+
+    /**
+     * The vertex coordinates - x, y, z of each vertex
+     */
+    private final Coordinates vertices;
+
+    /**
+     * The vertex indices of the triangles - three per triangle
+     */
+    private final Indices indices;
+
+    /**
+     * The neighbor triangles - for every triangle, the neighbor across its edge from vertex i to vertex i+1
+     * ({@link #NO_NEIGHBOR} on the boundary)
+     */
+    private final Indices neighbors;
+
+    /**
+     * The unit normals of the vertices - x, y, z of each vertex, or {@code null} for flat shading
+     */
+    private final Coordinates vertexNormals;
+
+    /**
+     * The wide hierarchy of the triangles bounding boxes
+     */
+    private final WideBVHNodes nodes;
+
+    /**
+     * The bounding box of the mesh
+     */
+    private final BoundingBox box;
+
+    /**
+     * Constructs a mesh from its vertices and triangle indices.
+     * The arrays are used by the mesh directly and must not be changed afterwards.
+     *
+     * @param vertices      the vertex coordinates - x, y, z of each vertex
+     * @param indices       the vertex indices of the triangles - three per triangle
+     * @param smoothNormals whether to compute smooth vertex normals (area weighted average of the
+     *                      normals of the triangles around a vertex)
+     * @throws IllegalArgumentException if the arrays sizes aren't multiples of three, an index is out of range,
+     *                                  or the mesh is empty
+     */
+    public TriangleMesh(double[] vertices, int[] indices, boolean smoothNormals) {
+        this(vertices, indices, smoothNormals, null);
+    }
+
+    /**
+     * Constructs a mesh from its vertices and triangle indices, building its hierarchy by a given method.
+     * The arrays are used by the mesh directly and must not be changed afterwards.
+     *
+     * @param vertices      the vertex coordinates - x, y, z of each vertex
+     * @param indices       the vertex indices of the triangles - three per triangle
+     * @param smoothNormals whether to compute smooth vertex normals
+     * @param builder       the hierarchy building method, or {@code null} for the default one
+     * @throws IllegalArgumentException if the arrays sizes aren't multiples of three, an index is out of range,
+     *                                  or the mesh is empty
+     */
+    public TriangleMesh(double[] vertices, int[] indices, boolean smoothNormals, BVH.Builder builder) {
+        this(new DoubleCoordinates(vertices), indices, smoothNormals, builder);
+    }
+
+    /**
+     * Constructs a mesh which stores its vertices and normals in single precision.
+     * The arrays are used by the mesh directly and must not be changed afterwards.
+     *
+     * @param vertices      the vertex coordinates - x, y, z of each vertex
+     * @param indices       the vertex indices of the triangles - three per triangle
+     * @param smoothNormals whether to compute smooth vertex normals
+     * @param builder       the hierarchy building method, or {@code null} for the default one
+     * @throws IllegalArgumentException if the arrays sizes aren't multiples of three, an index is out of range,
+     *                                  or the mesh is empty
+     */
+    public TriangleMesh(float[] vertices, int[] indices, boolean smoothNormals, BVH.Builder builder) {
+        this(new FloatCoordinates(vertices), indices, smoothNormals, builder);
+    }
+
+    /**
+     * Constructs a mesh from its stored vertices and triangle indices arrays
+     *
+     * @param vertices      the vertex coordinates, in their storage precision
+     * @param indices       the vertex indices of the triangles - three per triangle
+     * @param smoothNormals whether to compute smooth vertex normals
+     * @param builder       the hierarchy building method, or {@code null} for the default one
+     * @throws IllegalArgumentException if the arrays sizes aren't multiples of three, an index is out of range,
+     *                                  or the mesh is empty
+     */
+    private TriangleMesh(Coordinates vertices, int[] indices, boolean smoothNormals, BVH.Builder builder) {
+        this(vertices, validate(vertices, new ArrayIndices(indices)), new ArrayIndices(computeNeighbors(indices)),
+                smoothNormals ? storeNormals(vertices, computeVertexNormals(vertices, indices)) : null, builder);
+    }
+
+    /**
+     * Constructs a mesh from its stored arrays, building its hierarchy
+     *
+     * @param vertices      the vertex coordinates
+     * @param indices       the vertex indices of the triangles
+     * @param neighbors     the neighbor triangles across the edges
+     * @param vertexNormals the vertex normals, or {@code null} for flat shading
+     * @param builder       the hierarchy building method, or {@code null} for the default one
+     */
+    private TriangleMesh(Coordinates vertices, Indices indices, Indices neighbors, Coordinates vertexNormals,
+                         BVH.Builder builder) {
+        this(vertices, indices, neighbors, vertexNormals, buildNodes(vertices, indices, builder));
+    }
+
+    /**
+     * Constructs a mesh from its stored arrays and hierarchy
+     *
+     * @param vertices      the vertex coordinates
+     * @param indices       the vertex indices of the triangles
+     * @param neighbors     the neighbor triangles across the edges
+     * @param vertexNormals the vertex normals, or {@code null} for flat shading
+     * @param nodes         the hierarchy of the triangles
+     */
+    private TriangleMesh(Coordinates vertices, Indices indices, Indices neighbors, Coordinates vertexNormals,
+                         WideBVHNodes nodes) {
+        this.vertices = vertices;
+        this.indices = indices;
+        this.neighbors = neighbors;
+        this.vertexNormals = vertexNormals;
+        this.nodes = nodes;
+        box = nodes.getBoundingBox();
+    }
+
+    /**
+     * Checks the sizes of the arrays of a mesh and its indices range
+     *
+     * @param vertices the vertex coordinates
+     * @param indices  the vertex indices of the triangles
+     * @return the indices
+     * @throws IllegalArgumentException if the arrays sizes aren't multiples of three, an index is out of range,
+     *                                  or the mesh is empty
+     */
+    private static Indices validate(Coordinates vertices, Indices indices) {
+        if (vertices.length() % 3 != 0 || indices.length() % 3 != 0)
+            throw new IllegalArgumentException("Mesh arrays must hold triples");
+        if (indices.length() == 0)
+            throw new IllegalArgumentException("A mesh must have at least one triangle");
+        int vertexCount = vertices.length() / 3;
+        for (int i = 0; i < indices.length(); ++i)
+            if (indices.get(i) < 0 || indices.get(i) >= vertexCount)
+                throw new IllegalArgumentException("Mesh vertex index out of range: " + indices.get(i));
+        return indices;
+    }
+
+    /**
+     * Stores computed vertex normals in the precision of the vertices
+     *
+     * @param vertices the vertex coordinates
+     * @param normals  the computed normals
+     * @return the stored normals
+     */
+    private static Coordinates storeNormals(Coordinates vertices, double[] normals) {
+        return vertices.single() ? FloatCoordinates.of(normals) : new DoubleCoordinates(normals);
+    }
+
+    /**
+     * Builds the hierarchy of the triangles of a mesh
+     *
+     * @param vertices the vertex coordinates
+     * @param indices  the vertex indices of the triangles
+     * @param builder  the hierarchy building method, or {@code null} for the default one
+     * @return the wide hierarchy
+     */
+    private static WideBVHNodes buildNodes(Coordinates vertices, Indices indices, BVH.Builder builder) {
+        double[] triangleBounds = computeTriangleBounds(vertices, indices);
+        BVHNodes binary = builder == null ? BVHNodes.build(triangleBounds) : BVHNodes.build(triangleBounds, builder);
+        return new WideBVHNodes(binary, WideBVHNodes.DEFAULT_WIDTH);
+    }
+
+    /**
+     * Constructs a mesh from separate facets, welding the vertices which are closer than a tolerance.
+     * <p>
+     * The vertices are hashed by their grid cell of size epsilon (or by their exact coordinates for
+     * a zero epsilon) in a primitive hash table, so welding doesn't create an object per vertex.
+     * A vertex is welded into the first vertex found within epsilon in every axis.
+     * Triangles which become degenerate by the welding are dropped.
+     * </p>
+     *
+     * @param facets        the coordinates of the facets vertices, nine per facet
+     * @param epsilon       the welding tolerance, zero to weld only identical vertices
+     * @param smoothNormals whether to compute smooth vertex normals
+     * @return the welded mesh
+     * @throws IllegalArgumentException if the epsilon is negative or there are no valid facets
+     */
+    public static TriangleMesh weld(double[] facets, double epsilon, boolean smoothNormals) {
+        return weld(facets, epsilon, smoothNormals, Precision.DOUBLE);
+    }
+
+    /**
+     * Constructs a mesh from separate facets like {@link #weld(double[], double, boolean)},
+     * storing its vertices in a given precision
+     *
+     * @param facets        the coordinates of the facets vertices, nine per facet
+     * @param epsilon       the welding tolerance, zero to weld only identical vertices
+     * @param smoothNormals whether to compute smooth vertex normals
+     * @param precision     the storage precision of the vertices and the normals
+     * @return the welded mesh
+     * @throws IllegalArgumentException if the epsilon is negative or there are no valid facets
+     */
+    public static TriangleMesh weld(double[] facets, double epsilon, boolean smoothNormals, Precision precision) {
+        if (epsilon < 0)
+            throw new IllegalArgumentException("Welding tolerance must not be negative");
+        if (facets.length % 9 != 0)
+            throw new IllegalArgumentException("Facets array must hold nine coordinates per facet");
+        VertexWelder welder = new VertexWelder(facets.length / 3, epsilon);
+        int[] indices = new int[facets.length / 3];
+        int size = 0;
+        for (int offset = 0; offset < facets.length; offset += 9) {
+            int a = welder.weld(facets[offset], facets[offset + 1], facets[offset + 2]);
+            int b = welder.weld(facets[offset + 3], facets[offset + 4], facets[offset + 5]);
+            int c = welder.weld(facets[offset + 6], facets[offset + 7], facets[offset + 8]);
+            if (a != b && b != c && a != c && !isDegenerate(welder.vertices, a, b, c)) {
+                indices[size++] = a;
+                indices[size++] = b;
+                indices[size++] = c;
+            }
+        }
+        double[] vertices = Arrays.copyOf(welder.vertices, welder.count * 3);
+        return new TriangleMesh(precision == Precision.SINGLE ? FloatCoordinates.of(vertices)
+                : new DoubleCoordinates(vertices), Arrays.copyOf(indices, size), smoothNormals, null);
+    }
+
+    /**
+     * Copies the arrays of the mesh to direct buffers outside the heap, keeping their precision.
+     * The copy shares the hierarchy of the mesh.
+     *
+     * @return the off-heap mesh
+     */
+    public TriangleMesh toOffHeap() {
+        return new TriangleMesh(vertices.offHeap(), indices.offHeap(), neighbors.offHeap(),
+                vertexNormals == null ? null : vertexNormals.offHeap(), nodes);
+    }
+
+    /**
+     * Writes the mesh to a mesh file, which {@link #map(Path)} maps back.
+     * The file holds the vertices and the normals in their storage precision, the triangle indices,
+     * the neighbors and the binary hierarchy of the triangles, in the native byte order.
+     *
+     * @param file the file path
+     * @throws IOException if the file can't be written
+     */
+    public void write(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel, 0);
+        }
+    }
+
+    /**
+     * Writes the mesh in the mesh file format into a region of a file
+     *
+     * @param channel the file channel, open for reading and writing
+     * @param base    the offset of the region, aligned to eight bytes
+     * @return the end offset of the region
+     * @throws IOException if the file can't be written
+     */
+    long write(FileChannel channel, long base) throws IOException {
+        int vertexCount = getVertexCount(), triangleCount = getTriangleCount();
+        BVHNodes hierarchy = nodes.binary();
+        int flags = (vertices.single() ? SINGLE_FLAG : 0) | (vertexNormals != null ? SMOOTH_FLAG : 0)
+                | (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? LITTLE_ENDIAN_FLAG : 0) | HIERARCHY_FLAG;
+        long[] offsets = fileOffsets(flags, vertexCount, triangleCount, hierarchy.size);
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        header.putInt(FILE_MAGIC).putInt(FILE_VERSION).putInt(flags).putInt(vertexCount).putInt(triangleCount)
+                .putInt(hierarchy.size);
+        header.rewind();
+        channel.write(header, base);
+        writeCoordinates(channel, base + offsets[0], vertices);
+        if (vertexNormals != null)
+            writeCoordinates(channel, base + offsets[1], vertexNormals);
+        writeIndices(channel, base + offsets[2], indices);
+        writeIndices(channel, base + offsets[3], neighbors);
+        writeCoordinates(channel, base + offsets[4], new DoubleCoordinates(hierarchy.bounds));
+        writeIndices(channel, base + offsets[5], new ArrayIndices(hierarchy.links));
+        writeIndices(channel, base + offsets[6], new ArrayIndices(hierarchy.counts));
+        writeIndices(channel, base + offsets[7], new ArrayIndices(hierarchy.order));
+        return base + offsets[8];
+    }
+
+    /**
+     * Maps a mesh file written by {@link #write(Path)} into memory. The arrays of the mesh are read directly
+     * from the mapped file (the operating system pages them in on demand), and only its hierarchy is loaded
+     * to the heap (or built, for a file without a stored hierarchy).
+     *
+     * @param file the file path
+     * @return the mapped mesh
+     * @throws IOException              if the file can't be read, or isn't a mesh file
+     * @throws IllegalArgumentException if the file holds an invalid mesh
+     */
+    public static TriangleMesh map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return map(channel, 0, channel.size());
+        }
+    }
+
+    /**
+     * Maps a mesh written in the mesh file format into a region of a file.
+     * The mapping stays valid after the channel is closed.
+     *
+     * @param channel the file channel
+     * @param base    the offset of the region
+     * @param end     the end offset of the region
+     * @return the mapped mesh
+     * @throws IOException              if the file can't be read, or the region doesn't hold a mesh
+     * @throws IllegalArgumentException if the region holds an invalid mesh
+     */
+    static TriangleMesh map(FileChannel channel, long base, long end) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        channel.read(header, base);
+        header.flip();
+        if (header.remaining() < FILE_HEADER_SIZE || header.getInt() != FILE_MAGIC)
+            throw new IOException("Not a mesh file");
+        if (header.getInt() != FILE_VERSION)
+            throw new IOException("Unsupported mesh file version");
+        int flags = header.getInt(), vertexCount = header.getInt(), triangleCount = header.getInt();
+        int nodeCount = header.getInt();
+        long[] offsets = fileOffsets(flags, vertexCount, triangleCount, nodeCount);
+        if (end - base < offsets[8])
+            throw new IOException("Truncated mesh file");
+
+        Coordinates vertices = mapCoordinates(channel, base + offsets[0], 3 * vertexCount, flags);
+        Coordinates normals = (flags & SMOOTH_FLAG) == 0 ? null
+                : mapCoordinates(channel, base + offsets[1], 3 * vertexCount, flags);
+        Indices indices = validate(vertices, new BufferIndices(mapRegion(channel, base + offsets[2],
+                3L * triangleCount * Integer.BYTES, flags).asIntBuffer()));
+        Indices neighbors = new BufferIndices(mapRegion(channel, base + offsets[3],
+                3L * triangleCount * Integer.BYTES, flags).asIntBuffer());
+        if ((flags & HIERARCHY_FLAG) == 0)
+            return new TriangleMesh(vertices, indices, neighbors, normals, (BVH.Builder) null);
+
+        double[] bounds = readDoubles(channel, base + offsets[4], 6L * nodeCount, flags);
+        int[] links = readInts(channel, base + offsets[5], nodeCount, flags);
+        int[] counts = readInts(channel, base + offsets[6], nodeCount, flags);
+        int[] order = readInts(channel, base + offsets[7], triangleCount, flags);
+        BVHNodes hierarchy = BVHNodes.of(bounds, links, counts, order, triangleCount);
+        return new TriangleMesh(vertices, indices, neighbors, normals,
+                new WideBVHNodes(hierarchy, WideBVHNodes.DEFAULT_WIDTH));
+    }
+
+    /**
+     * Reads a doubles array of a mesh file to the heap
+     *
+     * @param channel the file channel
+     * @param offset  the array offset
+     * @param length  the array length
+     * @param flags   the file flags, which give the byte order
+     * @return the array
+     * @throws IOException if the array can't be read
+     */
+    private static double[] readDoubles(FileChannel channel, long offset, long length, int flags) throws IOException {
+        DoubleBuffer buffer = mapRegion(channel, offset, length * Double.BYTES, flags).asDoubleBuffer();
+        double[] array = new double[buffer.remaining()];
+        buffer.get(array);
+        return array;
+    }
+
+    /**
+     * Reads an integers array of a mesh file to the heap
+     *
+     * @param channel the file channel
+     * @param offset  the array offset
+     * @param length  the array length
+     * @param flags   the file flags, which give the byte order
+     * @return the array
+     * @throws IOException if the array can't be read
+     */
+    private static int[] readInts(FileChannel channel, long offset, int length, int flags) throws IOException {
+        IntBuffer buffer = mapRegion(channel, offset, (long) length * Integer.BYTES, flags).asIntBuffer();
+        int[] array = new int[buffer.remaining()];
+        buffer.get(array);
+        return array;
+    }
+
+    /**
+     * Creates a mesh of some of the triangles of this mesh, with their vertices and normals.
+     * Edges shared with triangles outside the part have no neighbors in it.
+     *
+     * @param triangles an array of triangle indices
+     * @param from      the first position of the part's triangles in the array
+     * @param to        the position after the last triangle of the part
+     * @return the mesh of the part, in the storage precision of this mesh
+     */
+    TriangleMesh subMesh(int[] triangles, int from, int to) {
+        // The vertex of the part of every vertex of the mesh, or -1 if the part doesn't use it
+        int[] subVertices = new int[getVertexCount()];
+        Arrays.fill(subVertices, -1);
+        int[] subIndices = new int[3 * (to - from)];
+        int vertexCount = 0;
+        for (int i = from; i < to; ++i)
+            for (int corner = 0; corner < 3; ++corner) {
+                int vertex = indices.get(3 * triangles[i] + corner);
+                if (subVertices[vertex] < 0)
+                    subVertices[vertex] = vertexCount++;
+                subIndices[3 * (i - from) + corner] = subVertices[vertex];
+            }
+        // The normals are copied rather than recomputed, so the shading is continuous across the parts
+        double[] subCoordinates = new double[3 * vertexCount];
+        double[] subNormals = vertexNormals == null ? null : new double[3 * vertexCount];
+        for (int vertex = 0; vertex < subVertices.length; ++vertex) {
+            int subVertex = subVertices[vertex];
+            if (subVertex < 0)
+                continue;
+            for (int axis = 0; axis < 3; ++axis) {
+                subCoordinates[3 * subVertex + axis] = vertices.get(3 * vertex + axis);
+                if (subNormals != null)
+                    subNormals[3 * subVertex + axis] = vertexNormals.get(3 * vertex + axis);
+            }
+        }
+        // Floats widened to doubles are rounded back exactly
+        Coordinates subVertexCoordinates = vertices.single() ? FloatCoordinates.of(subCoordinates)
+                : new DoubleCoordinates(subCoordinates);
+        return new TriangleMesh(subVertexCoordinates, new ArrayIndices(subIndices),
+                new ArrayIndices(computeNeighbors(subIndices)),
+                subNormals == null ? null : storeNormals(vertices, subNormals), (BVH.Builder) null);
+    }
+
+    /**
+     * Returns the triangles in the order of the leaves of the mesh's hierarchy, in which close triangles
+     * are mostly adjacent
+     *
+     * @return the triangle indices
+     */
+    int[] spatialOrder() {
+        return nodes.order().clone();
+    }
+
+    /**
+     * Estimates the memory footprint of the mesh
+     *
+     * @return the estimated size of the arrays and the hierarchy of the mesh in bytes
+     */
+    long footprint() {
+        int coordinateSize = vertices.single() ? Float.BYTES : Double.BYTES;
+        long size = (long) vertices.length() * coordinateSize + 2L * indices.length() * Integer.BYTES;
+        if (vertexNormals != null)
+            size += (long) vertexNormals.length() * coordinateSize;
+        return size + nodes.footprint();
+    }
+
+    /**
+     * Calculates the offsets of the arrays in a mesh file, each aligned to eight bytes
+     *
+     * @param flags         the file flags
+     * @param vertexCount   the number of vertices
+     * @param triangleCount the number of triangles
+     * @param nodeCount     the number of the nodes of the stored hierarchy
+     * @return the offsets of the vertices, the normals, the indices, the neighbors, the hierarchy bounds, links,
+     * counts and order, and the file size
+     * @throws IOException if the counts are negative
+     */
+    private static long[] fileOffsets(int flags, int vertexCount, int triangleCount, int nodeCount)
+            throws IOException {
+        if (vertexCount < 0 || triangleCount < 0 || nodeCount < 0)
+            throw new IOException("Corrupt mesh file header");
+        long coordinatesSize = 3L * vertexCount * ((flags & SINGLE_FLAG) != 0 ? Float.BYTES : Double.BYTES);
+        long indicesSize = 3L * triangleCount * Integer.BYTES;
+        long[] offsets = new long[9];
+        offsets[0] = FILE_HEADER_SIZE;
+        offsets[1] = align(offsets[0] + coordinatesSize);
+        offsets[2] = align(offsets[1] + ((flags & SMOOTH_FLAG) != 0 ? coordinatesSize : 0));
+        offsets[3] = align(offsets[2] + indicesSize);
+        if ((flags & HIERARCHY_FLAG) == 0) {
+            Arrays.fill(offsets, 4, 9, offsets[3] + indicesSize);
+            return offsets;
+        }
+        offsets[4] = align(offsets[3] + indicesSize);
+        offsets[5] = offsets[4] + 6L * nodeCount * Double.BYTES;
+        offsets[6] = align(offsets[5] + (long) nodeCount * Integer.BYTES);
+        offsets[7] = align(offsets[6] + (long) nodeCount * Integer.BYTES);
+        offsets[8] = offsets[7] + (long) triangleCount * Integer.BYTES;
+        return offsets;
+    }
+
+    /**
+     * Aligns a file offset up to eight bytes
+     *
+     * @param offset the offset
+     * @return the aligned offset
+     */
+    static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    /**
+     * Maps a region of a mesh file
+     *
+     * @param channel the file channel
+     * @param offset  the region offset
+     * @param size    the region size
+     * @param flags   the file flags, which give the byte order
+     * @return the mapped region
+     * @throws IOException if the region can't be mapped
+     */
+    private static ByteBuffer mapRegion(FileChannel channel, long offset, long size, int flags) throws IOException {
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("Mesh array too large to map: " + size + " bytes");
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        return buffer.order((flags & LITTLE_ENDIAN_FLAG) != 0 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Maps a coordinates array of a mesh file
+     *
+     * @param channel the file channel
+     * @param offset  the array offset
+     * @param length  the number of coordinates
+     * @param flags   the file flags, which give the precision and the byte order
+     * @return the mapped coordinates
+     * @throws IOException if the array can't be mapped
+     */
+    private static Coordinates mapCoordinates(FileChannel channel, long offset, int length, int flags)
+            throws IOException {
+        if ((flags & SINGLE_FLAG) != 0)
+            return new FloatBufferCoordinates(
+                    mapRegion(channel, offset, (long) length * Float.BYTES, flags).asFloatBuffer());
+        return new DoubleBufferCoordinates(
+                mapRegion(channel, offset, (long) length * Double.BYTES, flags).asDoubleBuffer());
+    }
+
+    /**
+     * Writes a coordinates array to a mesh file, in its precision and the native byte order
+     *
+     * @param channel     the file channel
+     * @param offset      the array offset
+     * @param coordinates the coordinates
+     * @throws IOException if the array can't be written
+     */
+    private static void writeCoordinates(FileChannel channel, long offset, Coordinates coordinates)
+            throws IOException {
+        int size = coordinates.single() ? Float.BYTES : Double.BYTES;
+        ByteBuffer buffer = mapForWrite(channel, offset, (long) coordinates.length() * size);
+        for (int i = 0; i < coordinates.length(); ++i)
+            if (size == Float.BYTES)
+                buffer.putFloat(i * size, (float) coordinates.get(i));
+            else
+                buffer.putDouble(i * size, coordinates.get(i));
+    }
+
+    /**
+     * Writes an integers array to a mesh file, in the native byte order
+     *
+     * @param channel the file channel
+     * @param offset  the array offset
+     * @param array   the integers
+     * @throws IOException if the array can't be written
+     */
+    private static void writeIndices(FileChannel channel, long offset, Indices array) throws IOException {
+        ByteBuffer buffer = mapForWrite(channel, offset, (long) array.length() * Integer.BYTES);
+        for (int i = 0; i < array.length(); ++i)
+            buffer.putInt(i * Integer.BYTES, array.get(i));
+    }
+
+    /**
+     * Maps a region of a mesh file for writing
+     *
+     * @param channel the file channel
+     * @param offset  the region offset
+     * @param size    the region size
+     * @return the mapped region, in the native byte order
+     * @throws IOException if the region can't be mapped
+     */
+    private static ByteBuffer mapForWrite(FileChannel channel, long offset, long size) throws IOException {
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("Mesh array too large to map: " + size + " bytes");
+        return channel.map(FileChannel.MapMode.READ_WRITE, offset, size).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Checks whether three vertices lie on the same line
+     *
+     * @param vertices the vertex coordinates
+     * @param a        the first vertex index
+     * @param b        the second vertex index
+     * @param c        the third vertex index
+     * @return true if the cross product of the triangle edges is zero
+     */
+    private static boolean isDegenerate(double[] vertices, int a, int b, int c) {
+        double ux = vertices[3 * b] - vertices[3 * a];
+        double uy = vertices[3 * b + 1] - vertices[3 * a + 1];
+        double uz = vertices[3 * b + 2] - vertices[3 * a + 2];
+        double vx = vertices[3 * c] - vertices[3 * a];
+        double vy = vertices[3 * c + 1] - vertices[3 * a + 1];
+        double vz = vertices[3 * c + 2] - vertices[3 * a + 2];
+        return isZero(uy * vz - uz * vy) && isZero(uz * vx - ux * vz) && isZero(ux * vy - uy * vx);
+    }
+
+    /**
+     * Mixes three cell coordinates into a hash code
+     *
+     * @param x the first coordinate
+     * @param y the second coordinate
+     * @param z the third coordinate
+     * @return the hash code
+     */
+    private static int hash(long x, long y, long z) {
+        long h = x * 0x9E3779B97F4A7C15L ^ y * 0xC2B2AE3D27D4EB4FL ^ z * 0x165667B19E3779F9L;
+        return (int) (h ^ h >>> 29 ^ h >>> 47);
+    }
+
+    /**
+     * Table size for a number of entries - a power of two of at least twice the entries
+     *
+     * @param entries the maximal number of entries
+     * @return the table size
+     */
+    private static int tableSize(int entries) {
+        return Integer.highestOneBit(Math.max(2, entries) * 2 - 1) * 2;
+    }
+
+    /**
+     * Primitive spatial hash for vertex welding.
+     * The table maps a grid cell to the chain of the vertices in the cell, using open addressing.
+     */
+    private static final class VertexWelder {
+        /** The welding tolerance */
+        private final double epsilon;
+        /** The coordinates of the welded vertices */
+        private final double[] vertices;
+        /** The number of welded vertices */
+        private int count = 0;
+        /** The next vertex in the same cell, -1 at the end of the chain */
+        private final int[] next;
+        /** The cell coordinates of the table slots */
+        private final long[] cellX, cellY, cellZ;
+        /** The first vertex of the cell of each table slot plus one, zero for an empty slot */
+        private final int[] heads;
+        /** The mask of the table size */
+        private final int mask;
+
+        /**
+         * Constructs a welder
+         *
+         * @param maxVertices the maximal number of vertices
+         * @param epsilon     the welding tolerance
+         */
+        VertexWelder(int maxVertices, double epsilon) {
+            this.epsilon = epsilon;
+            vertices = new double[maxVertices * 3];
+            next = new int[maxVertices];
+            int size = tableSize(maxVertices);
+            mask = size - 1;
+            cellX = new long[size];
+            cellY = new long[size];
+            cellZ = new long[size];
+            heads = new int[size];
+        }
+
+        /**
+         * Calculates the cell of a coordinate
+         *
+         * @param coordinate the coordinate
+         * @return the cell index, or the coordinate bits for exact welding
+         */
+        private long cell(double coordinate) {
+            return epsilon > 0 ? (long) Math.floor(coordinate / epsilon) : Double.doubleToLongBits(coordinate + 0.0);
+        }
+
+        /**
+         * Finds the table slot of a cell, or the empty slot where it should be inserted
+         *
+         * @param x the cell X index
+         * @param y the cell Y index
+         * @param z the cell Z index
+         * @return the slot index
+         */
+        private int slot(long x, long y, long z) {
+            int slot = hash(x, y, z) & mask;
+            while (heads[slot] != 0 && (cellX[slot] != x || cellY[slot] != y || cellZ[slot] != z))
+                slot = (slot + 1) & mask;
+            return slot;
+        }
+
+        /**
+         * Finds a vertex of a cell within the tolerance of a point
+         *
+         * @param slot the table slot of the cell
+         * @param x    the point X coordinate
+         * @param y    the point Y coordinate
+         * @param z    the point Z coordinate
+         * @return the vertex index, or -1 if there is none
+         */
+        private int find(int slot, double x, double y, double z) {
+            for (int vertex = heads[slot] - 1; vertex >= 0; vertex = next[vertex])
+                if (Math.abs(vertices[3 * vertex] - x) <= epsilon
+                        && Math.abs(vertices[3 * vertex + 1] - y) <= epsilon
+                        && Math.abs(vertices[3 * vertex + 2] - z) <= epsilon)
+                    return vertex;
+            return -1;
+        }
+
+        /**
+         * Welds a point into the vertices
+         *
+         * @param x the point X coordinate
+         * @param y the point Y coordinate
+         * @param z the point Z coordinate
+         * @return the index of the existing vertex within the tolerance, or of a new vertex
+         */
+        int weld(double x, double y, double z) {
+            long cx = cell(x), cy = cell(y), cz = cell(z);
+            int home = slot(cx, cy, cz);
+            int found = find(home, x, y, z);
+            if (found >= 0)
+                return found;
+            if (epsilon > 0)
+                // A vertex within epsilon may lie in a neighbor cell
+                for (long dx = -1; dx <= 1; dx++)
+                    for (long dy = -1; dy <= 1; dy++)
+                        for (long dz = -1; dz <= 1; dz++)
+                            if ((dx | dy | dz) != 0) {
+                                int slot = slot(cx + dx, cy + dy, cz + dz);
+                                if (heads[slot] != 0 && (found = find(slot, x, y, z)) >= 0)
+                                    return found;
+                            }
+            int vertex = count++;
+            vertices[3 * vertex] = x;
+            vertices[3 * vertex + 1] = y;
+            vertices[3 * vertex + 2] = z;
+            if (heads[home] == 0) {
+                cellX[home] = cx;
+                cellY[home] = cy;
+                cellZ[home] = cz;
+            }
+            next[vertex] = heads[home] - 1;
+            heads[home] = vertex + 1;
+            return vertex;
+        }
+    }
+
+    /**
+     * Computes the neighbor triangles across the edges.
+     * An edge shared by more than two triangles links only the first two of them.
+     *
+     * @param indices the vertex indices of the triangles
+     * @return the neighbors array
+     */
+    private static int[] computeNeighbors(int[] indices) {
+        int[] neighbors = new int[indices.length];
+        Arrays.fill(neighbors, NO_NEIGHBOR);
+        int size = tableSize(indices.length);
+        int mask = size - 1;
+        long[] keys = new long[size];
+        // The first edge (triangle * 3 + edge) with the key plus one, zero for an empty slot, -1 for a linked edge
+        int[] edges = new int[size];
+        for (int edge = 0; edge < indices.length; edge++) {
+            int a = indices[edge];
+            int b = indices[edge % 3 == 2 ? edge - 2 : edge + 1];
+            long key = (long) Math.min(a, b) << 32 | Math.max(a, b);
+            int slot = hash(key, 0, 0) & mask;
+            while (edges[slot] != 0 && keys[slot] != key)
+                slot = (slot + 1) & mask;
+            if (edges[slot] == 0) {
+                keys[slot] = key;
+                edges[slot] = edge + 1;
+            } else if (edges[slot] > 0) {
+                int other = edges[slot] - 1;
+                neighbors[edge] = other / 3;
+                neighbors[other] = edge / 3;
+                edges[slot] = -1;
+            }
+        }
+        return neighbors;
+    }
+
+    /**
+     * Computes smooth vertex normals - the normalized sum of the (area weighted) normals of the triangles
+     * around every vertex
+     *
+     * @param vertices the vertex coordinates
+     * @param indices  the vertex indices of the triangles
+     * @return the vertex normals
+     */
+    private static double[] computeVertexNormals(Coordinates vertices, int[] indices) {
+        double[] normals = new double[vertices.length()];
+        for (int i = 0; i < indices.length; i += 3) {
+            int a = 3 * indices[i], b = 3 * indices[i + 1], c = 3 * indices[i + 2];
+            double ux = vertices.get(b) - vertices.get(a), uy = vertices.get(b + 1) - vertices.get(a + 1);
+            double uz = vertices.get(b + 2) - vertices.get(a + 2);
+            double vx = vertices.get(c) - vertices.get(a), vy = vertices.get(c + 1) - vertices.get(a + 1);
+            double vz = vertices.get(c + 2) - vertices.get(a + 2);
+            double nx = uy * vz - uz * vy, ny = uz * vx - ux * vz, nz = ux * vy - uy * vx;
+            accumulate(normals, a, nx, ny, nz);
+            accumulate(normals, b, nx, ny, nz);
+            accumulate(normals, c, nx, ny, nz);
+        }
+        for (int i = 0; i < normals.length; i += 3) {
+            double length = Math.sqrt(normals[i] * normals[i] + normals[i + 1] * normals[i + 1]
+                    + normals[i + 2] * normals[i + 2]);
+            if (!isZero(length)) {
+                normals[i] /= length;
+                normals[i + 1] /= length;
+                normals[i + 2] /= length;
+            }
+        }
+        return normals;
+    }
+
+    /**
+     * Adds a vector to a triple of an array
+     *
+     * @param array  the array
+     * @param offset the offset of the triple
+     * @param x      the X coordinate to add
+     * @param y      the Y coordinate to add
+     * @param z      the Z coordinate to add
+     */
+    private static void accumulate(double[] array, int offset, double x, double y, double z) {
+        array[offset] += x;
+        array[offset + 1] += y;
+        array[offset + 2] += z;
+    }
+
+    /**
+     * Computes the bounding boxes of the triangles
+     *
+     * @param vertices the vertex coordinates
+     * @param indices  the vertex indices of the triangles
+     * @return the bounds of the triangles - minX, minY, minZ, maxX, maxY, maxZ of each triangle
+     */
+    private static double[] computeTriangleBounds(Coordinates vertices, Indices indices) {
+        double[] bounds = new double[2 * indices.length()];
+        IntStream.range(0, indices.length() / 3).parallel().forEach(triangle -> {
+            for (int axis = 0; axis < 3; ++axis) {
+                double a = vertices.get(3 * indices.get(3 * triangle) + axis);
+                double b = vertices.get(3 * indices.get(3 * triangle + 1) + axis);
+                double c = vertices.get(3 * indices.get(3 * triangle + 2) + axis);
+                bounds[6 * triangle + axis] = Math.min(a, Math.min(b, c));
+                bounds[6 * triangle + axis + 3] = Math.max(a, Math.max(b, c));
+            }
+        });
+        return bounds;
+    }
+
+    /**
+     * Returns the number of the (distinct) vertices of the mesh
+     *
+     * @return the vertices count
+     */
+    public int getVertexCount() {
+        return vertices.length() / 3;
+    }
+
+    /**
+     * Returns the number of the triangles of the mesh
+     *
+     * @return the triangles count
+     */
+    public int getTriangleCount() {
+        return indices.length() / 3;
+    }
+
+    /**
+     * Returns a vertex of the mesh
+     *
+     * @param vertex the vertex index
+     * @return the vertex point
+     */
+    public Point getVertex(int vertex) {
+        return new Point(vertices.get(3 * vertex), vertices.get(3 * vertex + 1), vertices.get(3 * vertex + 2));
+    }
+
+    /**
+     * Returns the index of a vertex of a triangle
+     *
+     * @param triangle the triangle index
+     * @param corner   the corner of the triangle, 0..2
+     * @return the vertex index
+     */
+    public int getVertexIndex(int triangle, int corner) {
+        return indices.get(3 * triangle + corner);
+    }
+
+    /**
+     * Returns the neighbor of a triangle across one of its edges
+     *
+     * @param triangle the triangle index
+     * @param edge     the edge from corner {@code edge} to corner {@code edge + 1} (modulo 3)
+     * @return the neighbor triangle index, or {@link #NO_NEIGHBOR} if the edge is on the boundary
+     */
+    public int getNeighbor(int triangle, int edge) {
+        return neighbors.get(3 * triangle + edge);
+    }
+
+    /**
+     * Returns the smooth normal of a vertex
+     *
+     * @param vertex the vertex index
+     * @return the vertex normal, or {@code null} if the mesh is flat shaded
+     */
+    public Vector getVertexNormal(int vertex) {
+        return vertexNormals == null ? null
+                : new Vector(vertexNormals.get(3 * vertex), vertexNormals.get(3 * vertex + 1),
+                vertexNormals.get(3 * vertex + 2));
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return box;
+    }
+
+    /**
+     * Calculates the normal of a triangle at a point given by its barycentric coordinates
+     *
+     * @param triangle the triangle index
+     * @param u        the weight of the second vertex
+     * @param v        the weight of the third vertex
+     * @return the unit normal - interpolated from the vertex normals for smooth shading, the face normal otherwise
+     */
+    private Vector normal(int triangle, double u, double v) {
+        int a = 3 * indices.get(3 * triangle), b = 3 * indices.get(3 * triangle + 1), c = 3 * indices.get(3 * triangle + 2);
+        if (vertexNormals != null) {
+            double w = 1 - u - v;
+            double nx = w * vertexNormals.get(a) + u * vertexNormals.get(b) + v * vertexNormals.get(c);
+            double ny = w * vertexNormals.get(a + 1) + u * vertexNormals.get(b + 1) + v * vertexNormals.get(c + 1);
+            double nz = w * vertexNormals.get(a + 2) + u * vertexNormals.get(b + 2) + v * vertexNormals.get(c + 2);
+            if (!(isZero(nx) && isZero(ny) && isZero(nz)))
+                return new Vector(nx, ny, nz).normalize();
+        }
+        double ux = vertices.get(b) - vertices.get(a), uy = vertices.get(b + 1) - vertices.get(a + 1);
+        double uz = vertices.get(b + 2) - vertices.get(a + 2);
+        double vx = vertices.get(c) - vertices.get(a), vy = vertices.get(c + 1) - vertices.get(a + 1);
+        double vz = vertices.get(c + 2) - vertices.get(a + 2);
+        return new Vector(uy * vz - uz * vy, uz * vx - ux * vz, ux * vy - uy * vx).normalize();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The normal is of the triangle nearest to the point, where the point is projected on its plane.
+     * Intersections found by the mesh already carry their normals, so this search is rarely needed.
+     * </p>
+     */
+    @Override
+    public Vector getNormal(Point point) {
+        return getNormal(point, new double[1]);
+    }
+
+    /**
+     * Finds the normal of the triangle nearest to a point, see {@link #getNormal(Point)}
+     *
+     * @param point    the point
+     * @param nearest an array to store the squared distance from the point to the nearest triangle in
+     * @return the normal at the projection of the point on the nearest triangle
+     */
+    Vector getNormal(Point point, double[] nearest) {
+        double px = point.getX(), py = point.getY(), pz = point.getZ();
+        int best = 0;
+        double bestU = 0, bestV = 0, bestDistance = Double.POSITIVE_INFINITY;
+        for (int triangle = 0; triangle < indices.length() / 3; triangle++) {
+            int a = 3 * indices.get(3 * triangle), b = 3 * indices.get(3 * triangle + 1), c = 3 * indices.get(3 * triangle + 2);
+            double ux = vertices.get(b) - vertices.get(a), uy = vertices.get(b + 1) - vertices.get(a + 1);
+            double uz = vertices.get(b + 2) - vertices.get(a + 2);
+            double vx = vertices.get(c) - vertices.get(a), vy = vertices.get(c + 1) - vertices.get(a + 1);
+            double vz = vertices.get(c + 2) - vertices.get(a + 2);
+            double wx = px - vertices.get(a), wy = py - vertices.get(a + 1), wz = pz - vertices.get(a + 2);
+            double uu = ux * ux + uy * uy + uz * uz, uv = ux * vx + uy * vy + uz * vz, vv = vx * vx + vy * vy + vz * vz;
+            double wu = wx * ux + wy * uy + wz * uz, wv = wx * vx + wy * vy + wz * vz;
+            double denominator = uu * vv - uv * uv;
+            double u = Math.min(1, Math.max(0, (vv * wu - uv * wv) / denominator));
+            double v = Math.min(1 - u, Math.max(0, (uu * wv - uv * wu) / denominator));
+            // Distance from the point to the nearest point of the triangle found by the clamped coordinates
+            double dx = wx - u * ux - v * vx, dy = wy - u * uy - v * vy, dz = wz - u * uz - v * vz;
+            double distance = dx * dx + dy * dy + dz * dz;
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = triangle;
+                bestU = u;
+                bestV = v;
+            }
+        }
+        nearest[0] = bestDistance;
+        return normal(best, bestU, bestV);
+    }
+
+    /**
+     * Intersects a ray with a triangle of the mesh (Moller-Trumbore: the barycentric coordinates and the distance
+     * are found by Cramer's rule)
+     *
+     * @param triangle    the triangle index
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the ray's head
+     * @param barycentric array to receive the barycentric coordinates (weights of the second and third vertices)
+     *                    of the hit, or {@code null}
+     * @return the distance of the hit, or {@link Double#NaN} if the ray misses the triangle within the distance
+     */
+    private double intersect(int triangle, Ray ray, double maxDistance, double[] barycentric) {
+        Point head = ray.getHead();
+        Vector direction = ray.getDirection();
+        double dx = direction.getX(), dy = direction.getY(), dz = direction.getZ();
+        int a = 3 * indices.get(3 * triangle), b = 3 * indices.get(3 * triangle + 1), c = 3 * indices.get(3 * triangle + 2);
+        double ax = vertices.get(a), ay = vertices.get(a + 1), az = vertices.get(a + 2);
+        double e1x = vertices.get(b) - ax, e1y = vertices.get(b + 1) - ay, e1z = vertices.get(b + 2) - az;
+        double e2x = vertices.get(c) - ax, e2y = vertices.get(c + 1) - ay, e2z = vertices.get(c + 2) - az;
+        double px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z, pz = dx * e2y - dy * e2x;
+        double determinant = e1x * px + e1y * py + e1z * pz;
+        if (isZero(determinant))
+            return Double.NaN;
+        double inverse = 1 / determinant;
+        double tx = head.getX() - ax, ty = head.getY() - ay, tz = head.getZ() - az;
+        double u = alignZero((tx * px + ty * py + tz * pz) * inverse);
+        if (u <= 0 || u >= 1)
+            return Double.NaN;
+        double qx = ty * e1z - tz * e1y, qy = tz * e1x - tx * e1z, qz = tx * e1y - ty * e1x;
+        double v = alignZero((dx * qx + dy * qy + dz * qz) * inverse);
+        if (v <= 0 || alignZero(u + v - 1) >= 0)
+            return Double.NaN;
+        double t = alignZero((e2x * qx + e2y * qy + e2z * qz) * inverse);
+        if (t <= 0 || alignZero(t - maxDistance) >= 0)
+            return Double.NaN;
+        if (barycentric != null) {
+            barycentric[0] = u;
+            barycentric[1] = v;
+        }
+        return t;
+    }
+
+    /**
+     * Constructs the intersection of a ray with a triangle of the mesh, with its normal set
+     *
+     * @param triangle the triangle index
+     * @param ray      the ray
+     * @param distance the distance of the hit
+     * @param u        the weight of the second vertex
+     * @param v        the weight of the third vertex
+     * @return the intersection
+     */
+    private Intersection intersection(int triangle, Ray ray, double distance, double u, double v) {
+        Intersection intersection = new Intersection(this, ray.getPoint(distance));
+        intersection.normal = normal(triangle, u, v);
+        return intersection;
+    }
+
+    @Override
+    protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
+        List<Intersection> result = new LinkedList<>();
+        double[] barycentric = new double[2];
+        nodes.traverse(ray, maxDistance, (triangle, distance) -> {
+            double t = intersect(triangle, ray, distance, barycentric);
+            if (!Double.isNaN(t))
+                result.add(intersection(triangle, ray, t, barycentric[0], barycentric[1]));
+            return distance;
+        });
+        return result.isEmpty() ? null : result;
+    }
+
+    @Override
+    protected Intersection calculateClosestIntersectionHelper(Ray ray, double maxDistance) {
+        double[] closest = {Double.NaN, 0, 0, 0};
+        double[] barycentric = new double[2];
+        nodes.traverse(ray, maxDistance, (triangle, distance) -> {
+            double t = intersect(triangle, ray, distance, barycentric);
+            if (Double.isNaN(t))
+                return distance;
+            closest[0] = t;
+            closest[1] = triangle;
+            closest[2] = barycentric[0];
+            closest[3] = barycentric[1];
+            return t;
+        });
+        return Double.isNaN(closest[0]) ? null
+                : intersection((int) closest[1], ray, closest[0], closest[2], closest[3]);
+    }
+}
@@ -4,6 +4,7 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Util;
 import primitives.Vector;
+import primitives.VectorMath;
 
 import java.util.LinkedList;
 import java.util.List;
@@ -44,25 +45,29 @@ public class Tube extends RadialGeometry {
 
         Vector rayDirection = ray.getDirection();
         Vector axisDirection = axis.getDirection();
+        double ax = axisDirection.getX(), ay = axisDirection.getY(), az = axisDirection.getZ();
 
         double dirV = rayDirection.dotProduct(axisDirection);
 
-        if (rayHead.equals(tubeHead)) {
+        // deltaP - the vector from the axis head to the ray head
+        double px = rayHead.getX() - tubeHead.getX(), py = rayHead.getY() - tubeHead.getY(), pz = rayHead.getZ() - tubeHead.getZ();
+        if (VectorMath.isZero(px, py, pz)) {
             if (Util.isZero(dirV))
                 return Util.alignZero(radius - maxDistance) < 0 ? List.of(new Intersection(this, ray.getPoint(radius))) : null;
 
-            if (rayDirection.equals(axisDirection.scale(dirV)))
+            // The component of the ray direction orthogonal to the axis
+            double ox = rayDirection.getX() - ax * dirV, oy = rayDirection.getY() - ay * dirV, oz = rayDirection.getZ() - az * dirV;
+            if (VectorMath.isZero(ox, oy, oz))
                 return null;
-            double t = radius / rayDirection.subtract(axisDirection.scale(dirV)).length();
+            double t = radius / Math.sqrt(VectorMath.lengthSquared(ox, oy, oz));
             return Util.alignZero(t - maxDistance) < 0 ? List.of(new Intersection(this, ray.getPoint(t))) : null;
         }
 
-        Vector deltaP = ray.getHead().subtract(tubeHead);
-        double dpV = deltaP.dotProduct(axisDirection);
+        double dpV = VectorMath.dot(px, py, pz, ax, ay, az);
 
         double a = 1 - dirV * dirV;
-        double b = 2 * (rayDirection.dotProduct(deltaP) - dirV * dpV);
-        double c = deltaP.lengthSquared() - dpV * dpV - radius * radius;
+        double b = 2 * (VectorMath.dot(rayDirection, px, py, pz) - dirV * dpV);
+        double c = VectorMath.lengthSquared(px, py, pz) - dpV * dpV - radius * radius;
 
         if (Util.isZero(a)) {
             if (Util.isZero(b))
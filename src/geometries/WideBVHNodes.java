@@ -0,0 +1,360 @@
+package geometries;
+
+import primitives.BoundingBox;
+import primitives.Point;
+import primitives.Ray;
+
+import java.util.Arrays;
+
+/**
+ * Wide (4 or 8-ary) bounding volume hierarchy, collapsed from a binary {@link BVHNodes} hierarchy.
+ * <p>
+ * Every wide node holds up to {@code width} child slots. The bounds of the children of a node are stored
+ * together, structure of arrays style - all the minimal X coordinates of the children, then all
+ * the minimal Y coordinates, and so on - in one {@code float[]}, so a node visit tests all its children
+ * by a single scan of a few adjacent cache lines. The floats are rounded outwards, so a child's bounds
+ * always contain the exact double bounds. The nodes are laid out in depth-first order.
+ * </p>
+ * <p>
+ * The hierarchy shares the primitives order of its binary hierarchy, and {@link #refit()} reloads
+ * the bounds after the binary hierarchy is refitted.
+ * </p>
+ */
+final class WideBVHNodes {
+    /**
+     * The default number of child slots of a node
+     */
+    static final int DEFAULT_WIDTH = 4;
+
+    /**
+     * Initial size of the traversal stack, which grows for deeper hierarchies
+     */
+    private static final int STACK_SIZE = 64;
+
+    /**
+     * Marker of an unused child slot in the counts array
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     * The binary hierarchy which this one is collapsed from
+     */
+    private final BVHNodes binary;
+
+    /**
+     * The number of child slots of a node
+     */
+    private final int width;
+
+    /**
+     * The bounds of the child slots - for every node six groups of {@code width} floats: minimal X,
+     * minimal Y, minimal Z, maximal X, maximal Y and maximal Z of the children
+     */
+    private final float[] bounds;
+
+    /**
+     * The wide node of an inner child slot, or the first position in the order array of a leaf slot
+     */
+    private final int[] links;
+
+    /**
+     * The number of primitives of a leaf slot, zero for an inner slot and {@link #EMPTY} for an unused one.
+     * The unused slots of a node follow the used ones.
+     */
+    private final int[] counts;
+
+    /**
+     * The binary node whose bounds every child slot holds
+     */
+    private final int[] sources;
+
+    /**
+     * The number of nodes
+     */
+    final int size;
+
+    /**
+     * Collapses a binary hierarchy
+     *
+     * @param binary the binary hierarchy
+     * @param width  the number of child slots of a node, between 2 and 8
+     * @throws IllegalArgumentException if the width is out of range
+     */
+    WideBVHNodes(BVHNodes binary, int width) {
+        if (width < 2 || width > 8)
+            throw new IllegalArgumentException("Hierarchy width must be between 2 and 8");
+        this.binary = binary;
+        this.width = width;
+        // A wide node holds at least two binary nodes, so there are fewer wide nodes than binary ones
+        int capacity = Math.max(1, binary.size);
+        Collapser collapser = new Collapser(capacity);
+        if (binary.size > 0)
+            collapser.collapse(0);
+        size = collapser.size;
+        bounds = Arrays.copyOf(collapser.bounds, 6 * width * size);
+        links = Arrays.copyOf(collapser.links, width * size);
+        counts = Arrays.copyOf(collapser.counts, width * size);
+        sources = Arrays.copyOf(collapser.sources, width * size);
+        refit();
+    }
+
+    /**
+     * Reloads the bounds of the child slots from the binary hierarchy, after it was refitted
+     */
+    void refit() {
+        double[] binaryBounds = binary.bounds;
+        for (int slot = 0; slot < counts.length; ++slot) {
+            int b = 6 * width * (slot / width) + slot % width;
+            if (counts[slot] == EMPTY) {
+                for (int i = 0; i < 3; ++i) {
+                    bounds[b + i * width] = Float.POSITIVE_INFINITY;
+                    bounds[b + (i + 3) * width] = Float.NEGATIVE_INFINITY;
+                }
+                continue;
+            }
+            int source = 6 * sources[slot];
+            for (int i = 0; i < 3; ++i) {
+                bounds[b + i * width] = roundDown(binaryBounds[source + i]);
+                bounds[b + (i + 3) * width] = roundUp(binaryBounds[source + i + 3]);
+            }
+        }
+    }
+
+    /**
+     * Returns the bounding box of the hierarchy
+     *
+     * @return the exact bounding box of the root, or {@code null} for an empty hierarchy
+     */
+    BoundingBox getBoundingBox() {
+        return binary.getBoundingBox();
+    }
+
+    /**
+     * Returns the binary hierarchy which this one is collapsed from
+     *
+     * @return the binary hierarchy
+     */
+    BVHNodes binary() {
+        return binary;
+    }
+
+    /**
+     * Returns the primitive indices in the order of the leaves, shared with the binary hierarchy
+     *
+     * @return the order array
+     */
+    int[] order() {
+        return binary.order;
+    }
+
+    /**
+     * Returns the memory footprint of the hierarchy, including its binary hierarchy
+     *
+     * @return the size of the arrays in bytes
+     */
+    long footprint() {
+        return (long) bounds.length * Float.BYTES
+                + ((long) links.length + counts.length + sources.length) * Integer.BYTES + binary.footprint();
+    }
+
+    /**
+     * Rounds a double to the largest float which isn't greater than it
+     *
+     * @param value the double value
+     * @return the float value
+     */
+    static float roundDown(double value) {
+        float rounded = (float) value;
+        return rounded > value ? Math.nextDown(rounded) : rounded;
+    }
+
+    /**
+     * Rounds a double to the smallest float which isn't less than it
+     *
+     * @param value the double value
+     * @return the float value
+     */
+    static float roundUp(double value) {
+        float rounded = (float) value;
+        return rounded < value ? Math.nextUp(rounded) : rounded;
+    }
+
+    /**
+     * Traverses the child slots which a ray passes through within a distance, nearer children first,
+     * skipping the children beyond the maximal distance returned by the visitor
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the ray's head
+     * @param visitor     the visitor of the primitives of the reached leaves
+     */
+    void traverse(Ray ray, double maxDistance, BVHNodes.Visitor visitor) {
+        if (size == 0)
+            return;
+        Point head = ray.getHead();
+        Ray.InverseDirection inverse = ray.getInverseDirection();
+        double x = head.getX(), y = head.getY(), z = head.getZ();
+        double inverseX = inverse.x(), inverseY = inverse.y(), inverseZ = inverse.z();
+        int[] order = binary.order;
+        // The groups of the near and the far planes of the children along each axis, by the ray's direction
+        int signs = inverse.signs();
+        int nearX = (signs & Ray.InverseDirection.NEGATIVE_X) != 0 ? 3 * width : 0, farX = 3 * width - nearX;
+        int nearY = ((signs & Ray.InverseDirection.NEGATIVE_Y) != 0 ? 4 : 1) * width, farY = 5 * width - nearY;
+        int nearZ = ((signs & Ray.InverseDirection.NEGATIVE_Z) != 0 ? 5 : 2) * width, farZ = 7 * width - nearZ;
+
+        int[] slotStack = new int[STACK_SIZE];
+        double[] entryStack = new double[STACK_SIZE];
+        int[] hitSlots = new int[width];
+        double[] hitEntries = new double[width];
+        int top = 0;
+        int node = 0;
+        while (true) {
+            // Test all the children by the slab test (see BoundingBox#entryDistance),
+            // sorted by their entry distance from the farthest to the nearest
+            int hits = 0;
+            int first = width * node, b = 6 * first;
+            for (int c = 0; c < width && counts[first + c] != EMPTY; ++c) {
+                double entry = 0, exit = maxDistance;
+                // NaN (a ray parallel to a slab starting on its boundary) leaves the interval unchanged
+                double near = (bounds[b + nearX + c] - x) * inverseX;
+                double far = (bounds[b + farX + c] - x) * inverseX * BoundingBox.ROUNDING_FACTOR;
+                entry = near > entry ? near : entry;
+                exit = far < exit ? far : exit;
+                near = (bounds[b + nearY + c] - y) * inverseY;
+                far = (bounds[b + farY + c] - y) * inverseY * BoundingBox.ROUNDING_FACTOR;
+                entry = near > entry ? near : entry;
+                exit = far < exit ? far : exit;
+                near = (bounds[b + nearZ + c] - z) * inverseZ;
+                far = (bounds[b + farZ + c] - z) * inverseZ * BoundingBox.ROUNDING_FACTOR;
+                entry = near > entry ? near : entry;
+                exit = far < exit ? far : exit;
+                if (entry > exit)
+                    continue;
+                int i = hits++;
+                for (; i > 0 && hitEntries[i - 1] < entry; --i) {
+                    hitSlots[i] = hitSlots[i - 1];
+                    hitEntries[i] = hitEntries[i - 1];
+                }
+                hitSlots[i] = first + c;
+                hitEntries[i] = entry;
+            }
+            // Push the farthest first, so the nearest is popped first
+            if (top + hits > slotStack.length) {
+                slotStack = Arrays.copyOf(slotStack, 2 * (top + hits));
+                entryStack = Arrays.copyOf(entryStack, 2 * (top + hits));
+            }
+            for (int i = 0; i < hits; ++i) {
+                slotStack[top] = hitSlots[i];
+                entryStack[top++] = hitEntries[i];
+            }
+            // Visit the next pushed leaves and continue with the next pushed inner node,
+            // skipping the children beyond a hit found meanwhile
+            while (true) {
+                if (top == 0)
+                    return;
+                int slot = slotStack[--top];
+                if (entryStack[top] > maxDistance)
+                    continue;
+                if (counts[slot] == 0) {
+                    node = links[slot];
+                    break;
+                }
+                for (int i = links[slot], end = i + counts[slot]; i < end; ++i)
+                    maxDistance = visitor.visit(order[i], maxDistance);
+            }
+        }
+    }
+
+    /**
+     * Collapser of the binary hierarchy into wide nodes
+     */
+    private final class Collapser {
+        /** The bounds of the child slots (filled by the refit) */
+        private final float[] bounds;
+        /** The wide nodes of the inner slots and the first positions of the leaf slots */
+        private final int[] links;
+        /** The primitives counts of the slots */
+        private final int[] counts;
+        /** The binary nodes of the slots */
+        private final int[] sources;
+        /** The number of collapsed nodes */
+        private int size = 0;
+
+        /**
+         * Prepares the collapser
+         *
+         * @param capacity the maximal number of wide nodes
+         */
+        Collapser(int capacity) {
+            bounds = new float[6 * width * capacity];
+            links = new int[width * capacity];
+            counts = new int[width * capacity];
+            sources = new int[width * capacity];
+        }
+
+        /**
+         * Collapses the subtree of a binary node into a wide node, followed by the wide nodes of its subtrees
+         *
+         * @param binaryNode the binary node
+         * @return the wide node
+         */
+        int collapse(int binaryNode) {
+            int node = size++;
+            int[] children = new int[width];
+            int count;
+            if (binary.counts[binaryNode] > 0) {
+                children[0] = binaryNode;
+                count = 1;
+            } else {
+                children[0] = binaryNode + 1;
+                children[1] = binary.links[binaryNode];
+                count = 2;
+            }
+            // Open the largest inner child until the node is full, keeping the depth-first order of the children
+            while (count < width) {
+                int largest = -1;
+                double largestArea = -1;
+                for (int c = 0; c < count; ++c)
+                    if (binary.counts[children[c]] == 0 && area(children[c]) > largestArea) {
+                        largest = c;
+                        largestArea = area(children[c]);
+                    }
+                if (largest < 0)
+                    break;
+                int opened = children[largest];
+                System.arraycopy(children, largest + 1, children, largest + 2, count - largest - 1);
+                children[largest] = opened + 1;
+                children[largest + 1] = binary.links[opened];
+                ++count;
+            }
+
+            int first = width * node;
+            for (int c = 0; c < width; ++c) {
+                int slot = first + c;
+                if (c >= count) {
+                    counts[slot] = EMPTY;
+                    continue;
+                }
+                int child = children[c];
+                sources[slot] = child;
+                counts[slot] = binary.counts[child];
+                links[slot] = binary.counts[child] > 0 ? binary.links[child] : collapse(child);
+            }
+            return node;
+        }
+
+        /**
+         * Calculates half the surface area of a binary node
+         *
+         * @param binaryNode the binary node
+         * @return half the surface area
+         */
+        private double area(int binaryNode) {
+            double[] nodeBounds = binary.bounds;
+            int b = 6 * binaryNode;
+            double dx = nodeBounds[b + 3] - nodeBounds[b];
+            double dy = nodeBounds[b + 4] - nodeBounds[b + 1];
+            double dz = nodeBounds[b + 5] - nodeBounds[b + 2];
+            return dx * dy + dy * dz + dz * dx;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package primitives;
+
+import java.util.List;
+
+/**
+ * Axis-aligned bounding box in 3D space.
+ * <p>
+ * The box is immutable and is defined by its minimal and maximal coordinates along each axis.
+ * It is used for quick rejection of rays which can't hit a geometry, before its exact intersection test.
+ * </p>
+ */
+public final class BoundingBox {
+    /**
+     * Relative enlargement of the far distance in the slab test, which compensates for the rounding errors
+     * of the test so that rays hitting the box exactly on its boundary are never rejected
+     */
+    public static final double ROUNDING_FACTOR = 1 + 4 * Math.ulp(1.0);
+
+    /** Minimal X coordinate of the box */
+    public final double minX;
+    /** Minimal Y coordinate of the box */
+    public final double minY;
+    /** Minimal Z coordinate of the box */
+    public final double minZ;
+    /** Maximal X coordinate of the box */
+    public final double maxX;
+    /** Maximal Y coordinate of the box */
+    public final double maxY;
+    /** Maximal Z coordinate of the box */
+    public final double maxZ;
+
+    /**
+     * Constructs a bounding box from its minimal and maximal coordinates
+     *
+     * @param minX minimal X coordinate
+     * @param minY minimal Y coordinate
+     * @param minZ minimal Z coordinate
+     * @param maxX maximal X coordinate
+     * @param maxY maximal Y coordinate
+     * @param maxZ maximal Z coordinate
+     * @throws IllegalArgumentException if a minimal coordinate is greater than the maximal one
+     */
+    public BoundingBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        if (minX > maxX || minY > maxY || minZ > maxZ)
+            throw new IllegalArgumentException("Minimal coordinates of a bounding box must not exceed maximal ones");
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+    }
+
+    /**
+     * Constructs the smallest bounding box containing all the given points
+     *
+     * @param points the points to bound
+     * @return the bounding box of the points
+     * @throws IllegalArgumentException if there are no points
+     */
+    public static BoundingBox of(List<Point> points) {
+        if (points.isEmpty())
+            throw new IllegalArgumentException("Can't bound an empty set of points");
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (Point point : points) {
+            minX = Math.min(minX, point.getX());
+            minY = Math.min(minY, point.getY());
+            minZ = Math.min(minZ, point.getZ());
+            maxX = Math.max(maxX, point.getX());
+            maxY = Math.max(maxY, point.getY());
+            maxZ = Math.max(maxZ, point.getZ());
+        }
+        return new BoundingBox(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Constructs the smallest bounding box containing both this box and another one
+     *
+     * @param other the other box
+     * @return the union box
+     */
+    public BoundingBox union(BoundingBox other) {
+        return new BoundingBox(Math.min(minX, other.minX), Math.min(minY, other.minY), Math.min(minZ, other.minZ),
+                Math.max(maxX, other.maxX), Math.max(maxY, other.maxY), Math.max(maxZ, other.maxZ));
+    }
+
+    /**
+     * Checks whether a ray hits the box within a given distance from its head (slab test)
+     *
+     * @param ray         the ray to check
+     * @param maxDistance the maximum distance from the ray's head
+     * @return true if the ray segment from its head up to the distance passes through the box
+     */
+    public boolean intersects(Ray ray, double maxDistance) {
+        return entryDistance(ray, maxDistance) != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Calculates the distance at which a ray enters the box (slab test)
+     *
+     * @param ray         the ray to check
+     * @param maxDistance the maximum distance from the ray's head
+     * @return the entry distance (zero if the head is inside the box),
+     * or {@link Double#POSITIVE_INFINITY} if the ray segment misses the box
+     */
+    public double entryDistance(Ray ray, double maxDistance) {
+        Point head = ray.getHead();
+        Ray.InverseDirection inverse = ray.getInverseDirection();
+        int signs = inverse.signs();
+        boolean negativeX = (signs & Ray.InverseDirection.NEGATIVE_X) != 0;
+        boolean negativeY = (signs & Ray.InverseDirection.NEGATIVE_Y) != 0;
+        boolean negativeZ = (signs & Ray.InverseDirection.NEGATIVE_Z) != 0;
+        return entryDistance(negativeX ? maxX : minX, negativeY ? maxY : minY, negativeZ ? maxZ : minZ,
+                negativeX ? minX : maxX, negativeY ? minY : maxY, negativeZ ? minZ : maxZ,
+                head.getX(), head.getY(), head.getZ(), inverse.x(), inverse.y(), inverse.z(), maxDistance);
+    }
+
+    /**
+     * Calculates the distance at which a ray enters a box given by its raw coordinates (slab test).
+     * The ray is given by its head and its {@link Ray#getInverseDirection() inverse direction}, and the box
+     * by its planes ordered by the signs of the inverse direction - the planes which the ray reaches first
+     * along each axis, and the planes it reaches last - so the test takes no divisions nor comparisons
+     * of the ray's direction.
+     *
+     * @param nearX       X coordinate of the box plane reached first along the X axis
+     * @param nearY       Y coordinate of the box plane reached first along the Y axis
+     * @param nearZ       Z coordinate of the box plane reached first along the Z axis
+     * @param farX        X coordinate of the box plane reached last along the X axis
+     * @param farY        Y coordinate of the box plane reached last along the Y axis
+     * @param farZ        Z coordinate of the box plane reached last along the Z axis
+     * @param headX       X coordinate of the ray's head
+     * @param headY       Y coordinate of the ray's head
+     * @param headZ       Z coordinate of the ray's head
+     * @param inverseX    inverse of the X coordinate of the ray's direction
+     * @param inverseY    inverse of the Y coordinate of the ray's direction
+     * @param inverseZ    inverse of the Z coordinate of the ray's direction
+     * @param maxDistance the maximum distance from the ray's head
+     * @return the entry distance (zero if the head is inside the box),
+     * or {@link Double#POSITIVE_INFINITY} if the ray segment misses the box
+     */
+    public static double entryDistance(double nearX, double nearY, double nearZ, double farX, double farY, double farZ,
+                                       double headX, double headY, double headZ,
+                                       double inverseX, double inverseY, double inverseZ, double maxDistance) {
+        double tMin = 0;
+        double tMax = maxDistance;
+
+        double tNear = (nearX - headX) * inverseX;
+        double tFar = (farX - headX) * inverseX * ROUNDING_FACTOR;
+        // NaN (a ray parallel to the slab starting on its boundary) leaves the interval unchanged
+        if (tNear > tMin) tMin = tNear;
+        if (tFar < tMax) tMax = tFar;
+        if (tMin > tMax) return Double.POSITIVE_INFINITY;
+
+        tNear = (nearY - headY) * inverseY;
+        tFar = (farY - headY) * inverseY * ROUNDING_FACTOR;
+        if (tNear > tMin) tMin = tNear;
+        if (tFar < tMax) tMax = tFar;
+        if (tMin > tMax) return Double.POSITIVE_INFINITY;
+
+        tNear = (nearZ - headZ) * inverseZ;
+        tFar = (farZ - headZ) * inverseZ * ROUNDING_FACTOR;
+        if (tNear > tMin) tMin = tNear;
+        if (tFar < tMax) tMax = tFar;
+        return tMin <= tMax ? tMin : Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        return obj instanceof BoundingBox other
+                && minX == other.minX && minY == other.minY && minZ == other.minZ
+                && maxX == other.maxX && maxY == other.maxY && maxZ == other.maxZ;
+    }
+
+    @Override
+    public int hashCode() {
+        return Double.hashCode(minX + minY + minZ + maxX + maxY + maxZ);
+    }
+
+    @Override
+    public String toString() {
+        return "Box: (" + minX + "," + minY + "," + minZ + ") - (" + maxX + "," + maxY + "," + maxZ + ")";
+    }
+}
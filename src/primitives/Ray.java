@@ -26,6 +26,29 @@ public class Ray {
      */
     private static final double DELTA = 0.1;
 
+    /**
+     * The inverse of a ray's direction coordinates and their signs, used by the slab tests of bounding boxes.
+     * A zero coordinate has an infinite inverse, whose sign is the sign of the zero.
+     *
+     * @param x     inverse of the X coordinate of the direction
+     * @param y     inverse of the Y coordinate of the direction
+     * @param z     inverse of the Z coordinate of the direction
+     * @param signs bits of the negative inverses - {@link #NEGATIVE_X}, {@link #NEGATIVE_Y} and {@link #NEGATIVE_Z}
+     */
+    public record InverseDirection(double x, double y, double z, int signs) {
+        /** Sign bit of a negative X inverse */
+        public static final int NEGATIVE_X = 1;
+        /** Sign bit of a negative Y inverse */
+        public static final int NEGATIVE_Y = 2;
+        /** Sign bit of a negative Z inverse */
+        public static final int NEGATIVE_Z = 4;
+    }
+
+    /**
+     * The inverse direction, computed by the first box test of the ray
+     */
+    private InverseDirection inverseDirection = null;
+
     /**
      * Constructs a ray with a starting point and a direction.
      *
@@ -52,11 +75,62 @@ public class Ray {
      */
     public Ray(Point head, Vector direction, Vector normal) {
         this.direction = direction.normalize();
+        this.head = offsetHead(head, direction, normal);
+    }
+
+    /**
+     * Constructs a ray whose direction is already a unit vector, without normalizing it.
+     *
+     * @param head      the starting point of the ray
+     * @param direction the unit direction of the ray
+     * @param tag       distinguishes the constructor from the normalizing one
+     */
+    private Ray(Point head, Vector direction, Void tag) {
+        this.head = head;
+        this.direction = direction;
+    }
+
+    /**
+     * Creates a ray whose direction is known to be a unit vector (e.g. a light direction, or a direction
+     * reflected from a unit vector), skipping the normalization.
+     * The invariant is verified only when assertions are enabled.
+     *
+     * @param head      the starting point of the ray
+     * @param direction the unit direction of the ray
+     * @return the ray
+     */
+    public static Ray ofUnit(Point head, Vector direction) {
+        assert direction.isUnit() : "ERROR: the ray direction " + direction + " is not a unit vector";
+        return new Ray(head, direction, (Void) null);
+    }
+
+    /**
+     * Creates a ray whose direction is known to be a unit vector, offset along a surface normal
+     * like {@link #Ray(Point, Vector, Vector)}, skipping the normalization.
+     * The invariant is verified only when assertions are enabled.
+     *
+     * @param head      the original starting point of the ray (before offset)
+     * @param direction the unit direction of the ray
+     * @param normal    the surface normal at the point of origin
+     * @return the ray
+     */
+    public static Ray ofUnit(Point head, Vector direction, Vector normal) {
+        return ofUnit(offsetHead(head, direction, normal), direction);
+    }
+
+    /**
+     * Offsets a ray's head by {@code DELTA} along a surface normal, to the side the ray points to
+     *
+     * @param head      the original starting point of the ray
+     * @param direction the direction of the ray
+     * @param normal    the surface normal at the point of origin
+     * @return the offset starting point
+     */
+    private static Point offsetHead(Point head, Vector direction, Vector normal) {
         double side = direction.dotProduct(normal);
         if (Util.isZero(side))
-            this.head = head;
-        else
-            this.head = head.add(normal.scale(side > 0 ? DELTA : -DELTA));
+            return head;
+        return head.add(normal.scale(side > 0 ? DELTA : -DELTA));
     }
 
     /**
@@ -77,6 +151,25 @@ public class Ray {
         return direction;
     }
 
+    /**
+     * Returns the inverse of the ray's direction coordinates and their signs.
+     * They are calculated once, when a bounding box is first tested against the ray,
+     * so the following box tests of the ray need no divisions.
+     *
+     * @return the inverse direction
+     */
+    public InverseDirection getInverseDirection() {
+        // The record is immutable, so a ray shared by threads may at worst calculate it more than once
+        InverseDirection inverse = inverseDirection;
+        if (inverse == null) {
+            double x = 1 / direction.getX(), y = 1 / direction.getY(), z = 1 / direction.getZ();
+            inverse = new InverseDirection(x, y, z, (x < 0 ? InverseDirection.NEGATIVE_X : 0)
+                    | (y < 0 ? InverseDirection.NEGATIVE_Y : 0) | (z < 0 ? InverseDirection.NEGATIVE_Z : 0));
+            inverseDirection = inverse;
+        }
+        return inverse;
+    }
+
     /**
      * Calculates a point along the ray at a given distance from the ray's origin.
      *
@@ -86,11 +179,10 @@ public class Ray {
     public Point getPoint(double t) {
         if (Util.isZero(t))
             return head;
-        try {
-            return head.add(direction.scale(t));
-        } catch (IllegalArgumentException e) {
+        double x = direction.xyz.d1() * t, y = direction.xyz.d2() * t, z = direction.xyz.d3() * t;
+        if (VectorMath.isZero(x, y, z))
             return head;
-        }
+        return new Point(head.xyz.d1() + x, head.xyz.d2() + y, head.xyz.d3() + z);
     }
 
 
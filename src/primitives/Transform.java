@@ -0,0 +1,248 @@
+package primitives;
+
+/**
+ * Affine transformation of 3D space.
+ * <p>
+ * The transformation is an immutable 3x4 matrix - a linear 3x3 part followed by a translation.
+ * It can be applied to points and to raw coordinates stored in primitive arrays, so large meshes
+ * can be transformed without creating point objects.
+ * </p>
+ */
+public final class Transform {
+    /**
+     * The identity transformation
+     */
+    public static final Transform IDENTITY = new Transform(1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0);
+
+    /** Row 0 of the matrix */
+    private final double m00, m01, m02, m03;
+    /** Row 1 of the matrix */
+    private final double m10, m11, m12, m13;
+    /** Row 2 of the matrix */
+    private final double m20, m21, m22, m23;
+
+    /**
+     * Constructs a transformation from its matrix, row by row.
+     * The last element of each row is the translation along the row's axis.
+     *
+     * @param m00 row 0, column 0
+     * @param m01 row 0, column 1
+     * @param m02 row 0, column 2
+     * @param m03 translation along X
+     * @param m10 row 1, column 0
+     * @param m11 row 1, column 1
+     * @param m12 row 1, column 2
+     * @param m13 translation along Y
+     * @param m20 row 2, column 0
+     * @param m21 row 2, column 1
+     * @param m22 row 2, column 2
+     * @param m23 translation along Z
+     */
+    public Transform(double m00, double m01, double m02, double m03,
+                     double m10, double m11, double m12, double m13,
+                     double m20, double m21, double m22, double m23) {
+        this.m00 = m00;
+        this.m01 = m01;
+        this.m02 = m02;
+        this.m03 = m03;
+        this.m10 = m10;
+        this.m11 = m11;
+        this.m12 = m12;
+        this.m13 = m13;
+        this.m20 = m20;
+        this.m21 = m21;
+        this.m22 = m22;
+        this.m23 = m23;
+    }
+
+    /**
+     * Constructs a translation
+     *
+     * @param translation the translation vector
+     * @return the translation transformation
+     */
+    public static Transform translation(Vector translation) {
+        return new Transform(1, 0, 0, translation.getX(), 0, 1, 0, translation.getY(), 0, 0, 1, translation.getZ());
+    }
+
+    /**
+     * Constructs a uniform scaling around a center point
+     *
+     * @param scale  the scale factor
+     * @param center the fixed point of the scaling
+     * @return the scaling transformation
+     * @throws IllegalArgumentException if the scale factor is zero
+     */
+    public static Transform scaling(double scale, Point center) {
+        if (Util.isZero(scale))
+            throw new IllegalArgumentException("Scale factor must not be zero");
+        double shift = 1 - scale;
+        return new Transform(scale, 0, 0, center.getX() * shift,
+                0, scale, 0, center.getY() * shift,
+                0, 0, scale, center.getZ() * shift);
+    }
+
+    /**
+     * Constructs a scaling around a center point, with a different factor along each axis
+     *
+     * @param factors the scale factors along X, Y and Z
+     * @param center  the fixed point of the scaling
+     * @return the scaling transformation
+     * @throws IllegalArgumentException if a scale factor is zero
+     */
+    public static Transform scaling(Double3 factors, Point center) {
+        if (Util.isZero(factors.d1()) || Util.isZero(factors.d2()) || Util.isZero(factors.d3()))
+            throw new IllegalArgumentException("Scale factors must not be zero");
+        return new Transform(factors.d1(), 0, 0, center.getX() * (1 - factors.d1()),
+                0, factors.d2(), 0, center.getY() * (1 - factors.d2()),
+                0, 0, factors.d3(), center.getZ() * (1 - factors.d3()));
+    }
+
+    /**
+     * Constructs a rotation around an axis through a center point (counterclockwise when looking
+     * against the axis direction)
+     *
+     * @param axis   the rotation axis direction
+     * @param angle  the rotation angle in radians
+     * @param center a point on the rotation axis
+     * @return the rotation transformation
+     */
+    public static Transform rotation(Vector axis, double angle, Point center) {
+        Vector n = axis.normalize();
+        double x = n.getX(), y = n.getY(), z = n.getZ();
+        double cos = Math.cos(angle), sin = Math.sin(angle), t = 1 - cos;
+        Transform rotation = new Transform(
+                t * x * x + cos, t * x * y - sin * z, t * x * z + sin * y, 0,
+                t * x * y + sin * z, t * y * y + cos, t * y * z - sin * x, 0,
+                t * x * z - sin * y, t * y * z + sin * x, t * z * z + cos, 0);
+        return center.equals(Point.ZERO) ? rotation
+                : translation(Point.ZERO.subtract(center)).then(rotation).then(translation(center.subtract(Point.ZERO)));
+    }
+
+    /**
+     * Composes this transformation with another one, which is applied after it
+     *
+     * @param next the transformation applied after this one
+     * @return the composed transformation
+     */
+    public Transform then(Transform next) {
+        return new Transform(
+                next.m00 * m00 + next.m01 * m10 + next.m02 * m20,
+                next.m00 * m01 + next.m01 * m11 + next.m02 * m21,
+                next.m00 * m02 + next.m01 * m12 + next.m02 * m22,
+                next.m00 * m03 + next.m01 * m13 + next.m02 * m23 + next.m03,
+                next.m10 * m00 + next.m11 * m10 + next.m12 * m20,
+                next.m10 * m01 + next.m11 * m11 + next.m12 * m21,
+                next.m10 * m02 + next.m11 * m12 + next.m12 * m22,
+                next.m10 * m03 + next.m11 * m13 + next.m12 * m23 + next.m13,
+                next.m20 * m00 + next.m21 * m10 + next.m22 * m20,
+                next.m20 * m01 + next.m21 * m11 + next.m22 * m21,
+                next.m20 * m02 + next.m21 * m12 + next.m22 * m22,
+                next.m20 * m03 + next.m21 * m13 + next.m22 * m23 + next.m23);
+    }
+
+    /**
+     * Calculates the inverse transformation
+     *
+     * @return the transformation which undoes this one
+     * @throws IllegalArgumentException if the transformation is singular
+     */
+    public Transform inverse() {
+        double c00 = m11 * m22 - m12 * m21, c01 = m02 * m21 - m01 * m22, c02 = m01 * m12 - m02 * m11;
+        double c10 = m12 * m20 - m10 * m22, c11 = m00 * m22 - m02 * m20, c12 = m02 * m10 - m00 * m12;
+        double c20 = m10 * m21 - m11 * m20, c21 = m01 * m20 - m00 * m21, c22 = m00 * m11 - m01 * m10;
+        double determinant = m00 * c00 + m01 * c10 + m02 * c20;
+        if (Util.isZero(determinant))
+            throw new IllegalArgumentException("A singular transformation has no inverse");
+        double inverse = 1 / determinant;
+        c00 *= inverse; c01 *= inverse; c02 *= inverse;
+        c10 *= inverse; c11 *= inverse; c12 *= inverse;
+        c20 *= inverse; c21 *= inverse; c22 *= inverse;
+        return new Transform(c00, c01, c02, -(c00 * m03 + c01 * m13 + c02 * m23),
+                c10, c11, c12, -(c10 * m03 + c11 * m13 + c12 * m23),
+                c20, c21, c22, -(c20 * m03 + c21 * m13 + c22 * m23));
+    }
+
+    /**
+     * Checks whether this is the identity transformation
+     *
+     * @return true if the transformation doesn't change any point
+     */
+    public boolean isIdentity() {
+        return equals(IDENTITY);
+    }
+
+    /**
+     * Transforms a point
+     *
+     * @param point the point
+     * @return the transformed point
+     */
+    public Point apply(Point point) {
+        double x = point.getX(), y = point.getY(), z = point.getZ();
+        return new Point(m00 * x + m01 * y + m02 * z + m03,
+                m10 * x + m11 * y + m12 * z + m13,
+                m20 * x + m21 * y + m22 * z + m23);
+    }
+
+    /**
+     * Transforms a direction vector - by the linear part only, without the translation
+     *
+     * @param vector the vector
+     * @return the transformed vector (not normalized)
+     */
+    public Vector applyToVector(Vector vector) {
+        double x = vector.getX(), y = vector.getY(), z = vector.getZ();
+        return new Vector(m00 * x + m01 * y + m02 * z, m10 * x + m11 * y + m12 * z, m20 * x + m21 * y + m22 * z);
+    }
+
+    /**
+     * Transforms a vector by the transpose of the linear part.
+     * Normals are transformed by the inverse transpose of a transformation,
+     * so applying this method of the inverse transformation transforms normals.
+     *
+     * @param vector the vector
+     * @return the transformed vector (not normalized)
+     */
+    public Vector applyTransposed(Vector vector) {
+        double x = vector.getX(), y = vector.getY(), z = vector.getZ();
+        return new Vector(m00 * x + m10 * y + m20 * z, m01 * x + m11 * y + m21 * z, m02 * x + m12 * y + m22 * z);
+    }
+
+    /**
+     * Transforms points stored as consecutive coordinates in an array, in place
+     *
+     * @param coordinates the array of coordinates - x, y, z of each point
+     * @param offset      the offset of the first point in the array
+     * @param count       the number of points
+     */
+    public void apply(double[] coordinates, int offset, int count) {
+        for (int end = offset + 3 * count; offset < end; offset += 3) {
+            double x = coordinates[offset], y = coordinates[offset + 1], z = coordinates[offset + 2];
+            coordinates[offset] = m00 * x + m01 * y + m02 * z + m03;
+            coordinates[offset + 1] = m10 * x + m11 * y + m12 * z + m13;
+            coordinates[offset + 2] = m20 * x + m21 * y + m22 * z + m23;
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        return obj instanceof Transform other
+                && m00 == other.m00 && m01 == other.m01 && m02 == other.m02 && m03 == other.m03
+                && m10 == other.m10 && m11 == other.m11 && m12 == other.m12 && m13 == other.m13
+                && m20 == other.m20 && m21 == other.m21 && m22 == other.m22 && m23 == other.m23;
+    }
+
+    @Override
+    public int hashCode() {
+        return Double.hashCode(m00 + m01 + m02 + m03 + m10 + m11 + m12 + m13 + m20 + m21 + m22 + m23);
+    }
+
+    @Override
+    public String toString() {
+        return "Transform: [" + m00 + "," + m01 + "," + m02 + "," + m03 + "; "
+                + m10 + "," + m11 + "," + m12 + "," + m13 + "; "
+                + m20 + "," + m21 + "," + m22 + "," + m23 + "]";
+    }
+}
@@ -35,6 +35,41 @@ public class Vector extends Point {
             throw new IllegalArgumentException("ERROR: vector zero is illegal");
     }
 
+    /**
+     * Constructs a vector which is known not to be the zero vector, without checking it.
+     *
+     * @param xyz the three-dimensional coordinate representation
+     * @param tag distinguishes the constructor from the checking one
+     */
+    private Vector(Double3 xyz, Void tag) {
+        super(xyz);
+    }
+
+    /**
+     * Creates a vector which is known to be a unit vector (e.g. calculated from unit vectors by
+     * a length preserving operation, or normalized by the caller), skipping the zero vector check.
+     * The invariant is verified only when assertions are enabled.
+     *
+     * @param x x-coordinate of the vector
+     * @param y y-coordinate of the vector
+     * @param z z-coordinate of the vector
+     * @return the unit vector
+     */
+    public static Vector ofUnit(double x, double y, double z) {
+        Vector vector = new Vector(new Double3(x, y, z), null);
+        assert vector.isUnit() : "ERROR: " + vector + " is not a unit vector";
+        return vector;
+    }
+
+    /**
+     * Checks whether the vector is a unit vector, up to rounding errors
+     *
+     * @return true if the length of the vector is 1
+     */
+    boolean isUnit() {
+        return Util.isZero(lengthSquared() - 1);
+    }
+
     /**
      * Adds another vector to this vector.
      *
@@ -103,7 +138,11 @@ public class Vector extends Point {
      * @return the normalized vector
      */
     public Vector normalize() {
-        return this.scale(1 / this.length());
+        double lengthSquared = this.lengthSquared();
+        if (lengthSquared == 1)
+            return this;
+        // A non-zero vector scaled to a unit vector is not the zero vector
+        return new Vector(this.xyz.scale(1 / Math.sqrt(lengthSquared)), null);
     }
 
     @Override
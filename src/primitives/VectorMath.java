@@ -0,0 +1,73 @@
+package primitives;
+
+/**
+ * Allocation-free vector math on raw coordinates.
+ * <p>
+ * The {@link Point} and {@link Vector} operations create a new immutable object (and its {@link Double3})
+ * for every intermediate result, and every new vector is checked for being the zero vector.
+ * The intersection and shading hot paths keep their intermediate vectors as raw {@code double} coordinates
+ * and use these operations instead, creating objects only for the results they return.
+ * The operations evaluate exactly the same expressions as the corresponding object operations,
+ * so the results are identical to the last bit.
+ * </p>
+ */
+public final class VectorMath {
+    /**
+     * Don't let anyone instantiate this class.
+     */
+    private VectorMath() {
+    }
+
+    /**
+     * Calculates the dot product of two vectors, like {@link Vector#dotProduct(Vector)}
+     *
+     * @param ax X coordinate of the first vector
+     * @param ay Y coordinate of the first vector
+     * @param az Z coordinate of the first vector
+     * @param bx X coordinate of the second vector
+     * @param by Y coordinate of the second vector
+     * @param bz Z coordinate of the second vector
+     * @return the dot product
+     */
+    public static double dot(double ax, double ay, double az, double bx, double by, double bz) {
+        return ax * bx + ay * by + az * bz;
+    }
+
+    /**
+     * Calculates the dot product of a vector object and a raw vector
+     *
+     * @param a  the first vector
+     * @param bx X coordinate of the second vector
+     * @param by Y coordinate of the second vector
+     * @param bz Z coordinate of the second vector
+     * @return the dot product
+     */
+    public static double dot(Vector a, double bx, double by, double bz) {
+        return a.xyz.d1() * bx + a.xyz.d2() * by + a.xyz.d3() * bz;
+    }
+
+    /**
+     * Calculates the squared length of a vector, like {@link Vector#lengthSquared()}
+     *
+     * @param x X coordinate of the vector
+     * @param y Y coordinate of the vector
+     * @param z Z coordinate of the vector
+     * @return the squared length
+     */
+    public static double lengthSquared(double x, double y, double z) {
+        return x * x + y * y + z * z;
+    }
+
+    /**
+     * Checks whether a vector is [almost] the zero vector - the vector which the {@link Vector}
+     * constructor rejects, and the difference of two points which are {@link Point#equals equal}
+     *
+     * @param x X coordinate of the vector
+     * @param y Y coordinate of the vector
+     * @param z Z coordinate of the vector
+     * @return true if all the coordinates are zero or almost zero
+     */
+    public static boolean isZero(double x, double y, double z) {
+        return Util.isZero(x) && Util.isZero(y) && Util.isZero(z);
+    }
+}
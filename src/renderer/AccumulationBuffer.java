@@ -0,0 +1,269 @@
+package renderer;
+
+import primitives.Color;
+import primitives.Double3;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * High dynamic range accumulation buffer of an image.
+ * <p>
+ * Every pixel holds the float sums of the red, green and blue components of its samples and the number of its
+ * samples, so the colors aren't clamped to 8 bits until they're written, and more samples may be added later -
+ * by another rendering pass, or by merging the buffers of other threads, passes or processes.
+ * The color of a pixel is the mean of its samples.
+ * </p>
+ * <p>
+ * Every pixel is written by a single thread at a time, so the threads add their samples without locking.
+ * A buffer is saved and loaded in the Portable Float Map (PFM) format, whose components are scaled
+ * so that 255 (the printed white) is 1.0.
+ * </p>
+ */
+public final class AccumulationBuffer {
+    /**
+     * The scale of the PFM components - the component of the printed white
+     */
+    private static final float PFM_WHITE = 255f;
+
+    /**
+     * Horizontal resolution - number of pixels in a row
+     */
+    private final int nX;
+
+    /**
+     * Vertical resolution - number of pixels in a column
+     */
+    private final int nY;
+
+    /**
+     * The sums of the samples colors - red, green and blue of every pixel, row by row
+     */
+    private final float[] sums;
+
+    /**
+     * The number of the samples of every pixel, row by row
+     */
+    private final int[] samples;
+
+    /**
+     * Constructs an empty buffer
+     *
+     * @param nX the number of pixels in a row
+     * @param nY the number of pixels in a column
+     * @throws IllegalArgumentException if the resolution isn't positive, or the buffer is too large for an array
+     */
+    public AccumulationBuffer(int nX, int nY) {
+        if (nX <= 0 || nY <= 0)
+            throw new IllegalArgumentException("Nx and Ny must be positive");
+        if (3L * nX * nY > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Image resolution is too large");
+        this.nX = nX;
+        this.nY = nY;
+        sums = new float[3 * nX * nY];
+        samples = new int[nX * nY];
+    }
+
+    /**
+     * Returns the number of pixels in a row
+     *
+     * @return the horizontal resolution
+     */
+    public int nX() {
+        return nX;
+    }
+
+    /**
+     * Returns the number of pixels in a column
+     *
+     * @return the vertical resolution
+     */
+    public int nY() {
+        return nY;
+    }
+
+    /**
+     * Adds a sample to a pixel
+     *
+     * @param x     the column of the pixel
+     * @param y     the row of the pixel
+     * @param color the color of the sample
+     */
+    public void addSample(int x, int y, Color color) {
+        addSamples(x, y, color, 1);
+    }
+
+    /**
+     * Adds several samples to a pixel
+     *
+     * @param x     the column of the pixel
+     * @param y     the row of the pixel
+     * @param sum   the sum of the colors of the samples
+     * @param count the number of the samples
+     * @throws IllegalArgumentException if the number of samples is negative
+     */
+    public void addSamples(int x, int y, Color sum, int count) {
+        if (count < 0)
+            throw new IllegalArgumentException("Number of samples must not be negative");
+        int pixel = y * nX + x;
+        Double3 rgb = sum.getRgb();
+        sums[3 * pixel] += (float) rgb.d1();
+        sums[3 * pixel + 1] += (float) rgb.d2();
+        sums[3 * pixel + 2] += (float) rgb.d3();
+        samples[pixel] += count;
+    }
+
+    /**
+     * Returns the number of samples of a pixel
+     *
+     * @param x the column of the pixel
+     * @param y the row of the pixel
+     * @return the number of samples
+     */
+    public int getSamples(int x, int y) {
+        return samples[y * nX + x];
+    }
+
+    /**
+     * Returns the color of a pixel - the mean of its samples
+     *
+     * @param x the column of the pixel
+     * @param y the row of the pixel
+     * @return the mean color, black if the pixel has no samples
+     */
+    public Color getColor(int x, int y) {
+        int pixel = y * nX + x;
+        int count = samples[pixel];
+        if (count == 0)
+            return Color.BLACK;
+        return new Color(sums[3 * pixel] / (double) count, sums[3 * pixel + 1] / (double) count,
+                sums[3 * pixel + 2] / (double) count);
+    }
+
+    /**
+     * Adds the samples of another buffer of the same resolution to this buffer.
+     * The other buffer mustn't be written meanwhile.
+     *
+     * @param other the other buffer
+     * @return the buffer itself (for method chaining)
+     * @throws IllegalArgumentException if the resolutions differ
+     */
+    public AccumulationBuffer merge(AccumulationBuffer other) {
+        if (other.nX != nX || other.nY != nY)
+            throw new IllegalArgumentException("Merged buffers must have the same resolution");
+        for (int i = 0; i < sums.length; ++i)
+            sums[i] += other.sums[i];
+        for (int i = 0; i < samples.length; ++i)
+            samples[i] += other.samples[i];
+        return this;
+    }
+
+    /**
+     * Removes all the samples
+     *
+     * @return the buffer itself (for method chaining)
+     */
+    public AccumulationBuffer clear() {
+        Arrays.fill(sums, 0);
+        Arrays.fill(samples, 0);
+        return this;
+    }
+
+    /**
+     * Writes the mean colors of the pixels to a PFM file (little-endian, rows from the bottom up)
+     *
+     * @param file the file path
+     * @throws IOException if the file can't be written
+     */
+    public void writePfm(Path file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            out.write(String.format(Locale.ROOT, "PF\n%d %d\n-1.0\n", nX, nY).getBytes(StandardCharsets.US_ASCII));
+            ByteBuffer row = ByteBuffer.allocate(3 * nX * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int y = nY - 1; y >= 0; --y) {
+                row.clear();
+                for (int x = 0; x < nX; ++x) {
+                    int pixel = y * nX + x;
+                    float scale = samples[pixel] == 0 ? 0 : 1f / (samples[pixel] * PFM_WHITE);
+                    for (int c = 0; c < 3; ++c)
+                        row.putFloat(sums[3 * pixel + c] * scale);
+                }
+                out.write(row.array());
+            }
+        }
+    }
+
+    /**
+     * Reads a color PFM file into a buffer, as the mean of a given number of samples of every pixel,
+     * so it can be merged with buffers of other passes or processes
+     *
+     * @param file    the file path
+     * @param samples the number of samples of every pixel of the file
+     * @return the buffer
+     * @throws IOException              if the file can't be read, or isn't a color PFM file
+     * @throws IllegalArgumentException if the number of samples isn't positive
+     */
+    public static AccumulationBuffer readPfm(Path file, int samples) throws IOException {
+        if (samples <= 0)
+            throw new IllegalArgumentException("Number of samples must be positive");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (!"PF".equals(readToken(in)))
+                throw new IOException("Not a color PFM file");
+            int nX, nY;
+            float scale;
+            try {
+                nX = Integer.parseInt(readToken(in));
+                nY = Integer.parseInt(readToken(in));
+                scale = Float.parseFloat(readToken(in));
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid PFM header", e);
+            }
+            if (nX <= 0 || nY <= 0 || scale == 0)
+                throw new IOException("Invalid PFM header");
+
+            AccumulationBuffer buffer = new AccumulationBuffer(nX, nY);
+            ByteBuffer row = ByteBuffer.allocate(3 * nX * Float.BYTES)
+                    .order(scale < 0 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+            for (int y = nY - 1; y >= 0; --y) {
+                in.readFully(row.array());
+                row.rewind();
+                for (int i = 3 * y * nX, end = i + 3 * nX; i < end; ++i)
+                    buffer.sums[i] = row.getFloat() * PFM_WHITE * samples;
+                Arrays.fill(buffer.samples, y * nX, (y + 1) * nX, samples);
+            }
+            return buffer;
+        }
+    }
+
+    /**
+     * Reads a whitespace terminated token of a PFM header, skipping the whitespaces before it
+     * and consuming the single whitespace after it
+     *
+     * @param in the input stream
+     * @return the token
+     * @throws IOException if the stream ends before the token does
+     */
+    private static String readToken(InputStream in) throws IOException {
+        StringBuilder token = new StringBuilder();
+        while (true) {
+            int b = in.read();
+            if (b < 0)
+                throw new EOFException("Truncated PFM header");
+            if (!Character.isWhitespace(b))
+                token.append((char) b);
+            else if (!token.isEmpty())
+                return token.toString();
+        }
+    }
+}
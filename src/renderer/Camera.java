@@ -6,6 +6,7 @@ import scene.Scene;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.MissingResourceException;
+import java.util.function.IntConsumer;
 
 import java.util.stream.*;
 
@@ -52,10 +53,26 @@ public class Camera implements Cloneable {
     private double distance = 0.0;
 
     /**
-     * The image writer responsible for writing the rendered image to file.
+     * The image writer responsible for writing the rendered image to file,
+     * created by the first use - a streamed image doesn't need its pixels matrix.
      */
     private ImageWriter imageWriter;
 
+    /**
+     * The high dynamic range accumulation buffer of the rendered pixels, or {@code null} if it's not kept
+     */
+    private AccumulationBuffer accumulationBuffer;
+
+    /**
+     * Whether the high dynamic range accumulation buffer is kept (set by the builder)
+     */
+    private boolean accumulate = false;
+
+    /**
+     * The png encoding mode of the written images
+     */
+    private PngEncoder.Mode imageEncoding = PngEncoder.Mode.DEFAULT;
+
     /**
      * The ray tracer used to trace rays through the scene.
      */
@@ -164,7 +181,7 @@ public class Camera implements Cloneable {
      */
     private Camera renderImageRawThreads() {
         var threads = new LinkedList<Thread>();
-        while (threadsCount-- > 0)
+        for (int t = 0; t < threadsCount; ++t)
             threads.add(new Thread(() -> {
                 PixelManager.Pixel pixel;
                 while ((pixel = pixelManager.nextPixel()) != null)
@@ -187,17 +204,47 @@ public class Camera implements Cloneable {
      * @return the constructed ray
      */
     public Ray constructRay(int nX, int nY, int j, int i) {
-        Point pC = p0.add(vTo.scale(distance));
-        double rY = height / nY;
-        double rX = width / nX;
-        double yI = -(i - 0.5 * (nY - 1)) * rY;
-        double xJ = (j - 0.5 * (nX - 1)) * rX;
-        Point pIJ = pC;
+        double yI = -(i - 0.5 * (nY - 1)) * (height / nY);
+        double xJ = (j - 0.5 * (nX - 1)) * (width / nX);
+        double x = pixelCoordinate(p0.getX(), vTo.getX(), vRight.getX(), vUp.getX(), xJ, yI);
+        double y = pixelCoordinate(p0.getY(), vTo.getY(), vRight.getY(), vUp.getY(), xJ, yI);
+        double z = pixelCoordinate(p0.getZ(), vTo.getZ(), vRight.getZ(), vUp.getZ(), xJ, yI);
+        return rayThrough(x, y, z);
+    }
+
+    /**
+     * Constructs the ray from the camera location through a point, normalizing its direction
+     * without creating intermediate vectors
+     *
+     * @param x X coordinate of the point
+     * @param y Y coordinate of the point
+     * @param z Z coordinate of the point
+     * @return the ray
+     */
+    private Ray rayThrough(double x, double y, double z) {
+        double dx = x - p0.getX(), dy = y - p0.getY(), dz = z - p0.getZ();
+        double scale = 1 / Math.sqrt(VectorMath.lengthSquared(dx, dy, dz));
+        return Ray.ofUnit(p0, Vector.ofUnit(dx * scale, dy * scale, dz * scale));
+    }
+
+    /**
+     * Calculates a coordinate of the center of a pixel on the view plane, without creating intermediate vectors
+     *
+     * @param p0    the coordinate of the camera location
+     * @param to    the coordinate of the "to" vector
+     * @param right the coordinate of the "right" vector
+     * @param up    the coordinate of the "up" vector
+     * @param xJ    the offset of the pixel from the view plane center along the "right" vector
+     * @param yI    the offset of the pixel from the view plane center along the "up" vector
+     * @return the coordinate of the pixel center
+     */
+    private double pixelCoordinate(double p0, double to, double right, double up, double xJ, double yI) {
+        double coordinate = p0 + to * distance;
         if (!Util.isZero(xJ))
-            pIJ = pIJ.add(vRight.scale(xJ));
+            coordinate += right * xJ;
         if (!Util.isZero(yI))
-            pIJ = pIJ.add(vUp.scale(yI));
-        return new Ray(p0, pIJ.subtract(p0));
+            coordinate += up * yI;
+        return coordinate;
     }
 
     /**
@@ -210,17 +257,14 @@ public class Camera implements Cloneable {
      * @return a list of rays representing the beam through the specified pixel
      */
     public List<Ray> constructBeam(int nX, int nY, int j, int i) {
-        Point pC = p0.add(vTo.scale(distance));
         double rY = height / nY;
         double rX = width / nX;
         double yI = -(i - 0.5 * (nY - 1)) * rY;
         double xJ = (j - 0.5 * (nX - 1)) * rX;
-        Point pIJ = pC;
-        if (!Util.isZero(xJ))
-            pIJ = pIJ.add(vRight.scale(xJ));
-        if (!Util.isZero(yI))
-            pIJ = pIJ.add(vUp.scale(yI));
-        Ray mainRay = new Ray(p0, pIJ.subtract(p0));
+        Point pIJ = new Point(pixelCoordinate(p0.getX(), vTo.getX(), vRight.getX(), vUp.getX(), xJ, yI),
+                pixelCoordinate(p0.getY(), vTo.getY(), vRight.getY(), vUp.getY(), xJ, yI),
+                pixelCoordinate(p0.getZ(), vTo.getZ(), vRight.getZ(), vUp.getZ(), xJ, yI));
+        Ray mainRay = rayThrough(pIJ.getX(), pIJ.getY(), pIJ.getZ());
         if (numOfRaysAA == 1)
             return List.of(mainRay);
         QuadrilateralTargetArea targetArea = new QuadrilateralTargetArea(rY, rX, vRight, vTo, pIJ, numOfRaysAA, samplingPattern);
@@ -232,6 +276,50 @@ public class Camera implements Cloneable {
      * @return the camera object itself
      */
     public Camera renderImage() {
+        rayTracer.prepare();
+        return renderFrame();
+    }
+
+    /**
+     * Renders the frames of an animation, in which geometries move between the frames
+     * (e.g. spheres centers or instances transformations change), and writes each frame to a file.
+     * <p>
+     * The scene is compiled once, for the first frame. Before each following frame the compiled scene
+     * is refitted to the moved geometries instead of compiled again, and its hierarchy is rebuilt
+     * only when the refit degraded it too much.
+     * </p>
+     *
+     * @param frames the number of frames
+     * @param update moves the geometries of the scene for a frame - called with the frame number
+     *               before the frame is rendered
+     * @param name   the base file name, followed by the frame number
+     * @return this camera
+     * @throws IllegalArgumentException if the number of frames is not positive
+     */
+    public Camera renderAnimation(int frames, IntConsumer update, String name) {
+        if (frames <= 0)
+            throw new IllegalArgumentException("Number of frames must be positive");
+        for (int frame = 0; frame < frames; ++frame) {
+            update.accept(frame);
+            if (accumulationBuffer != null)
+                accumulationBuffer.clear();
+            if (frame == 0)
+                rayTracer.prepare();
+            else
+                rayTracer.refit();
+            renderFrame();
+            writeToImage(String.format("%s-%04d", name, frame));
+        }
+        return this;
+    }
+
+    /**
+     * Renders an image of the prepared ray tracer's scene
+     *
+     * @return the camera object itself
+     */
+    private Camera renderFrame() {
+        imageWriter();
         pixelManager = new PixelManager(nY, nX, printInterval);
         return switch (threadsCount) {
             case 0 -> renderImageNoThreads();
@@ -250,12 +338,12 @@ public class Camera implements Cloneable {
     public Camera printGrid(int interval, Color color) {
         for (int y = 0; y < nY; y += interval) {
             for (int x = 0; x < nX; x++) {
-                imageWriter.writePixel(x, y, color);
+                imageWriter().writePixel(x, y, color);
             }
         }
         for (int y = 0; y < nY; y++) {
             for (int x = 0; x < nX; x += interval) {
-                imageWriter.writePixel(x, y, color);
+                imageWriter().writePixel(x, y, color);
             }
         }
         return this;
@@ -268,10 +356,96 @@ public class Camera implements Cloneable {
      * @return this camera
      */
     public Camera writeToImage(String name) {
-        imageWriter.writeToImage(name);
+        imageWriter().writeToImage(name);
+        if (accumulationBuffer != null)
+            imageWriter().writeToHdrImage(name, accumulationBuffer);
         return this;
     }
 
+    /**
+     * Returns the image writer, creating it with the pixels matrix of the image on the first use
+     *
+     * @return the image writer
+     */
+    private ImageWriter imageWriter() {
+        if (imageWriter == null) {
+            imageWriter = new ImageWriter(nX, nY);
+            imageWriter.setEncoding(imageEncoding);
+        }
+        return imageWriter;
+    }
+
+    /**
+     * Renders an image of the scene and streams it to a png file with the given name, band by band.
+     * <p>
+     * The image is rendered in bands of rows, which are encoded and written as soon as the bands
+     * before them are written, so the memory is proportional to a few bands rather than to the image,
+     * and resolutions whose pixels matrix doesn't fit in the memory can be rendered.
+     * The pixels aren't kept, so the image can't be processed further (e.g. by {@link #printGrid}),
+     * and the accumulation buffer isn't used.
+     * </p>
+     *
+     * @param name the file name to write the image to
+     * @return this camera
+     * @throws IllegalStateException if the image file can't be written
+     */
+    public Camera renderImage(String name) {
+        rayTracer.prepare();
+        pixelManager = new PixelManager(nY, nX, printInterval);
+        int threads = switch (threadsCount) {
+            case 0 -> 1;
+            case -1 -> Runtime.getRuntime().availableProcessors();
+            default -> threadsCount;
+        };
+        // A thread takes a band only within a band per thread of the next band to write,
+        // so at most a band per thread waits for a slow band
+        try (StreamingImageWriter writer = new StreamingImageWriter(name, nX, nY, imageEncoding, threads)) {
+            Runnable renderBands = () -> {
+                try {
+                    int band;
+                    while ((band = writer.takeBand()) >= 0) {
+                        int firstRow = writer.firstRow(band), rows = writer.rows(band);
+                        int[] pixels = new int[rows * nX];
+                        for (int i = 0; i < rows; ++i)
+                            for (int j = 0; j < nX; ++j) {
+                                pixels[i * nX + j] = ImageWriter.pack(pixelColor(j, firstRow + i));
+                                pixelManager.pixelDone();
+                            }
+                        writer.writeBand(band, pixels);
+                    }
+                } catch (RuntimeException | Error e) {
+                    // The band of the failed thread is never written, so the other threads mustn't wait for it
+                    writer.abort();
+                    throw e;
+                }
+            };
+            if (threads == 1)
+                renderBands.run();
+            else {
+                var workers = new LinkedList<Thread>();
+                for (int t = 0; t < threads; ++t)
+                    workers.add(new Thread(renderBands));
+                for (var worker : workers) worker.start();
+                try {
+                    for (var worker : workers) worker.join();
+                } catch (InterruptedException ignored) {}
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Returns the high dynamic range accumulation buffer of the rendered pixels.
+     * Every rendering adds a sample to each pixel, so rendering the scene again (e.g. with other
+     * jittered samples) refines the image, and buffers of other cameras may be merged into it.
+     *
+     * @return the accumulation buffer, or {@code null} if the camera doesn't keep it
+     * @see Builder#setAccumulation(boolean)
+     */
+    public AccumulationBuffer getAccumulationBuffer() {
+        return accumulationBuffer;
+    }
+
     /**
      * Casts a single ray through a specific pixel (i, j).
      * This method is intended to be used internally during image rendering.
@@ -280,6 +454,23 @@ public class Camera implements Cloneable {
      * @param i the pixel's row index
      */
     private void castRay(int j, int i) {
+        Color pixelColor = pixelColor(j, i);
+        if (accumulationBuffer != null) {
+            accumulationBuffer.addSample(j, i, pixelColor);
+            pixelColor = accumulationBuffer.getColor(j, i);
+        }
+        imageWriter.writePixel(j, i, pixelColor);
+        pixelManager.pixelDone();
+    }
+
+    /**
+     * Calculates the color of a pixel - the mean color of the rays of its beam
+     *
+     * @param j the pixel's column index
+     * @param i the pixel's row index
+     * @return the pixel color
+     */
+    private Color pixelColor(int j, int i) {
         List<Ray> beamRays = constructBeam(nX, nY, j, i);
         Color pixelColor = Color.BLACK;
         for (Ray ray : beamRays) {
@@ -295,8 +486,7 @@ public class Camera implements Cloneable {
             else
                 pixelColor = pixelColor.add(rayTracer.traceRay(ray));
         }
-        imageWriter.writePixel(j, i, pixelColor.reduce(beamRays.size()));
-        pixelManager.pixelDone();
+        return pixelColor.reduce(beamRays.size());
     }
 
     /**
@@ -525,6 +715,31 @@ public class Camera implements Cloneable {
             return this;
         }
 
+        /**
+         * Sets the png encoding mode of the written images - {@link PngEncoder.Mode#FAST} for
+         * intermediate images, which trades the file size for the encoding time
+         *
+         * @param mode the encoding mode
+         * @return this builder instance
+         */
+        public Builder setImageEncoding(PngEncoder.Mode mode) {
+            camera.imageEncoding = mode;
+            return this;
+        }
+
+        /**
+         * Sets whether the camera keeps a high dynamic range accumulation buffer of the rendered pixels.
+         * The written image is then the mean of all the renderings, and it's also written in the PFM format.
+         *
+         * @param accumulate true to keep the accumulation buffer
+         * @return this builder instance
+         * @see Camera#getAccumulationBuffer()
+         */
+        public Builder setAccumulation(boolean accumulate) {
+            camera.accumulate = accumulate;
+            return this;
+        }
+
         /**
          * Constants representing error message
          */
@@ -611,7 +826,7 @@ public class Camera implements Cloneable {
             if (camera.numOfRaysDOF < 1)
                 throw new IllegalArgumentException("Number of super sampling rays must not be smaller than 1");
 
-            camera.imageWriter = new ImageWriter(camera.nX, camera.nY);
+            camera.accumulationBuffer = camera.accumulate ? new AccumulationBuffer(camera.nX, camera.nY) : null;
 
             if (camera.rayTracer == null)
                 camera.rayTracer = new SimpleRayTracer(null);
@@ -1,17 +1,21 @@
 package renderer;
 
-import java.awt.image.BufferedImage;
 import java.io.*;
-
-import javax.imageio.ImageIO;
+import java.nio.file.Path;
 
 import primitives.Color;
+import primitives.Double3;
 
 /**
  * Image writer class combines accumulation of pixel color matrix and finally
  * producing a non-optimized jpeg image from this matrix. The class although is
  * responsible for holding image related parameters of View Plane - pixel matrix
  * size and resolution
+ * <p>
+ * The pixels are packed RGB integers in a primitive array, indexed row by row. Every pixel is written
+ * by a single rendering thread, so the threads write their pixels without locking, and the array
+ * is encoded directly to a png file by the parallel {@link PngEncoder}.
+ * </p>
  * @author Dan
  */
 final class ImageWriter {
@@ -24,22 +28,28 @@ final class ImageWriter {
      * Directory path for the image file generation - relative to the user
      * directory
      */
-    private static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
+    static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
+
+    /** Image generation buffer (the matrix of the pixels) - packed RGB pixels, row by row */
+    private final int[]         pixels;
 
-    /** Image generation buffer (the matrix of the pixels) */
-    private final BufferedImage image;
+    /** The png encoder of the image */
+    private PngEncoder          encoder = new PngEncoder(PngEncoder.Mode.DEFAULT);
 
     // ***************** Constructors ********************** //
     /**
      * Image Writer constructor accepting image name and View Plane parameters,
      * @param nX amount of pixels by Width
      * @param nY amount of pixels by height
+     * @throws IllegalArgumentException if the image has more pixels than an array can hold
      */
     ImageWriter(int nX, int nY) {
         this.nX = nX;
         this.nY = nY;
 
-        image   = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+        if ((long) nX * nY > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Image resolution is too large");
+        pixels  = new int[nX * nY];
     }
 
     // ***************** Getters ********************** //
@@ -55,6 +65,13 @@ final class ImageWriter {
      */
     int nX() { return nX; }
 
+    // ***************** Setters ********************** //
+    /**
+     * Sets the png encoding mode of the image
+     * @param mode the encoding mode
+     */
+    void setEncoding(PngEncoder.Mode mode) { encoder = new PngEncoder(mode); }
+
     // ***************** Operations ******************** //
 
     /**
@@ -65,7 +82,23 @@ final class ImageWriter {
     void writeToImage(String imageName) {
         try {
             File file = new File(FOLDER_PATH + '/' + imageName + ".png");
-            ImageIO.write(image, "png", file);
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+                encoder.encode(pixels, nX, nY, out);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
+        }
+    }
+
+    /**
+     * Function writeToHdrImage produces a PFM file of the high dynamic range colors
+     * of an accumulation buffer, next to the png file of the same name
+     * @param imageName the name of PFM file
+     * @param buffer    the accumulation buffer
+     */
+    void writeToHdrImage(String imageName, AccumulationBuffer buffer) {
+        try {
+            buffer.writePfm(Path.of(FOLDER_PATH, imageName + ".pfm"));
         } catch (IOException e) {
             throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
         }
@@ -78,6 +111,27 @@ final class ImageWriter {
      * @param yIndex Y-axis index of the pixel
      * @param color  final color of the pixel
      */
-    void writePixel(int xIndex, int yIndex, Color color) { image.setRGB(xIndex, yIndex, color.getColor().getRGB()); }
+    void writePixel(int xIndex, int yIndex, Color color) { pixels[yIndex * nX + xIndex] = pack(color); }
+
+    /**
+     * Packs a color into an RGB integer, truncating the components to integers and
+     * setting any component bigger than 255 to 255 (like {@link Color#getColor()})
+     * @param  color the color
+     * @return       the packed RGB color
+     */
+    static int pack(Color color) {
+        Double3 rgb = color.getRgb();
+        return channel(rgb.d1()) << 16 | channel(rgb.d2()) << 8 | channel(rgb.d3());
+    }
+
+    /**
+     * Converts a color component to an 8 bit channel
+     * @param  component the color component
+     * @return           the channel value between 0 and 255
+     */
+    private static int channel(double component) {
+        int value = (int) component;
+        return value > 255 ? 255 : value < 0 ? 0 : value;
+    }
 
 }
\ No newline at end of file
@@ -0,0 +1,109 @@
+package renderer;
+
+import primitives.Double3;
+import primitives.Material;
+
+/**
+ * Shading kernel of a material.
+ * <p>
+ * The material is classified once, when the ray tracer is prepared for rendering, according to the terms
+ * which actually contribute to its color: diffuse and specular local effects, mirror reflection and
+ * refraction, and whether the reflection is glossy or the refraction is blurry. This way a diffuse-only
+ * material never constructs reflected or refracted rays, a mirror never constructs refracted rays,
+ * and a material without specular term never calculates the shininess power.
+ * </p>
+ * The coefficients are copied from the material, so changes to the material during rendering
+ * don't affect the kernel.
+ */
+final class MaterialKernel {
+    /** Specular reflection coefficient */
+    final Double3 kS;
+    /** Diffuse reflection coefficient */
+    final Double3 kD;
+    /** Sum of the diffuse and specular coefficients - the upper bound of the local effects factor */
+    final Double3 kLocal;
+    /** Transparency coefficient */
+    final Double3 kT;
+    /** Reflection coefficient */
+    final Double3 kR;
+    /** Shininess factor */
+    final int nShininess;
+
+    /** Whether the material has a diffuse term */
+    final boolean diffuse;
+    /** Whether the material has a specular term */
+    final boolean specular;
+    /** Whether the material is affected by light sources at all */
+    final boolean lit;
+    /** Whether the material has a mirror reflection term */
+    final boolean reflective;
+    /** Whether the material has a refraction term */
+    final boolean refractive;
+    /** Whether the reflection is glossy (traced by a beam of rays) */
+    final boolean glossy;
+    /** Whether the refraction is blurry (traced by a beam of rays) */
+    final boolean blurry;
+
+    /** Number of rays for glossy reflection */
+    final int numOfRaysGlossy;
+    /** Size of the target area for glossy reflection */
+    final double targetAreaSizeGlossy;
+    /** Distance of the target area for glossy reflection */
+    final double targetAreaDistanceGlossy;
+    /** Number of rays for blurry refraction */
+    final int numOfRaysBlurry;
+    /** Size of the target area for blurry refraction */
+    final double targetAreaSizeBlurry;
+    /** Distance of the target area for blurry refraction */
+    final double targetAreaDistanceBlurry;
+
+    /**
+     * Classifies a material into its shading kernel
+     *
+     * @param material the material to classify
+     * @param minK     the coefficient below which a global effect never contributes to the color
+     */
+    MaterialKernel(Material material, double minK) {
+        kS = material.kS;
+        kD = material.kD;
+        kLocal = kD.add(kS);
+        kT = material.kT;
+        kR = material.kR;
+        nShininess = material.nShininess;
+
+        diffuse = !kD.equals(Double3.ZERO);
+        specular = !kS.equals(Double3.ZERO);
+        lit = diffuse || specular;
+        refractive = !kT.lowerThan(minK);
+        reflective = !kR.lowerThan(minK);
+
+        numOfRaysGlossy = material.numOfRaysGlossy;
+        targetAreaSizeGlossy = material.targetAreaSizeGlossy;
+        targetAreaDistanceGlossy = material.targetAreaDistanceGlossy;
+        glossy = targetAreaSizeGlossy != 0.0 && targetAreaDistanceGlossy != 0.0 && numOfRaysGlossy != 1;
+
+        numOfRaysBlurry = material.numOfRaysBlurry;
+        targetAreaSizeBlurry = material.targetAreaSizeBlurry;
+        targetAreaDistanceBlurry = material.targetAreaDistanceBlurry;
+        blurry = targetAreaSizeBlurry != 0.0 && targetAreaDistanceBlurry != 0.0 && numOfRaysBlurry != 1;
+    }
+
+    /**
+     * Raises a base to the power of the shininess factor.
+     * The shininess is an integer, so the power is calculated by repeated squaring instead of {@link Math#pow}.
+     *
+     * @param base the base, in range 0..1
+     * @return the base raised to the power of the shininess
+     */
+    double shininess(double base) {
+        if (nShininess < 0)
+            return Math.pow(base, nShininess);
+        double result = 1;
+        for (int n = nShininess; n != 0; n >>= 1) {
+            if ((n & 1) != 0)
+                result *= base;
+            base *= base;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,363 @@
+package renderer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Parallel encoder of RGB images to the PNG format.
+ * <p>
+ * The rows of the image are split into bands, and the bands are filtered and deflated in parallel,
+ * each by its own deflater - like the parallel zlib of pigz. Every band but the last ends by a full flush,
+ * which aligns it to a byte boundary, so the compressed bands concatenate into a single valid zlib stream.
+ * Its Adler-32 checksum is combined from the checksums of the bands. Every band is written as an IDAT chunk.
+ * </p>
+ * <p>
+ * The {@link Mode#DEFAULT default mode} chooses the filter of every row adaptively, and the
+ * {@link Mode#FAST fast mode} doesn't filter and compresses at the best speed, for intermediate images.
+ * </p>
+ */
+public final class PngEncoder {
+    /**
+     * Encoding modes, trading the file size for the encoding time
+     */
+    public enum Mode {
+        /**
+         * Adaptive filtering of every row, with the default compression level
+         */
+        DEFAULT,
+        /**
+         * No filtering, with the fastest compression level
+         */
+        FAST
+    }
+
+    /**
+     * The PNG file signature
+     */
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    /**
+     * The bytes per pixel of an 8 bit RGB image
+     */
+    private static final int BYTES_PER_PIXEL = 3;
+
+    /**
+     * The approximate number of raw bytes of a band
+     */
+    private static final int BAND_SIZE = 1 << 18;
+
+    /**
+     * The compression level of the default mode (the default level of zlib)
+     */
+    private static final int DEFAULT_LEVEL = 6;
+
+    /**
+     * The modulus of the Adler-32 checksum
+     */
+    private static final int ADLER_BASE = 65521;
+
+    /**
+     * Filter types of the rows (PNG specification, section 9.2)
+     */
+    private static final int FILTER_NONE = 0, FILTER_SUB = 1, FILTER_UP = 2, FILTER_AVERAGE = 3, FILTER_PAETH = 4;
+
+    /**
+     * The encoding mode
+     */
+    private final Mode mode;
+
+    /**
+     * Constructs an encoder
+     *
+     * @param mode the encoding mode
+     */
+    public PngEncoder(Mode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Encodes an image to the PNG format
+     *
+     * @param pixels the packed RGB pixels of the image, row by row
+     * @param nX     the number of pixels in a row
+     * @param nY     the number of pixels in a column
+     * @param out    the output stream, which is left open
+     * @throws IOException if the stream can't be written
+     */
+    public void encode(int[] pixels, int nX, int nY, OutputStream out) throws IOException {
+        int bandRows = bandRows(nX);
+        int bands = (nY + bandRows - 1) / bandRows;
+        Band[] compressed = IntStream.range(0, bands).parallel()
+                .mapToObj(band -> deflate(pixels, nX, band * bandRows, Math.min(nY, (band + 1) * bandRows),
+                        true, band == bands - 1))
+                .toArray(Band[]::new);
+
+        DataOutputStream data = new DataOutputStream(out);
+        writeHeader(data, nX, nY);
+        long adler = 1;
+        for (int band = 0; band < bands; ++band)
+            adler = writeBand(data, compressed[band], band == 0, band == bands - 1, adler);
+        writeEnd(data);
+        data.flush();
+    }
+
+    /**
+     * Returns the number of rows of a band, so a band has about {@link #BAND_SIZE} raw bytes
+     *
+     * @param nX the number of pixels in a row
+     * @return the number of rows of a band
+     */
+    static int bandRows(int nX) {
+        return Math.max(1, BAND_SIZE / (1 + BYTES_PER_PIXEL * nX));
+    }
+
+    /**
+     * Writes the PNG signature and the image header
+     *
+     * @param out the output stream
+     * @param nX  the number of pixels in a row
+     * @param nY  the number of pixels in a column
+     * @throws IOException if the stream can't be written
+     */
+    static void writeHeader(DataOutputStream out, int nX, int nY) throws IOException {
+        out.write(SIGNATURE);
+        ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+        DataOutputStream headerData = new DataOutputStream(header);
+        headerData.writeInt(nX);
+        headerData.writeInt(nY);
+        // Bit depth 8, truecolor, deflate compression, adaptive filtering, no interlace
+        headerData.write(new byte[]{8, 2, 0, 0, 0});
+        writeChunk(out, "IHDR", header.toByteArray());
+    }
+
+    /**
+     * Writes a deflated band as an IDAT chunk, preceded by the zlib header in the first band
+     * and followed by the checksum of all the bands in the last band
+     *
+     * @param out   the output stream
+     * @param band  the deflated band
+     * @param first whether it's the first band of the image
+     * @param last  whether it's the last band of the image
+     * @param adler the combined checksum of the previous bands (1 before the first band)
+     * @return the combined checksum of the bands including this one
+     * @throws IOException if the stream can't be written
+     */
+    long writeBand(DataOutputStream out, Band band, boolean first, boolean last, long adler) throws IOException {
+        adler = combineAdler(adler, band.adler, band.rawLength);
+        ByteArrayOutputStream chunk = new ByteArrayOutputStream(band.data.length + 6);
+        if (first) {
+            int level = level();
+            // The zlib header - deflate with a 32K window and the level, with the check bits
+            int cmf = 0x78, flg = (level == 1 ? 0 : level < 6 ? 1 : level == 6 ? 2 : 3) << 6;
+            flg += (31 - (cmf * 256 + flg) % 31) % 31;
+            chunk.write(new byte[]{(byte) cmf, (byte) flg});
+        }
+        chunk.write(band.data);
+        if (last)
+            chunk.write(new byte[]{(byte) (adler >>> 24), (byte) (adler >>> 16), (byte) (adler >>> 8), (byte) adler});
+        writeChunk(out, "IDAT", chunk.toByteArray());
+        return adler;
+    }
+
+    /**
+     * Writes the image end chunk
+     *
+     * @param out the output stream
+     * @throws IOException if the stream can't be written
+     */
+    static void writeEnd(DataOutputStream out) throws IOException {
+        writeChunk(out, "IEND", new byte[0]);
+    }
+
+    /**
+     * Returns the deflate compression level of the mode
+     *
+     * @return the compression level
+     */
+    private int level() {
+        return mode == Mode.FAST ? Deflater.BEST_SPEED : DEFAULT_LEVEL;
+    }
+
+    /**
+     * A deflated band of rows
+     *
+     * @param data      the raw deflate blocks of the band
+     * @param adler     the Adler-32 checksum of the filtered rows of the band
+     * @param rawLength the length of the filtered rows of the band
+     */
+    record Band(byte[] data, long adler, long rawLength) {
+    }
+
+    /**
+     * Filters and deflates a band of rows.
+     * The first row of the band is filtered by the row before it in the pixels array; if the band starts
+     * the array, it's either the first row of the image (which is filtered as if it followed a row of zeros)
+     * or its previous row is unknown, and only the filters which don't refer to it are tried.
+     *
+     * @param pixels the packed RGB pixels, row by row
+     * @param nX     the number of pixels in a row
+     * @param from   the first row of the band in the pixels array
+     * @param to     the row after the last row of the band
+     * @param top    whether the first row of the pixels array is the first row of the image
+     * @param last   whether the band ends the image
+     * @return the deflated band
+     */
+    Band deflate(int[] pixels, int nX, int from, int to, boolean top, boolean last) {
+        int rowSize = 1 + BYTES_PER_PIXEL * nX;
+        byte[] raw = new byte[rowSize * (to - from)];
+        byte[] previous = new byte[rowSize - 1], current = new byte[rowSize - 1];
+        if (from > 0)
+            unpack(pixels, nX, from - 1, previous);
+        byte[][] candidates = new byte[5][rowSize - 1];
+        for (int y = from; y < to; ++y) {
+            unpack(pixels, nX, y, current);
+            int offset = (y - from) * rowSize;
+            int filter = FILTER_NONE;
+            byte[] filtered = current;
+            if (mode != Mode.FAST) {
+                long best = Long.MAX_VALUE;
+                int lastType = y == 0 && !top ? FILTER_SUB : FILTER_PAETH;
+                for (int type = FILTER_NONE; type <= lastType; ++type) {
+                    long cost = filter(type, current, previous, candidates[type]);
+                    if (cost < best) {
+                        best = cost;
+                        filter = type;
+                    }
+                }
+                filtered = candidates[filter];
+            }
+            raw[offset] = (byte) filter;
+            System.arraycopy(filtered, 0, raw, offset + 1, rowSize - 1);
+            byte[] t = previous; previous = current; current = t;
+        }
+
+        Adler32 adler = new Adler32();
+        adler.update(raw);
+        Deflater deflater = new Deflater(level(), true);
+        deflater.setInput(raw);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 64);
+        byte[] buffer = new byte[1 << 16];
+        if (last) {
+            deflater.finish();
+            while (!deflater.finished())
+                out.write(buffer, 0, deflater.deflate(buffer));
+        } else {
+            // A full flush ends the band on a byte boundary, and the next band doesn't refer back to it
+            int count;
+            do {
+                count = deflater.deflate(buffer, 0, buffer.length, Deflater.FULL_FLUSH);
+                out.write(buffer, 0, count);
+            } while (count == buffer.length);
+        }
+        deflater.end();
+        return new Band(out.toByteArray(), adler.getValue(), raw.length);
+    }
+
+    /**
+     * Unpacks a row of packed RGB pixels into bytes
+     *
+     * @param pixels the packed RGB pixels of the image
+     * @param nX     the number of pixels in a row
+     * @param y      the row
+     * @param row    the array of the red, green and blue bytes of the pixels to fill
+     */
+    private static void unpack(int[] pixels, int nX, int y, byte[] row) {
+        for (int x = 0, p = y * nX, i = 0; x < nX; ++x, ++p) {
+            int rgb = pixels[p];
+            row[i++] = (byte) (rgb >>> 16);
+            row[i++] = (byte) (rgb >>> 8);
+            row[i++] = (byte) rgb;
+        }
+    }
+
+    /**
+     * Filters a row by a filter type
+     *
+     * @param type     the filter type
+     * @param row      the row bytes
+     * @param previous the bytes of the previous row (zeros for the first row)
+     * @param filtered the array of the filtered bytes to fill
+     * @return the sum of the absolute values of the filtered bytes as signed bytes - the heuristic cost
+     * of the filter
+     */
+    private static long filter(int type, byte[] row, byte[] previous, byte[] filtered) {
+        long cost = 0;
+        for (int i = 0; i < row.length; ++i) {
+            int a = i < BYTES_PER_PIXEL ? 0 : row[i - BYTES_PER_PIXEL] & 0xFF;
+            int b = previous[i] & 0xFF;
+            int c = i < BYTES_PER_PIXEL ? 0 : previous[i - BYTES_PER_PIXEL] & 0xFF;
+            int predictor = switch (type) {
+                case FILTER_SUB -> a;
+                case FILTER_UP -> b;
+                case FILTER_AVERAGE -> (a + b) >>> 1;
+                case FILTER_PAETH -> paeth(a, b, c);
+                default -> 0;
+            };
+            byte value = (byte) (row[i] - predictor);
+            filtered[i] = value;
+            cost += Math.abs(value);
+        }
+        return cost;
+    }
+
+    /**
+     * The Paeth predictor - the neighbor nearest to their linear estimate
+     *
+     * @param a the left byte
+     * @param b the upper byte
+     * @param c the upper left byte
+     * @return the predicted byte
+     */
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a), pb = Math.abs(p - b), pc = Math.abs(p - c);
+        return pa <= pb && pa <= pc ? a : pb <= pc ? b : c;
+    }
+
+    /**
+     * Combines the Adler-32 checksums of two consecutive byte sequences (like zlib's adler32_combine)
+     *
+     * @param adler1  the checksum of the first sequence
+     * @param adler2  the checksum of the second sequence
+     * @param length2 the length of the second sequence
+     * @return the checksum of the concatenated sequences
+     */
+    static long combineAdler(long adler1, long adler2, long length2) {
+        long remainder = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = remainder * sum1 % ADLER_BASE;
+        sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += ((adler1 >>> 16) & 0xFFFF) + ((adler2 >>> 16) & 0xFFFF) + ADLER_BASE - remainder;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum2 >= 2L * ADLER_BASE) sum2 -= 2L * ADLER_BASE;
+        if (sum2 >= ADLER_BASE) sum2 -= ADLER_BASE;
+        return sum1 | sum2 << 16;
+    }
+
+    /**
+     * Writes a PNG chunk - its length, type, data and CRC
+     *
+     * @param out  the output stream
+     * @param type the chunk type
+     * @param data the chunk data
+     * @throws IOException if the stream can't be written
+     */
+    private static void writeChunk(DataOutputStream out, String type, byte[] data) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        out.writeInt(data.length);
+        out.write(typeBytes);
+        out.write(data);
+        out.writeInt((int) crc.getValue());
+    }
+}
@@ -4,6 +4,7 @@ import primitives.Color;
 import primitives.Ray;
 import primitives.Point;
 import primitives.Vector;
+import scene.CompiledScene;
 import scene.Scene;
 
 /**
@@ -18,6 +19,11 @@ public abstract class RayTracerBase {
      */
     protected final Scene scene;
 
+    /**
+     * The immutable snapshot of the scene the rays are traced through, compiled when the tracer is prepared.
+     */
+    protected CompiledScene compiledScene;
+
     /**
      * Constructs a ray tracer for the specified scene.
      *
@@ -27,6 +33,31 @@ public abstract class RayTracerBase {
         this.scene = scene;
     }
 
+    /**
+     * Prepares the ray tracer for rendering the scene.
+     * <p>
+     * Called by the camera before rendering an image, when the scene is complete.
+     * The default implementation compiles the snapshot of the scene.
+     * </p>
+     */
+    public void prepare() {
+        compiledScene = scene == null ? null : scene.compile();
+    }
+
+    /**
+     * Updates the ray tracer after geometries of the scene moved, between the frames of an animation.
+     * <p>
+     * The default implementation refits the compiled snapshot of the scene, or compiles it
+     * if the tracer wasn't prepared yet. Geometries added to the scene require {@link #prepare()}.
+     * </p>
+     */
+    public void refit() {
+        if (compiledScene == null)
+            prepare();
+        else
+            compiledScene.refit();
+    }
+
     /**
      * Determines the color seen along the specified ray in the scene.
      *
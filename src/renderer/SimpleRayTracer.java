@@ -1,5 +1,11 @@
 package renderer;
 
+import geometries.BVH;
+import geometries.FlatGeometries;
+import geometries.Geometries;
+import geometries.Geometry;
+import geometries.Intersectable;
+import geometries.Instance;
 import geometries.Intersectable.Intersection;
 import lighting.DirectionalLight;
 import lighting.LightSource;
@@ -7,7 +13,12 @@ import lighting.PointLight;
 import primitives.*;
 import scene.Scene;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * A basic ray tracer for evaluating rays in a scene.
@@ -51,11 +62,70 @@ public class SimpleRayTracer extends RayTracerBase {
      */
     private static final Double3 INITIAL_K = Double3.ONE;
 
+    /**
+     * Shading kernels of the materials in the scene, classified when the tracer is prepared for rendering.
+     */
+    private Map<Material, MaterialKernel> kernels = new IdentityHashMap<>();
+
+    @Override
+    public void prepare() {
+        super.prepare();
+        Map<Material, MaterialKernel> kernels = new IdentityHashMap<>();
+        if (compiledScene != null)
+            collectKernels(compiledScene.geometries, kernels);
+        this.kernels = kernels;
+    }
+
+    /**
+     * Classifies the materials of a geometry (and of its nested geometries) into shading kernels.
+     *
+     * @param geometry the geometry to scan
+     * @param kernels  the map of the classified kernels to fill
+     */
+    private void collectKernels(Intersectable geometry, Map<Material, MaterialKernel> kernels) {
+        if (geometry instanceof Geometries geometries)
+            for (Intersectable child : geometries.getGeometries())
+                collectKernels(child, kernels);
+        else if (geometry instanceof FlatGeometries geometries)
+            for (Intersectable child : geometries.getGeometries())
+                collectKernels(child, kernels);
+        else if (geometry instanceof BVH bvh)
+            for (Intersectable child : bvh.getGeometries())
+                collectKernels(child, kernels);
+        else if (geometry instanceof Instance instance)
+            collectKernels(instance.getGeometry(), kernels);
+        else if (geometry instanceof Geometry g)
+            kernels.computeIfAbsent(g.getMaterial(), material -> new MaterialKernel(material, MIN_CALC_COLOR_K));
+    }
+
+    /**
+     * Returns the shading kernels classified when the tracer was prepared.
+     *
+     * @return an unmodifiable view of the kernels by material
+     */
+    Map<Material, MaterialKernel> getKernels() {
+        return Collections.unmodifiableMap(kernels);
+    }
+
+    /**
+     * Returns the shading kernel of a material.
+     * A material that was not in the scene when the tracer was prepared is classified on the fly.
+     *
+     * @param material the material
+     * @return the shading kernel of the material
+     */
+    private MaterialKernel getKernel(Material material) {
+        MaterialKernel kernel = kernels.get(material);
+        return kernel != null ? kernel : new MaterialKernel(material, MIN_CALC_COLOR_K);
+    }
+
     @Override
     public Color traceRay(Ray ray) {
+        if (compiledScene == null)
+            prepare();
         Intersection intersections = findClosestIntersection(ray);
         return intersections == null
-                ? scene.background
+                ? compiledScene.background
                 : calcColor(intersections, ray);
     }
 
@@ -72,7 +142,7 @@ public class SimpleRayTracer extends RayTracerBase {
     private Color calcColor(Intersection intersection, Ray ray) {
         return preprocessIntersection(intersection, ray.getDirection()) ?
                 calcColor(intersection, MAX_CALC_COLOR_LEVEL, INITIAL_K)
-                        .add(scene.ambientLight.getIntensity().scale(intersection.material.kA)) : Color.BLACK;
+                        .add(compiledScene.ambientLight.getIntensity().scale(intersection.material.kA)) : Color.BLACK;
     }
 
     /**
@@ -84,8 +154,10 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return the resulting color at the intersection
      */
     private Color calcColor(Intersection intersection, int level, Double3 k) {
-        Color color = calcLocalEffects(intersection, k);
-        return 1 == level ? color : color.add(calcGlobalEffects(intersection, level, k));
+        MaterialKernel kernel = getKernel(intersection.material);
+        Color color = calcLocalEffects(intersection, kernel, k);
+        return 1 == level || !(kernel.reflective || kernel.refractive) ? color
+                : color.add(calcGlobalEffects(intersection, kernel, level, k));
     }
 
     /**
@@ -97,7 +169,9 @@ public class SimpleRayTracer extends RayTracerBase {
      */
     private Boolean preprocessIntersection(Intersection intersection, Vector rayDirection) {
         intersection.v = rayDirection;
-        intersection.normal = intersection.geometry.getNormal(intersection.point);
+        // Some geometries (e.g. meshes) set the normal when they find the intersection
+        if (intersection.normal == null)
+            intersection.normal = intersection.geometry.getNormal(intersection.point);
         intersection.vNormal = intersection.v.dotProduct(intersection.normal);
         return !Util.isZero(intersection.vNormal);
     }
@@ -118,49 +192,157 @@ public class SimpleRayTracer extends RayTracerBase {
 
     /**
      * Calculates the local lighting effects (diffuse and specular) at the intersection point.
+     * <p>
+     * When the scene limits the number of light samples and holds more lights than that,
+     * the lights are sampled stochastically instead of being evaluated one by one.
+     * </p>
      *
      * @param intersection the intersection to evaluate
+     * @param kernel       the shading kernel of the intersection's material
+     * @param k            the accumulated transparency/reflection coefficient
      * @return the resulting color from all local light sources
      */
-    private Color calcLocalEffects(Intersection intersection, Double3 k) {
+    private Color calcLocalEffects(Intersection intersection, MaterialKernel kernel, Double3 k) {
         Color color = intersection.geometry.getEmission();
-        for (LightSource lightSource : scene.lights) {
-            boolean checking = setLightSource(intersection, lightSource);
-            if (lightSource instanceof DirectionalLight || lightSource instanceof PointLight && ((PointLight) lightSource).getNumOfRays() == 1 && ((PointLight) lightSource).getRadius() == 0) {
-                if (!checking)
-                    continue;
+        if (!kernel.lit)
+            return color;
+        if (compiledScene.lightSamples > 0 && compiledScene.lights.size() > compiledScene.lightSamples)
+            return color.add(sampleLocalEffects(intersection, kernel, k, compiledScene.lightSamples));
+        for (LightSource lightSource : compiledScene.lights) {
+            Color iL = calcUnshadedLight(intersection, kernel, lightSource, k);
+            if (iL == null)
+                continue;
+            Double3 ktr = transparency(intersection);
+            if (!ktr.product(k).lowerThan(MIN_CALC_COLOR_K))
+                color = color.add(iL.scale(ktr));
+        }
+        return color;
+    }
+
+    /**
+     * Calculates the local lighting effects by sampling the light sources according to their
+     * unshadowed contribution at the intersection point.
+     * <p>
+     * Every light is weighted by its unshadowed contribution, which is cheap to evaluate.
+     * Only the chosen lights cast shadow rays, and their contribution is divided by the probability
+     * of choosing them, so the estimate stays unbiased.
+     * </p>
+     *
+     * @param intersection the intersection to evaluate
+     * @param kernel       the shading kernel of the intersection's material
+     * @param k            the accumulated transparency/reflection coefficient
+     * @param samples      the number of lights to sample
+     * @return the resulting color from the sampled light sources
+     */
+    private Color sampleLocalEffects(Intersection intersection, MaterialKernel kernel, Double3 k, int samples) {
+        int size = compiledScene.lights.size();
+        LightSource[] lights = new LightSource[size];
+        Color[] contributions = new Color[size];
+        double[] cumulativeWeights = new double[size];
+        int count = 0;
+        double totalWeight = 0;
+        for (LightSource lightSource : compiledScene.lights) {
+            Color iL = calcUnshadedLight(intersection, kernel, lightSource, k);
+            if (iL == null)
+                continue;
+            Double3 rgb = iL.getRgb();
+            double weight = rgb.d1() + rgb.d2() + rgb.d3();
+            if (weight <= 0)
+                continue;
+            lights[count] = lightSource;
+            contributions[count] = iL;
+            totalWeight += weight;
+            cumulativeWeights[count++] = totalWeight;
+        }
+
+        Color color = Color.BLACK;
+        boolean sampled = count > samples;
+        int rounds = sampled ? samples : count;
+        for (int s = 0; s < rounds; ++s) {
+            int index = s;
+            if (sampled) {
+                index = Arrays.binarySearch(cumulativeWeights, 0, count, ThreadLocalRandom.current().nextDouble() * totalWeight);
+                if (index < 0)
+                    index = Math.min(-index - 1, count - 1);
             }
+            setLightSource(intersection, lights[index]);
             Double3 ktr = transparency(intersection);
-            if (!ktr.product(k).lowerThan(MIN_CALC_COLOR_K)) {
-                Color iL = lightSource.getIntensity(intersection.point).scale(ktr);
-                color = color.add(
-                        iL.scale(calcDiffusive(intersection)
-                                .add(calcSpecular(intersection)))
-                );
+            if (ktr.product(k).lowerThan(MIN_CALC_COLOR_K))
+                continue;
+            Color iL = contributions[index].scale(ktr);
+            if (sampled) {
+                double weight = cumulativeWeights[index] - (index == 0 ? 0 : cumulativeWeights[index - 1]);
+                iL = iL.scale(totalWeight / (weight * samples));
             }
+            color = color.add(iL);
         }
         return color;
     }
 
+    /**
+     * Calculates the contribution of a light source at the intersection point ignoring shadows.
+     * <p>
+     * Lights which don't reach the point, and lights whose bounded contribution - the light intensity
+     * scaled by the diffuse and specular coefficients and by the accumulated attenuation - is negligible,
+     * are culled here before any shadow ray is cast.
+     * </p>
+     *
+     * @param intersection the intersection to evaluate, its light data is updated for the light source
+     * @param kernel       the shading kernel of the intersection's material
+     * @param lightSource  the light source to evaluate
+     * @param k            the accumulated transparency/reflection coefficient
+     * @return the unshadowed contribution of the light, or {@code null} if the light can be skipped
+     */
+    private Color calcUnshadedLight(Intersection intersection, MaterialKernel kernel, LightSource lightSource, Double3 k) {
+        if (!setLightSource(intersection, lightSource) && isPointSource(lightSource))
+            return null;
+        Color iL = lightSource.getIntensity(intersection.point);
+        if (iL.getRgb().product(kernel.kLocal).product(k).lowerThan(MIN_CALC_COLOR_K))
+            return null;
+        Double3 factor = kernel.specular ? calcSpecular(intersection, kernel) : Double3.ZERO;
+        if (kernel.diffuse)
+            factor = factor.add(calcDiffusive(intersection, kernel));
+        return iL.scale(factor);
+    }
+
+    /**
+     * Checks whether a light source is treated as a single point, so it can't light a surface
+     * from the side the viewer doesn't see.
+     *
+     * @param lightSource the light source to check
+     * @return true if the light source is a directional light or a point light without soft shadows
+     */
+    private boolean isPointSource(LightSource lightSource) {
+        return lightSource instanceof DirectionalLight
+                || lightSource instanceof PointLight pointLight
+                && pointLight.getNumOfRays() == 1 && pointLight.getRadius() == 0;
+    }
+
     /**
      * Calculates the specular reflection component at the intersection point.
      *
      * @param intersection the intersection to evaluate
+     * @param kernel       the shading kernel of the intersection's material
      * @return the specular component as a scaling factor
      */
-    private Double3 calcSpecular(Intersection intersection) {
-        Vector r = intersection.l.add(intersection.normal.scale(intersection.lNormal * -2));
-        return intersection.material.kS.scale(Math.pow(Math.max(0, -1 * intersection.v.dotProduct(r)), intersection.material.nShininess));
+    private Double3 calcSpecular(Intersection intersection, MaterialKernel kernel) {
+        // r = l - 2 * (l * n) * n, calculated without creating it
+        Vector l = intersection.l, normal = intersection.normal;
+        double scale = intersection.lNormal * -2;
+        double vr = VectorMath.dot(intersection.v, l.getX() + normal.getX() * scale,
+                l.getY() + normal.getY() * scale, l.getZ() + normal.getZ() * scale);
+        return kernel.kS.scale(kernel.shininess(Math.max(0, -1 * vr)));
     }
 
     /**
      * Calculates the diffuse reflection component at the intersection point.
      *
      * @param intersection the intersection to evaluate
+     * @param kernel       the shading kernel of the intersection's material
      * @return the diffuse component as a scaling factor
      */
-    private Double3 calcDiffusive(Intersection intersection) {
-        return intersection.material.kD.scale(Math.abs(intersection.lNormal));
+    private Double3 calcDiffusive(Intersection intersection, MaterialKernel kernel) {
+        return kernel.kD.scale(Math.abs(intersection.lNormal));
     }
 
     /**
@@ -170,8 +352,8 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return true if the point is not shadowed (i.e., light reaches it), false otherwise
      */
     private boolean unshaded(Intersection intersection) {
-        var intersections = scene.geometries.calculateIntersections(
-                new Ray(intersection.point, intersection.l.scale(-1), intersection.normal),
+        var intersections = compiledScene.geometries.calculateIntersections(
+                Ray.ofUnit(intersection.point, intersection.l.scale(-1), intersection.normal),
                 intersection.light.getDistance(intersection.point));
         if (intersections == null)
             return true;
@@ -194,7 +376,7 @@ public class SimpleRayTracer extends RayTracerBase {
     private Double3 transparency(Intersection intersection) {
         if (!(intersection.light instanceof DirectionalLight) && ((PointLight) intersection.light).getRadius() != 0.0
                 && ((PointLight) intersection.light).getNumOfRays() > 1) {
-            Ray mainRay = new Ray(intersection.point, intersection.l.scale(-1), intersection.normal);
+            Ray mainRay = Ray.ofUnit(intersection.point, intersection.l.scale(-1), intersection.normal);
             List<Ray> rayBeam = beamCreator(mainRay, ((PointLight) intersection.light).getRadius(),
                     intersection.light.getDistance(intersection.point), ((PointLight) intersection.light).getNumOfRays());
             Double3 ktrTotal = Double3.ZERO;
@@ -202,7 +384,7 @@ public class SimpleRayTracer extends RayTracerBase {
             for (Ray ray : rayBeam) {
                 if (Util.alignZero(ray.getDirection().dotProduct(intersection.normal) * intersection.vNormal) < 0) {
                     validRays++;
-                    var intersections = scene.geometries.calculateIntersections(
+                    var intersections = compiledScene.geometries.calculateIntersections(
                             ray,
                             intersection.light.getDistance(intersection.point));
                     Double3 ktr = Double3.ONE;
@@ -221,8 +403,8 @@ public class SimpleRayTracer extends RayTracerBase {
             return ktrTotal.reduce(validRays);
         }
 
-        var intersections = scene.geometries.calculateIntersections(
-                new Ray(intersection.point, intersection.l.scale(-1), intersection.normal),
+        var intersections = compiledScene.geometries.calculateIntersections(
+                Ray.ofUnit(intersection.point, intersection.l.scale(-1), intersection.normal),
                 intersection.light.getDistance(intersection.point));
         Double3 ktr = Double3.ONE;
         if (intersections == null)
@@ -251,57 +433,58 @@ public class SimpleRayTracer extends RayTracerBase {
                 rayToBeam,
                 distance,
                 numRays,
-                scene.samplingPattern));
+                compiledScene.samplingPattern));
     }
 
     /**
      * Calculates the global lighting effects (reflection and refraction) at the intersection point.
+     * Only the effects the material's kernel has are traced.
      *
      * @param intersection the intersection point being evaluated
+     * @param kernel       the shading kernel of the intersection's material
      * @param level        the recursion level for global lighting
      * @param k            the accumulated transparency/reflection coefficient
      * @return the resulting color from global lighting effects
      */
-    private Color calcGlobalEffects(Intersection intersection, int level, Double3 k) {
+    private Color calcGlobalEffects(Intersection intersection, MaterialKernel kernel, int level, Double3 k) {
         Color refractedColor = Color.BLACK;
         Color reflectedColor = Color.BLACK;
-        Ray refractedRay = constructRefractedRay(intersection);
-        if (intersection.material.targetAreaSizeBlurry == 0.0 ||
-                intersection.material.targetAreaDistanceBlurry == 0.0 || intersection.material.numOfRaysBlurry == 1) {
-
-            refractedColor = calcGlobalEffect(refractedRay, level, k, intersection.material.kT);
-
-        } else {
-            List<Ray> refractedBeam = beamCreator(refractedRay, intersection.material.targetAreaSizeBlurry,
-                    intersection.material.targetAreaDistanceBlurry, intersection.material.numOfRaysBlurry);
-            int validRayCount = 0;
-            for (Ray ray : refractedBeam) {
-                if (Util.alignZero(ray.getDirection().dotProduct(intersection.normal) * intersection.vNormal) > 0) {
-                    validRayCount++;
-                    refractedColor = refractedColor.add(calcGlobalEffect(ray, level, k, intersection.material.kT));
+        if (kernel.refractive) {
+            Ray refractedRay = constructRefractedRay(intersection);
+            if (!kernel.blurry) {
+                refractedColor = calcGlobalEffect(refractedRay, level, k, kernel.kT);
+            } else {
+                List<Ray> refractedBeam = beamCreator(refractedRay, kernel.targetAreaSizeBlurry,
+                        kernel.targetAreaDistanceBlurry, kernel.numOfRaysBlurry);
+                int validRayCount = 0;
+                for (Ray ray : refractedBeam) {
+                    if (Util.alignZero(ray.getDirection().dotProduct(intersection.normal) * intersection.vNormal) > 0) {
+                        validRayCount++;
+                        refractedColor = refractedColor.add(calcGlobalEffect(ray, level, k, kernel.kT));
+                    }
                 }
-            }
 
-            refractedColor = refractedColor.reduce(validRayCount);
+                refractedColor = refractedColor.reduce(validRayCount);
+            }
         }
 
-        Ray reflectedRay = constructReflectedRay(intersection);
-        if (intersection.material.targetAreaSizeGlossy == 0.0 ||
-                intersection.material.targetAreaDistanceGlossy == 0.0 || intersection.material.numOfRaysGlossy == 1) {
-            reflectedColor = calcGlobalEffect(reflectedRay, level, k, intersection.material.kR);
-
-        } else {
-            List<Ray> reflectedBeam = beamCreator(reflectedRay, intersection.material.targetAreaSizeGlossy,
-                    intersection.material.targetAreaDistanceGlossy, intersection.material.numOfRaysGlossy);
-            int validRayCount = 0;
-            for (Ray ray : reflectedBeam) {
-                if (Util.alignZero(ray.getDirection().dotProduct(intersection.normal) * intersection.vNormal) < 0) {
-                    validRayCount++;
-                    reflectedColor = reflectedColor.add(calcGlobalEffect(ray, level, k, intersection.material.kR));
+        if (kernel.reflective) {
+            Ray reflectedRay = constructReflectedRay(intersection);
+            if (!kernel.glossy) {
+                reflectedColor = calcGlobalEffect(reflectedRay, level, k, kernel.kR);
+            } else {
+                List<Ray> reflectedBeam = beamCreator(reflectedRay, kernel.targetAreaSizeGlossy,
+                        kernel.targetAreaDistanceGlossy, kernel.numOfRaysGlossy);
+                int validRayCount = 0;
+                for (Ray ray : reflectedBeam) {
+                    if (Util.alignZero(ray.getDirection().dotProduct(intersection.normal) * intersection.vNormal) < 0) {
+                        validRayCount++;
+                        reflectedColor = reflectedColor.add(calcGlobalEffect(ray, level, k, kernel.kR));
+                    }
                 }
-            }
 
-            reflectedColor = reflectedColor.reduce(validRayCount);
+                reflectedColor = reflectedColor.reduce(validRayCount);
+            }
         }
 
         return refractedColor.add(reflectedColor);
@@ -321,7 +504,7 @@ public class SimpleRayTracer extends RayTracerBase {
         Double3 kkx = k.product(kx);
         if (kkx.lowerThan(MIN_CALC_COLOR_K)) return Color.BLACK;
         Intersection intersection = findClosestIntersection(ray);
-        if (intersection == null) return scene.background.scale(kx);
+        if (intersection == null) return compiledScene.background.scale(kx);
         return preprocessIntersection(intersection, ray.getDirection())
                 ? calcColor(intersection, level - 1, kkx).scale(kx) : Color.BLACK;
     }
@@ -333,7 +516,7 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return the refracted ray
      */
     private Ray constructRefractedRay(Intersection intersection) {
-        return new Ray(intersection.point, intersection.v, intersection.normal);
+        return Ray.ofUnit(intersection.point, intersection.v, intersection.normal);
     }
 
     /**
@@ -343,8 +526,12 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return the reflected ray
      */
     private Ray constructReflectedRay(Intersection intersection) {
-        Vector r = intersection.v.add(intersection.normal.scale(intersection.vNormal * -2));
-        return new Ray(intersection.point, r, intersection.normal);
+        Vector v = intersection.v, normal = intersection.normal;
+        double scale = intersection.vNormal * -2;
+        // Reflecting a unit vector about a unit normal keeps its length
+        Vector r = Vector.ofUnit(v.getX() + normal.getX() * scale, v.getY() + normal.getY() * scale,
+                v.getZ() + normal.getZ() * scale);
+        return Ray.ofUnit(intersection.point, r, intersection.normal);
     }
 
     /**
@@ -354,8 +541,7 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return the closest intersection, or {@code null} if there are no intersections
      */
     private Intersection findClosestIntersection(Ray ray) {
-        var intersections = scene.geometries.calculateIntersections(ray);
-        return intersections == null ? null : ray.findClosestIntersection(intersections);
+        return compiledScene.geometries.calculateClosestIntersection(ray);
     }
 
 }
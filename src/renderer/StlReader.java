@@ -1,14 +1,34 @@
 package renderer;
 
 import geometries.Triangle;
+import geometries.TriangleMesh;
 import primitives.Point;
+import primitives.Transform;
 import primitives.Vector;
 
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static primitives.Util.isZero;
 
 /**
  * STL File Reader and Converter
@@ -20,116 +40,1030 @@ public class StlReader {
      * Reads an ASCII STL file and returns list of triangles
      */
     public static List<Triangle> readASCIISTL(String filename) throws IOException {
-        List<Triangle> triangles = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-            String line;
-            Point normal = null;
-            Point[] vertices = new Point[3];
-            int vertexIndex = 0;
+        return toTriangles(readASCIIFacets(filename));
+    }
 
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
+    /**
+     * Size of the part of an ASCII STL file in which a single task looks for facets when the file is parsed in parallel
+     */
+    private static final long ASCII_CHUNK_SIZE = 1 << 24;
 
-                if (line.startsWith("facet normal")) {
-                    String[] parts = line.split("\\s+");
-                    normal = new Point(
-                            Double.parseDouble(parts[2]),
-                            Double.parseDouble(parts[3]),
-                            Double.parseDouble(parts[4])
-                    );
-                    vertexIndex = 0;
-                } else if (line.startsWith("vertex")) {
-                    String[] parts = line.split("\\s+");
-                    vertices[vertexIndex++] = new Point(
-                            Double.parseDouble(parts[1]),
-                            Double.parseDouble(parts[2]),
-                            Double.parseDouble(parts[3])
-                    );
-                } else if (line.equals("endfacet")) {
-                    if (normal != null && vertexIndex == 3) {
-                        try {
-                            triangles.add(new Triangle(vertices[0], vertices[1], vertices[2]));
-                        }
-                        catch (Exception e) {
-                            continue;
-                        }
+    /**
+     * Size of the region mapped beyond the end of an ASCII chunk, for the last facet which starts in the chunk
+     */
+    private static final long ASCII_CHUNK_TAIL = 1 << 16;
+
+    /**
+     * Reads the facets of an ASCII STL file into a primitive array of vertex coordinates.
+     * <p>
+     * The file is split into chunks which are memory mapped and tokenized in parallel directly from the bytes.
+     * Each chunk parses the facets whose {@code facet} line starts inside it, so a facet crossing a chunk boundary
+     * is parsed by the chunk in which it starts. The numbers are parsed by {@link #parseNumber}, which gives the same
+     * values as {@link Double#parseDouble}. Facets without a normal line or without exactly three vertices,
+     * and degenerate facets, are skipped.
+     * </p>
+     *
+     * @param filename STL file path
+     * @return the coordinates of the facets vertices, {@link #FACET_COORDINATES} per facet
+     * @throws IOException if the file can't be read or has a malformed number
+     */
+    public static double[] readASCIIFacets(String filename) throws IOException {
+        return concat(readASCIIChunks(filename));
+    }
+
+    /**
+     * Reads the facets of an ASCII STL file in parallel chunks, as described in {@link #readASCIIFacets}.
+     *
+     * @param filename STL file path
+     * @return the coordinates of the facets vertices of each chunk, in the file order
+     * @throws IOException if the file can't be read or has a malformed number
+     */
+    private static double[][] readASCIIChunks(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            return parseAll(asciiChunks(channel));
+        }
+    }
+
+    /**
+     * Splits an ASCII STL file into chunks which are parsed independently, as described in {@link #readASCIIFacets}.
+     *
+     * @param channel the channel of the file, open while the chunks are parsed
+     * @return the chunks of the file
+     * @throws IOException if the file size can't be read
+     */
+    private static ChunkedFile asciiChunks(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int chunks = (int) Math.max(1, (size + ASCII_CHUNK_SIZE - 1) / ASCII_CHUNK_SIZE);
+        return new ChunkedFile(chunks, chunk -> {
+            long start = chunk * ASCII_CHUNK_SIZE;
+            long end = Math.min(size, start + ASCII_CHUNK_SIZE);
+            // Map one byte before the chunk to know whether the chunk starts at a line start
+            long mapStart = Math.max(0, start - 1);
+            long mapEnd = Math.min(size, end + ASCII_CHUNK_TAIL);
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+            return new AsciiParser(buffer, (int) (start - mapStart), (int) (end - mapStart), mapEnd == size).parse();
+        });
+    }
+
+    /**
+     * Exact powers of ten which are representable as {@code double} values
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Largest mantissa which is exactly representable as a {@code double} value
+     */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /**
+     * Parses a decimal number from bytes without allocation.
+     * <p>
+     * When both the digits and the power of ten are exactly representable as {@code double} values,
+     * the result is a single correctly rounded multiplication or division, which equals the result
+     * of {@link Double#parseDouble}. Other numbers (too many digits, large exponents or other notations)
+     * fall back to {@link Double#parseDouble}.
+     * </p>
+     *
+     * @param buffer the bytes buffer
+     * @param start  the index of the first byte of the number
+     * @param end    the index after the last byte of the number
+     * @return the parsed number
+     * @throws NumberFormatException if the bytes are not a number
+     */
+    static double parseNumber(ByteBuffer buffer, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+'))
+            negative = buffer.get(i++) == '-';
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean exact = true;
+        boolean any = false;
+        byte b;
+        for (; i < end && (b = buffer.get(i)) >= '0' && b <= '9'; i++) {
+            any = true;
+            if (mantissa == 0 && b == '0')
+                continue;
+            if (digits < 18) {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+            } else {
+                exact = false;
+                exponent++;
+            }
+        }
+        if (i < end && buffer.get(i) == '.')
+            for (i++; i < end && (b = buffer.get(i)) >= '0' && b <= '9'; i++) {
+                any = true;
+                if (mantissa == 0 && b == '0') {
+                    exponent--;
+                } else if (digits < 18) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    digits++;
+                    exponent--;
+                } else if (b != '0')
+                    exact = false;
+            }
+        if (any && i < end && (buffer.get(i) == 'e' || buffer.get(i) == 'E')) {
+            int j = i + 1;
+            boolean negativeExponent = false;
+            if (j < end && (buffer.get(j) == '-' || buffer.get(j) == '+'))
+                negativeExponent = buffer.get(j++) == '-';
+            int value = 0;
+            boolean exponentDigits = false;
+            for (; j < end && (b = buffer.get(j)) >= '0' && b <= '9'; j++) {
+                exponentDigits = true;
+                if (value < 10_000)
+                    value = value * 10 + (b - '0');
+            }
+            if (exponentDigits) {
+                exponent += negativeExponent ? -value : value;
+                i = j;
+            }
+        }
+        if (any && i == end && exact) {
+            if (mantissa == 0)
+                return negative ? -0.0 : 0.0;
+            if (mantissa <= MAX_EXACT_MANTISSA && exponent >= -22 && exponent <= 22) {
+                double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+                return negative ? -value : value;
+            }
+        }
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Byte-level parser of a chunk of an ASCII STL file.
+     * <p>
+     * The parser works line by line like the original line reader: the first word of a line
+     * ({@code facet}, {@code vertex} or {@code endfacet}) determines its meaning and other lines are ignored.
+     * </p>
+     */
+    private static final class AsciiParser {
+        /** The mapped bytes of the chunk */
+        private final ByteBuffer buffer;
+        /** The index of the first byte of the chunk in the buffer */
+        private final int start;
+        /** The index after the last byte of the chunk - facets starting at or after it belong to the next chunk */
+        private final int end;
+        /** Whether the buffer reaches the end of the file */
+        private final boolean lastRegion;
+        /** The index of the current byte */
+        private int position;
+        /** The vertex coordinates of the parsed facets */
+        private double[] facets = new double[FACET_COORDINATES * 1024];
+        /** The number of coordinates stored in the facets array */
+        private int size = 0;
+
+        /**
+         * Constructs a parser of a chunk
+         *
+         * @param buffer     the mapped bytes of the chunk and of its surroundings
+         * @param start      the index of the first byte of the chunk in the buffer
+         * @param end        the index after the last byte of the chunk in the buffer
+         * @param lastRegion whether the buffer reaches the end of the file
+         */
+        AsciiParser(ByteBuffer buffer, int start, int end, boolean lastRegion) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+            this.lastRegion = lastRegion;
+        }
+
+        /**
+         * Parses the facets which start in the chunk
+         *
+         * @return the coordinates of the vertices of the valid facets
+         * @throws IOException if a facet exceeds the mapped region or a number is malformed
+         */
+        double[] parse() throws IOException {
+            position = start;
+            // A chunk which doesn't start at a line start begins at the next line
+            if (start > 0 && buffer.get(start - 1) != '\n')
+                skipLine();
+
+            boolean normal = false;
+            boolean inChunk = false;
+            boolean open = false;
+            int vertexIndex = 0;
+            int limit = buffer.limit();
+            while (position < limit) {
+                int lineStart = position;
+                skipSpaces();
+                int wordStart = position;
+                int wordEnd = skipWord();
+                if (isWord(wordStart, wordEnd, "facet")) {
+                    if (lineStart >= end)
+                        break;
+                    skipSpaces();
+                    if (isWord(position, skipWord(), "normal")) {
+                        normal = true;
+                        inChunk = true;
+                        open = true;
+                        vertexIndex = 0;
                     }
+                } else if (inChunk && isWord(wordStart, wordEnd, "vertex")) {
+                    if (vertexIndex == 3)
+                        throw new IOException("Too many vertices in a facet");
+                    ensureCapacity();
+                    for (int c = 0; c < 3; c++)
+                        facets[size + 3 * vertexIndex + c] = readNumber();
+                    vertexIndex++;
+                } else if (inChunk && isWord(wordStart, wordEnd, "endfacet")) {
+                    skipSpaces();
+                    if (isLineEnd() && normal && vertexIndex == 3 && !isDegenerate(facets, size))
+                        size += FACET_COORDINATES;
+                    open = false;
+                    vertexIndex = 0;
                 }
+                skipLine();
             }
+            // The mapped region ended inside the last facet of the chunk
+            if (open && position >= limit && !lastRegion)
+                throw new IOException("An ASCII STL facet is too long");
+            return Arrays.copyOf(facets, size);
         }
 
-        return triangles;
+        /**
+         * Makes sure there is room for another facet in the facets array
+         */
+        private void ensureCapacity() {
+            if (size + FACET_COORDINATES > facets.length)
+                facets = Arrays.copyOf(facets, facets.length * 2);
+        }
+
+        /**
+         * Skips spaces and tabs (but not line ends)
+         */
+        private void skipSpaces() {
+            int limit = buffer.limit();
+            byte b;
+            while (position < limit && ((b = buffer.get(position)) == ' ' || b == '\t'))
+                position++;
+        }
+
+        /**
+         * Skips a word - a sequence of non-whitespace bytes
+         *
+         * @return the index after the end of the word
+         */
+        private int skipWord() {
+            int limit = buffer.limit();
+            while (position < limit && buffer.get(position) > ' ')
+                position++;
+            return position;
+        }
+
+        /**
+         * Skips to the start of the next line
+         */
+        private void skipLine() {
+            int limit = buffer.limit();
+            while (position < limit && buffer.get(position++) != '\n') {
+                // skip the rest of the line
+            }
+        }
+
+        /**
+         * Checks whether the current position is at the end of a line
+         *
+         * @return true if the current byte is a line end or there are no more bytes
+         */
+        private boolean isLineEnd() {
+            return position >= buffer.limit() || buffer.get(position) == '\n' || buffer.get(position) == '\r';
+        }
+
+        /**
+         * Compares a word in the buffer with a keyword
+         *
+         * @param wordStart the index of the first byte of the word
+         * @param wordEnd   the index after the last byte of the word
+         * @param keyword   the keyword
+         * @return true if the word equals the keyword
+         */
+        private boolean isWord(int wordStart, int wordEnd, String keyword) {
+            if (wordEnd - wordStart != keyword.length())
+                return false;
+            for (int i = 0; i < keyword.length(); i++)
+                if (buffer.get(wordStart + i) != keyword.charAt(i))
+                    return false;
+            return true;
+        }
+
+        /**
+         * Reads the next number on the current line
+         *
+         * @return the number
+         * @throws IOException if there is no number or it is malformed
+         */
+        private double readNumber() throws IOException {
+            skipSpaces();
+            int numberStart = position;
+            int numberEnd = skipWord();
+            if (numberStart == numberEnd)
+                throw new IOException("Missing vertex coordinate in an ASCII STL file");
+            try {
+                return parseNumber(buffer, numberStart, numberEnd);
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed vertex coordinate in an ASCII STL file", e);
+            }
+        }
     }
 
+    /**
+     * Size of the binary STL header (80 bytes of text followed by 4 bytes of facets count)
+     */
+    private static final int BINARY_HEADER_SIZE = 84;
+
+    /**
+     * Size of a facet record in a binary STL file: normal and three vertices (12 floats) and 2 bytes of attributes
+     */
+    private static final int BINARY_FACET_SIZE = 50;
+
+    /**
+     * Number of coordinates stored per facet in a facets array - x, y, z of each of the three vertices
+     */
+    public static final int FACET_COORDINATES = 9;
+
+    /**
+     * Number of facets parsed by a single task when a file is parsed in parallel
+     */
+    private static final int FACETS_PER_CHUNK = 1 << 16;
+
     /**
      * Reads a Binary STL file and returns list of triangles
      */
     public static List<Triangle> readBinarySTL(String filename) throws IOException {
-        List<Triangle> triangles = new ArrayList<>();
+        return toTriangles(readBinaryFacets(filename));
+    }
 
-        try (FileInputStream fis = new FileInputStream(filename);
-             BufferedInputStream bis = new BufferedInputStream(fis)) {
+    /**
+     * Reads the facets of a Binary STL file into a primitive array of vertex coordinates.
+     * <p>
+     * The file is memory mapped and parsed in parallel chunks, each chunk mapping its own region of the file.
+     * Degenerate facets, which can't form a triangle, are skipped.
+     * </p>
+     *
+     * @param filename STL file path
+     * @return the coordinates of the facets vertices, {@link #FACET_COORDINATES} per facet
+     * @throws IOException if the file can't be read or is shorter than its facets count states
+     */
+    public static double[] readBinaryFacets(String filename) throws IOException {
+        return concat(readBinaryChunks(filename));
+    }
 
-            // Skip 80-byte header
-            bis.skip(80);
+    /**
+     * Reads the facets of a Binary STL file in parallel chunks, as described in {@link #readBinaryFacets}.
+     *
+     * @param filename STL file path
+     * @return the coordinates of the facets vertices of each chunk, in the file order
+     * @throws IOException if the file can't be read or is shorter than its facets count states
+     */
+    private static double[][] readBinaryChunks(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            return parseAll(binaryChunks(filename, channel));
+        }
+    }
 
-            // Read number of triangles (4 bytes, little-endian)
-            byte[] countBytes = new byte[4];
-            bis.read(countBytes);
-            int triangleCount = ByteBuffer.wrap(countBytes).order(ByteOrder.LITTLE_ENDIAN).getInt();
+    /**
+     * Splits a Binary STL file into chunks of {@link #FACETS_PER_CHUNK} facets, which are parsed independently.
+     *
+     * @param filename STL file path, for the error messages
+     * @param channel  the channel of the file, open while the chunks are parsed
+     * @return the chunks of the file
+     * @throws IOException if the file can't be read or is shorter than its facets count states
+     */
+    private static ChunkedFile binaryChunks(String filename, FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < BINARY_HEADER_SIZE)
+            throw new IOException("Binary STL file is too short: " + filename);
+        ByteBuffer countBytes = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        while (countBytes.hasRemaining())
+            if (channel.read(countBytes, BINARY_HEADER_SIZE - 4 + countBytes.position()) < 0)
+                throw new IOException("Binary STL file is too short: " + filename);
+        long facetCount = Integer.toUnsignedLong(countBytes.getInt(0));
+        if (BINARY_HEADER_SIZE + facetCount * BINARY_FACET_SIZE > size)
+            throw new IOException("Binary STL file is truncated: " + filename);
 
-            // Read each triangle (50 bytes each)
-            for (int i = 0; i < triangleCount; i++) {
-                byte[] triangleData = new byte[50];
-                bis.read(triangleData);
+        int chunks = (int) ((facetCount + FACETS_PER_CHUNK - 1) / FACETS_PER_CHUNK);
+        return new ChunkedFile(chunks, chunk -> {
+            long first = (long) chunk * FACETS_PER_CHUNK;
+            int count = (int) Math.min(FACETS_PER_CHUNK, facetCount - first);
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                    BINARY_HEADER_SIZE + first * BINARY_FACET_SIZE, (long) count * BINARY_FACET_SIZE);
+            return parseBinaryChunk(buffer.order(ByteOrder.LITTLE_ENDIAN), count);
+        });
+    }
 
-                ByteBuffer buffer = ByteBuffer.wrap(triangleData).order(ByteOrder.LITTLE_ENDIAN);
+    /**
+     * Parses a chunk of binary facet records, skipping degenerate facets.
+     *
+     * @param buffer the little-endian buffer of the facet records
+     * @param count  the number of facet records in the buffer
+     * @return the coordinates of the vertices of the valid facets
+     */
+    private static double[] parseBinaryChunk(ByteBuffer buffer, int count) {
+        double[] facets = new double[count * FACET_COORDINATES];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            // Skip the normal vector (3 floats) and read the three vertices (9 floats)
+            int offset = i * BINARY_FACET_SIZE + 12;
+            for (int c = 0; c < FACET_COORDINATES; c++)
+                facets[size + c] = buffer.getFloat(offset + 4 * c);
+            if (!isDegenerate(facets, size))
+                size += FACET_COORDINATES;
+        }
+        return size == facets.length ? facets : Arrays.copyOf(facets, size);
+    }
 
-                // Normal vector (3 floats)
-                Point normal = new Point(
-                        buffer.getFloat(),
-                        buffer.getFloat(),
-                        buffer.getFloat()
-                );
+    /**
+     * Checks whether a facet is degenerate - the same conditions under which {@link Triangle}'s
+     * constructor rejects its vertices, but without throwing exceptions.
+     *
+     * @param facets the facets coordinates array
+     * @param offset the offset of the facet in the array
+     * @return true if two vertices coincide or the three vertices lie on the same line
+     */
+    static boolean isDegenerate(double[] facets, int offset) {
+        double ux = facets[offset] - facets[offset + 3];
+        double uy = facets[offset + 1] - facets[offset + 4];
+        double uz = facets[offset + 2] - facets[offset + 5];
+        double vx = facets[offset + 3] - facets[offset + 6];
+        double vy = facets[offset + 4] - facets[offset + 7];
+        double vz = facets[offset + 5] - facets[offset + 8];
+        return isZero(ux) && isZero(uy) && isZero(uz)
+                || isZero(vx) && isZero(vy) && isZero(vz)
+                || isZero(uy * vz - uz * vy) && isZero(uz * vx - ux * vz) && isZero(ux * vy - uy * vx);
+    }
 
-                // Three vertices (9 floats total)
-                Point v1 = new Point(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
-                Point v2 = new Point(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
-                Point v3 = new Point(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+    /**
+     * Parser of a single chunk of a file
+     */
+    @FunctionalInterface
+    private interface ChunkParser {
+        /**
+         * Parses a chunk
+         *
+         * @param chunk the chunk index
+         * @return the coordinates of the vertices of the valid facets of the chunk
+         * @throws IOException if the chunk can't be read or parsed
+         */
+        double[] parse(int chunk) throws IOException;
+    }
 
-                // Skip attribute byte count (2 bytes)
-                buffer.getShort();
-                try {
-                    triangles.add(new Triangle(v1, v2, v3));
-                }
-                catch (Exception e) {
-                    continue;
+    /**
+     * A file split into chunks of facets which are parsed independently, so they can be parsed in parallel
+     *
+     * @param count  the number of chunks
+     * @param parser the parser of a chunk
+     */
+    private record ChunkedFile(int count, ChunkParser parser) {
+        /**
+         * Parses a chunk, wrapping the I/O errors for the parallel tasks
+         *
+         * @param chunk the chunk index
+         * @return the coordinates of the vertices of the valid facets of the chunk
+         * @throws UncheckedIOException if the chunk can't be read or parsed
+         */
+        double[] parse(int chunk) {
+            try {
+                return parser.parse(chunk);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Parses all the chunks of a file in parallel
+     *
+     * @param file the chunked file
+     * @return the coordinates of the facets vertices of each chunk, in the file order
+     * @throws IOException if a chunk can't be read or parsed
+     */
+    private static double[][] parseAll(ChunkedFile file) throws IOException {
+        double[][] parsed = new double[file.count()][];
+        try {
+            IntStream.range(0, parsed.length).parallel().forEach(chunk -> parsed[chunk] = file.parse(chunk));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return parsed;
+    }
+
+    /**
+     * Parses the chunks of a file in parallel and passes them in the file order to a consumer on the calling thread.
+     * A chunk is consumed as soon as it and the chunks before it are parsed, while the following chunks are
+     * still parsed. Only a window of chunks ahead of the consumed one is parsed, so that a slow consumer
+     * doesn't make the whole file pile up in the memory.
+     *
+     * @param file     the chunked file
+     * @param consumer the consumer of the coordinates of the facets vertices of each chunk
+     * @throws IOException if a chunk can't be read or parsed
+     */
+    private static void forEachChunk(ChunkedFile file, Consumer<double[]> consumer) throws IOException {
+        int window = ForkJoinPool.getCommonPoolParallelism() + 1;
+        Deque<CompletableFuture<double[]>> parsing = new ArrayDeque<>();
+        try {
+            for (int chunk = 0, submitted = 0; chunk < file.count(); chunk++) {
+                for (; submitted < file.count() && submitted < chunk + window; submitted++) {
+                    int next = submitted;
+                    parsing.add(CompletableFuture.supplyAsync(() -> file.parse(next)));
                 }
+                consumer.accept(parsing.remove().join());
             }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io)
+                throw io.getCause();
+            throw e;
+        } finally {
+            parsing.forEach(future -> future.cancel(false));
         }
+    }
 
-        return triangles;
+    /**
+     * Concatenates chunks of facets coordinates in order.
+     *
+     * @param chunks the chunks of coordinates
+     * @return the concatenated coordinates
+     */
+    private static double[] concat(double[][] chunks) {
+        if (chunks.length == 1)
+            return chunks[0];
+        int size = 0;
+        for (double[] chunk : chunks)
+            size += chunk.length;
+        double[] facets = new double[size];
+        int position = 0;
+        for (double[] chunk : chunks) {
+            System.arraycopy(chunk, 0, facets, position, chunk.length);
+            position += chunk.length;
+        }
+        return facets;
+    }
+
+    /**
+     * Builds triangles from an array of non-degenerate facets, in parallel chunks.
+     *
+     * @param facets the coordinates of the facets vertices, {@link #FACET_COORDINATES} per facet
+     * @return the list of triangles in the facets order
+     */
+    public static List<Triangle> toTriangles(double[] facets) {
+        Triangle[] triangles = new Triangle[facets.length / FACET_COORDINATES];
+        IntStream.range(0, (triangles.length + FACETS_PER_CHUNK - 1) / FACETS_PER_CHUNK).parallel().forEach(chunk -> {
+            int end = Math.min(triangles.length, (chunk + 1) * FACETS_PER_CHUNK);
+            for (int i = chunk * FACETS_PER_CHUNK; i < end; i++) {
+                int offset = i * FACET_COORDINATES;
+                triangles[i] = new Triangle(
+                        new Point(facets[offset], facets[offset + 1], facets[offset + 2]),
+                        new Point(facets[offset + 3], facets[offset + 4], facets[offset + 5]),
+                        new Point(facets[offset + 6], facets[offset + 7], facets[offset + 8]));
+            }
+        });
+        return new ArrayList<>(Arrays.asList(triangles));
     }
 
     /**
      * Automatically detects STL format and reads the file
      */
     public static List<Triangle> readSTL(String filename) throws IOException {
-        // Try to detect if file is ASCII or Binary
+        return toTriangles(readFacets(filename));
+    }
+
+    /**
+     * Checks whether an STL file is in ASCII format
+     *
+     * @param filename STL file path
+     * @return true if the file is an ASCII STL file, false if it is a binary one
+     */
+    private static boolean isASCII(String filename) throws IOException {
         try (FileInputStream fis = new FileInputStream(filename)) {
             byte[] header = new byte[80];
             fis.read(header);
             String headerStr = new String(header).toLowerCase();
 
             // ASCII STL files typically start with "solid"
-            if (headerStr.trim().startsWith("solid")) {
-                return readASCIISTL(filename);
-            } else {
-                return readBinarySTL(filename);
+            return headerStr.trim().startsWith("solid");
+        }
+    }
+
+    /**
+     * Receives the facets of an STL file one by one, without building triangles
+     */
+    @FunctionalInterface
+    public interface FacetVisitor {
+        /**
+         * Visits a facet
+         *
+         * @param facets the array holding the facet coordinates; the visitor may change the coordinates
+         *               of the visited facet but must not keep the array
+         * @param offset the offset of the facet in the array, {@link #FACET_COORDINATES} coordinates per facet
+         */
+        void visit(double[] facets, int offset);
+    }
+
+    /**
+     * Suffix of the cache file which is written next to an STL file
+     */
+    public static final String CACHE_SUFFIX = ".cache";
+
+    /**
+     * Magic number at the start of a cache file ("STLC")
+     */
+    private static final int CACHE_MAGIC = 0x53544C43;
+
+    /**
+     * Version of the cache file format
+     */
+    private static final int CACHE_VERSION = 1;
+
+    /**
+     * Size of the cache file header: magic, version, source size, source modification time and coordinates count
+     */
+    private static final int CACHE_HEADER_SIZE = 32;
+
+    /**
+     * Whether parsed facets are cached next to the STL files
+     */
+    private static volatile boolean cacheEnabled = true;
+
+    /**
+     * Enables or disables the cache of parsed facets.
+     * <p>
+     * When the cache is enabled, the facets parsed from an STL file are written to a binary file next to it
+     * (named with {@link #CACHE_SUFFIX}), which is validated by the size and modification time of the STL file.
+     * Later reads of the same unchanged file memory map the cache instead of parsing the file.
+     * The cache is enabled by default.
+     * </p>
+     *
+     * @param enabled whether to use the cache
+     */
+    public static void setCacheEnabled(boolean enabled) {
+        cacheEnabled = enabled;
+    }
+
+    /**
+     * Automatically detects STL format and reads the facets into a primitive array of vertex coordinates.
+     * The facets are loaded from the cache if it is enabled and valid (see {@link #setCacheEnabled}).
+     *
+     * @param filename STL file path
+     * @return the coordinates of the non-degenerate facets vertices, {@link #FACET_COORDINATES} per facet
+     * @throws IOException if the file can't be read
+     */
+    public static double[] readFacets(String filename) throws IOException {
+        CacheKey key = cacheKey(filename);
+        DoubleBuffer cached = key == null ? null : readCache(key);
+        if (cached != null) {
+            double[] facets = new double[cached.remaining()];
+            cached.get(facets);
+            return facets;
+        }
+        double[][] chunks = parseChunks(filename);
+        if (key != null)
+            try (CacheWriter writer = new CacheWriter(key)) {
+                for (double[] chunk : chunks)
+                    writer.write(chunk);
+                writer.commit();
             }
+        return concat(chunks);
+    }
+
+    /**
+     * Automatically detects STL format and streams the non-degenerate facets of the file to a visitor in the file order.
+     * <p>
+     * The file is parsed in parallel chunks and the facets are visited on the calling thread, chunk by chunk,
+     * while the following chunks are parsed. Only a few chunks are parsed ahead of the visited one, and each chunk
+     * is released after it is visited, so the whole file is never held as raw coordinates. The cache is written
+     * chunk by chunk too, and a valid cache is visited by chunks of the mapped file.
+     * </p>
+     *
+     * @param filename STL file path
+     * @param visitor  the visitor of the facets
+     * @throws IOException if the file can't be read
+     */
+    public static void readFacets(String filename, FacetVisitor visitor) throws IOException {
+        CacheKey key = cacheKey(filename);
+        DoubleBuffer cached = key == null ? null : readCache(key);
+        if (cached != null) {
+            // The visitor doesn't keep the array, so a single chunk array is reused for the whole cache
+            double[] chunk = new double[Math.min(cached.remaining(), FACETS_PER_CHUNK * FACET_COORDINATES)];
+            while (cached.hasRemaining()) {
+                int length = Math.min(cached.remaining(), chunk.length);
+                cached.get(chunk, 0, length);
+                for (int offset = 0; offset < length; offset += FACET_COORDINATES)
+                    visitor.visit(chunk, offset);
+            }
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ);
+             CacheWriter writer = key == null ? null : new CacheWriter(key)) {
+            ChunkedFile file = isASCII(filename) ? asciiChunks(channel) : binaryChunks(filename, channel);
+            forEachChunk(file, chunk -> {
+                // The chunk is cached before the visitor may change its coordinates
+                if (writer != null)
+                    writer.write(chunk);
+                for (int offset = 0; offset < chunk.length; offset += FACET_COORDINATES)
+                    visitor.visit(chunk, offset);
+            });
+            if (writer != null)
+                writer.commit();
         }
     }
 
+    /**
+     * Parses the facets of an STL file in chunks, according to its format
+     *
+     * @param filename STL file path
+     * @return the coordinates of the facets vertices of each chunk, in the file order
+     * @throws IOException if the file can't be read
+     */
+    private static double[][] parseChunks(String filename) throws IOException {
+        return isASCII(filename) ? readASCIIChunks(filename) : readBinaryChunks(filename);
+    }
+
+    /**
+     * The cache file of an STL file, with the size and the modification time of the STL file
+     * which validate the cache
+     *
+     * @param cache    the cache file path
+     * @param size     the size of the STL file
+     * @param modified the modification time of the STL file
+     */
+    private record CacheKey(Path cache, long size, long modified) {}
+
+    /**
+     * Finds the cache file of an STL file, taking the size and the modification time of the STL file
+     * before it is parsed
+     *
+     * @param filename STL file path
+     * @return the cache key, or {@code null} if the cache is disabled
+     * @throws IOException if the attributes of the file can't be read
+     */
+    private static CacheKey cacheKey(String filename) throws IOException {
+        if (!cacheEnabled)
+            return null;
+        Path source = Path.of(filename);
+        return new CacheKey(Path.of(filename + CACHE_SUFFIX), Files.size(source),
+                Files.getLastModifiedTime(source).toMillis());
+    }
+
+    /**
+     * Loads the facets from a cache file by memory mapping it
+     *
+     * @param key the cache file and the attributes of the STL file
+     * @return the mapped coordinates of the facets vertices, or {@code null} if there is no valid cache
+     */
+    private static DoubleBuffer readCache(CacheKey key) {
+        if (!Files.isRegularFile(key.cache))
+            return null;
+        try (FileChannel channel = FileChannel.open(key.cache, StandardOpenOption.READ)) {
+            long cacheSize = channel.size();
+            if (cacheSize < CACHE_HEADER_SIZE)
+                return null;
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, cacheSize).order(ByteOrder.LITTLE_ENDIAN);
+            long count = buffer.getLong(24);
+            if (buffer.getInt(0) != CACHE_MAGIC || buffer.getInt(4) != CACHE_VERSION
+                    || buffer.getLong(8) != key.size || buffer.getLong(16) != key.modified
+                    || count < 0 || count % FACET_COORDINATES != 0 || CACHE_HEADER_SIZE + count * Double.BYTES != cacheSize)
+                return null;
+            // The mapping stays valid after the channel is closed
+            return buffer.position(CACHE_HEADER_SIZE).asDoubleBuffer();
+        } catch (IOException | RuntimeException e) {
+            // An unreadable cache is just parsed again
+            return null;
+        }
+    }
+
+    /**
+     * Writer of a cache file, chunk by chunk. The file is written under a temporary name and then moved into place,
+     * so a concurrent reader never sees a partial cache. Failures are ignored - the cache is only an optimization,
+     * and a writer which isn't committed deletes its temporary file when it is closed.
+     */
+    private static final class CacheWriter implements Closeable {
+        /** The cache file path */
+        private final Path cache;
+        /** The buffer of the written coordinates */
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        /** The temporary file, {@code null} if it was moved into place or deleted */
+        private Path temporary = null;
+        /** The channel of the temporary file, {@code null} if it is closed */
+        private FileChannel channel = null;
+        /** The number of the written coordinates */
+        private long count = 0;
+
+        /**
+         * Creates the temporary file of a cache and starts its header
+         *
+         * @param key the cache file and the attributes of the STL file
+         */
+        CacheWriter(CacheKey key) {
+            cache = key.cache;
+            try {
+                temporary = Files.createTempFile(cache.toAbsolutePath().getParent(), cache.getFileName().toString(),
+                        ".tmp");
+                channel = FileChannel.open(temporary, StandardOpenOption.WRITE);
+                // The coordinates count is written when all the chunks are written
+                buffer.putInt(CACHE_MAGIC).putInt(CACHE_VERSION).putLong(key.size).putLong(key.modified).putLong(0);
+            } catch (IOException | SecurityException e) {
+                close();
+            }
+        }
+
+        /**
+         * Appends the facets of a chunk to the cache
+         *
+         * @param facets the coordinates of the facets vertices
+         */
+        void write(double[] facets) {
+            if (channel == null)
+                return;
+            try {
+                for (double coordinate : facets) {
+                    if (!buffer.hasRemaining())
+                        writeFully(channel, buffer);
+                    buffer.putDouble(coordinate);
+                }
+                count += facets.length;
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        /**
+         * Completes the cache and moves it into place
+         */
+        void commit() {
+            if (channel == null)
+                return;
+            try {
+                writeFully(channel, buffer);
+                buffer.putLong(count);
+                buffer.flip();
+                while (buffer.hasRemaining())
+                    channel.write(buffer, 24 + buffer.position());
+                channel.close();
+                channel = null;
+                try {
+                    Files.move(temporary, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporary, cache, StandardCopyOption.REPLACE_EXISTING);
+                }
+                temporary = null;
+            } catch (IOException | SecurityException e) {
+                close();
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (channel != null)
+                    channel.close();
+                if (temporary != null)
+                    Files.deleteIfExists(temporary);
+            } catch (IOException | SecurityException ignored) {
+                // Nothing more to clean
+            }
+            channel = null;
+            temporary = null;
+        }
+    }
+
+    /**
+     * Writes the content of a buffer to a channel and clears the buffer
+     *
+     * @param channel the channel
+     * @param buffer  the buffer, ready for putting
+     * @throws IOException if the channel can't be written
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Streams the triangles of an STL file, transformed on the fly, straight to their destination
+     * (e.g. {@code scene.geometries::add}) without building an intermediate list.
+     * Facets which become degenerate by the transformation are skipped.
+     *
+     * @param filename  STL file path
+     * @param transform the transformation applied to the vertices
+     * @param sink      the receiver of the triangles, called in the file order
+     * @throws IOException if the file can't be read
+     */
+    public static void readSTL(String filename, Transform transform, Consumer<? super Triangle> sink)
+            throws IOException {
+        readFacets(filename, (facets, offset) -> acceptTriangle(facets, offset, transform, sink));
+    }
+
+    /**
+     * Transforms the facets of a coordinates array and streams them as triangles to their destination.
+     * This is the second pass of a placement which depends on the whole model (see {@link #positioning}).
+     * The facets array is transformed in place.
+     * Facets which become degenerate by the transformation are skipped.
+     *
+     * @param facets    the coordinates of the facets vertices, {@link #FACET_COORDINATES} per facet
+     * @param transform the transformation applied to the vertices
+     * @param sink      the receiver of the triangles, called in the facets order
+     */
+    public static void forEachTriangle(double[] facets, Transform transform, Consumer<? super Triangle> sink) {
+        for (int offset = 0; offset < facets.length; offset += FACET_COORDINATES)
+            acceptTriangle(facets, offset, transform, sink);
+    }
+
+    /**
+     * Transforms a facet in place and passes it as a triangle to its destination, unless it becomes degenerate
+     *
+     * @param facets    the facets coordinates array
+     * @param offset    the offset of the facet in the array
+     * @param transform the transformation applied to the vertices
+     * @param sink      the receiver of the triangle
+     */
+    private static void acceptTriangle(double[] facets, int offset, Transform transform,
+                                       Consumer<? super Triangle> sink) {
+        if (transform != Transform.IDENTITY) {
+            transform.apply(facets, offset, 3);
+            if (isDegenerate(facets, offset))
+                return;
+        }
+        sink.accept(new Triangle(
+                new Point(facets[offset], facets[offset + 1], facets[offset + 2]),
+                new Point(facets[offset + 3], facets[offset + 4], facets[offset + 5]),
+                new Point(facets[offset + 6], facets[offset + 7], facets[offset + 8])));
+    }
+
+    /**
+     * Reads an STL file into an indexed mesh, welding the vertices shared by the facets
+     *
+     * @param filename      STL file path
+     * @param epsilon       the welding tolerance, zero to weld only identical vertices
+     * @param smoothNormals whether to compute smooth vertex normals
+     * @return the welded mesh
+     * @throws IOException if the file can't be read
+     * @throws IllegalArgumentException if the file has no valid facets
+     */
+    public static TriangleMesh readMesh(String filename, double epsilon, boolean smoothNormals) throws IOException {
+        return TriangleMesh.weld(readFacets(filename), epsilon, smoothNormals);
+    }
+
+    /**
+     * Reads an STL file into an indexed mesh which stores its vertices in a given precision.
+     * STL coordinates are floats, so a {@link TriangleMesh.Precision#SINGLE single precision} mesh of an
+     * unwelded or exactly welded file keeps them exactly, at half the footprint.
+     *
+     * @param filename      STL file path
+     * @param epsilon       the welding tolerance, zero to weld only identical vertices
+     * @param smoothNormals whether to compute smooth vertex normals
+     * @param precision     the storage precision of the vertices and the normals
+     * @return the welded mesh
+     * @throws IOException if the file can't be read
+     * @throws IllegalArgumentException if the file has no valid facets
+     */
+    public static TriangleMesh readMesh(String filename, double epsilon, boolean smoothNormals,
+                                       TriangleMesh.Precision precision) throws IOException {
+        return TriangleMesh.weld(readFacets(filename), epsilon, smoothNormals, precision);
+    }
+
+    /**
+     * Calculates the translation which moves a point to a target position
+     *
+     * @param current      the current position
+     * @param targetCenter the target position
+     * @return the translation, or the identity if the point is already at the target
+     */
+    public static Transform positioning(Point current, Point targetCenter) {
+        return current.equals(targetCenter)
+                ? Transform.IDENTITY
+                : Transform.translation(targetCenter.subtract(current));
+    }
+
+    /**
+     * Calculates the centroid (center of mass of the vertices) of facets
+     *
+     * @param facets the coordinates of the facets vertices, {@link #FACET_COORDINATES} per facet
+     * @return the centroid point
+     */
+    public static Point calculateCentroid(double[] facets) {
+        if (facets.length == 0)
+            return new Point(0, 0, 0);
+        double totalX = 0, totalY = 0, totalZ = 0;
+        for (int i = 0; i < facets.length; i += 3) {
+            totalX += facets[i];
+            totalY += facets[i + 1];
+            totalZ += facets[i + 2];
+        }
+        int vertexCount = facets.length / 3;
+        return new Point(totalX / vertexCount, totalY / vertexCount, totalZ / vertexCount);
+    }
+
     /**
      * Reads STL file and positions it around a specific point
      * @param filename STL file path
@@ -137,8 +1071,10 @@ public class StlReader {
      * @return List of triangles positioned around the target center
      */
     public static List<Triangle> readSTLPositioned(String filename, Point targetCenter) throws IOException {
-        List<Triangle> triangles = readSTL(filename);
-        return positionTriangles(triangles, targetCenter);
+        double[] facets = readFacets(filename);
+        List<Triangle> triangles = new ArrayList<>(facets.length / FACET_COORDINATES);
+        forEachTriangle(facets, positioning(calculateCentroid(facets), targetCenter), triangles::add);
+        return triangles;
     }
 
     /**
@@ -0,0 +1,170 @@
+package renderer;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streaming writer of a png image, band by band.
+ * <p>
+ * The image is split into bands of rows, which are rendered, filtered and deflated by the rendering threads
+ * in any order, and written to the file as soon as all the bands before them are written. Bands completed
+ * out of order wait in a small reorder buffer, so the memory is proportional to a few bands and not to
+ * the image, and images whose pixels don't fit in the memory can be written.
+ * </p>
+ * <p>
+ * The threads take the bands by {@link #takeBand()}, which hands out only the bands within a window
+ * past the next band to write, and blocks the threads beyond it - so a slow band doesn't make the following
+ * bands of the whole image pile up in the reorder buffer behind it.
+ * </p>
+ */
+final class StreamingImageWriter implements Closeable {
+    /** Horizontal resolution of the image - number of pixels in row */
+    private final int              nX;
+    /** Vertical resolution of the image - number of pixels in column */
+    private final int              nY;
+    /** The number of rows of a band (except the last band, which may be shorter) */
+    private final int              bandRows;
+    /** The number of bands */
+    private final int              bandCount;
+    /** The number of bands which may be taken past the next band to write */
+    private final int              window;
+    /** The png encoder of the bands */
+    private final PngEncoder       encoder;
+    /** The output stream of the image file */
+    private final DataOutputStream out;
+
+    /** The deflated bands waiting for the bands before them, by band index */
+    private final Map<Integer, PngEncoder.Band> pending = new HashMap<>();
+    /** The next band to write */
+    private int                    next  = 0;
+    /** The next band to take */
+    private int                    taken = 0;
+    /** Whether the rendering failed, so no more bands are taken */
+    private boolean                aborted = false;
+    /** The combined checksum of the written bands */
+    private long                   adler = 1;
+
+    /**
+     * Opens a png file for streaming, and writes its header
+     * @param imageName the name of png file
+     * @param nX        amount of pixels by Width
+     * @param nY        amount of pixels by height
+     * @param mode      the encoding mode
+     * @param window    the number of bands which may be taken from the next band to write on - typically
+     *                  the number of the rendering threads, so the reorder buffer holds less than a band per thread
+     * @throws IllegalArgumentException if the window isn't positive
+     * @throws IllegalStateException    if the file can't be written
+     */
+    StreamingImageWriter(String imageName, int nX, int nY, PngEncoder.Mode mode, int window) {
+        if (window <= 0)
+            throw new IllegalArgumentException("Window must be positive");
+        this.nX   = nX;
+        this.nY   = nY;
+        this.window = window;
+        bandRows  = PngEncoder.bandRows(nX);
+        bandCount = (int) ((nY + (long) bandRows - 1) / bandRows);
+        encoder   = new PngEncoder(mode);
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(ImageWriter.FOLDER_PATH + '/' + imageName + ".png")));
+            PngEncoder.writeHeader(out, nX, nY);
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - may be missing directory " + ImageWriter.FOLDER_PATH, e);
+        }
+    }
+
+    /**
+     * Returns the number of bands of the image
+     * @return the band count
+     */
+    int bandCount() { return bandCount; }
+
+    /**
+     * Returns the first row of a band
+     * @param  band the band index
+     * @return      the row index
+     */
+    int firstRow(int band) { return band * bandRows; }
+
+    /**
+     * Returns the number of rows of a band
+     * @param  band the band index
+     * @return      the number of rows
+     */
+    int rows(int band) { return Math.min(bandRows, nY - band * bandRows); }
+
+    /**
+     * Takes the next band to render, waiting while it is a window or more past the next band to write
+     * @return the band index, or -1 if all the bands are taken or the rendering was aborted
+     * @throws IllegalStateException if the thread is interrupted while waiting
+     */
+    synchronized int takeBand() {
+        try {
+            while (!aborted && taken < bandCount && taken >= next + window)
+                wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a band", e);
+        }
+        return aborted || taken == bandCount ? -1 : taken++;
+    }
+
+    /**
+     * Aborts the rendering after a thread failed to render its band - the waiting threads take no more bands
+     */
+    synchronized void abort() {
+        aborted = true;
+        notifyAll();
+    }
+
+    /**
+     * Returns the number of the bands waiting in the reorder buffer for the bands before them
+     * @return the number of pending bands
+     */
+    synchronized int pendingBands() { return pending.size(); }
+
+    /**
+     * Encodes a rendered band, and writes it and the following waiting bands if all the bands before it
+     * are written, or keeps it waiting for them otherwise. Every taken band must be written once.
+     * @param  band   the band index
+     * @param  pixels the packed RGB pixels of the band, row by row
+     * @throws IllegalStateException if the file can't be written
+     */
+    void writeBand(int band, int[] pixels) {
+        PngEncoder.Band deflated = encoder.deflate(pixels, nX, 0, rows(band), band == 0, band == bandCount - 1);
+        synchronized (this) {
+            pending.put(band, deflated);
+            try {
+                int written = next;
+                while ((deflated = pending.remove(next)) != null) {
+                    adler = encoder.writeBand(out, deflated, next == 0, next == bandCount - 1, adler);
+                    ++next;
+                }
+                if (next != written)
+                    notifyAll();
+            } catch (IOException e) {
+                throw new IllegalStateException("I/O error while writing the image", e);
+            }
+        }
+    }
+
+    /**
+     * Writes the end of the image and closes the file
+     * @throws IllegalStateException if some bands weren't written, or the file can't be written
+     */
+    @Override
+    public synchronized void close() {
+        try (out) {
+            if (next < bandCount)
+                throw new IllegalStateException("The image is incomplete - " + (bandCount - next) + " bands are missing");
+            PngEncoder.writeEnd(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error while writing the image", e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package scene;
+
+import geometries.BVH;
+import geometries.FlatGeometries;
+import geometries.Intersectable;
+import lighting.AmbientLight;
+import lighting.LightSource;
+import primitives.Color;
+import primitives.TargetArea;
+
+import java.util.List;
+
+/**
+ * An immutable snapshot of a {@link Scene}, compiled for rendering.
+ * <p>
+ * The nested geometries of the scene are flattened into a {@link FlatGeometries} collection
+ * with precomputed bounding boxes, and a scene with many geometries gets a {@link BVH} hierarchy over them.
+ * The hierarchy is the top level of the scene - shared assets which are already hierarchies (placed by
+ * {@link geometries.Instance}s) are not rebuilt. The lights are copied into an unmodifiable list.
+ * The snapshot doesn't change when the scene is edited, so a running render is safe
+ * from concurrent changes to the scene. Geometries moved between the frames of an animation are picked up
+ * by {@link #refit()}, without compiling the scene again.
+ * </p>
+ */
+public final class CompiledScene {
+    /**
+     * Number of leaf geometries above which the geometries are organized in a hierarchy.
+     * Smaller scenes are intersected faster by the flat typed loops.
+     */
+    private static final int HIERARCHY_THRESHOLD = 16;
+
+    /**
+     * Growth factor of the estimated traversal cost of a refitted hierarchy above which it is rebuilt
+     */
+    private static final double REBUILD_COST_GROWTH = 1.5;
+
+    /**
+     * The name of the scene.
+     */
+    public final String name;
+
+    /**
+     * The background color of the scene.
+     */
+    public final Color background;
+
+    /**
+     * The ambient light of the scene.
+     */
+    public final AmbientLight ambientLight;
+
+    /**
+     * The flattened geometries of the scene, organized in a hierarchy if there are many of them.
+     */
+    public final Intersectable geometries;
+
+    /**
+     * The time taken to flatten the geometries and build their hierarchy, in nanoseconds,
+     * so the build can be measured apart from the render.
+     */
+    public final long buildNanos;
+
+    /**
+     * The light sources of the scene.
+     */
+    public final List<LightSource> lights;
+
+    /**
+     * The sampling pattern used for generating points on a target area in the scene.
+     */
+    public final TargetArea.SamplingPattern samplingPattern;
+
+    /**
+     * Number of light sources sampled per shading point, zero for all the lights.
+     */
+    public final int lightSamples;
+
+    /**
+     * Compiles a snapshot of a scene.
+     *
+     * @param scene the scene to compile
+     */
+    CompiledScene(Scene scene) {
+        name = scene.name;
+        background = scene.background;
+        ambientLight = scene.ambientLight;
+        long start = System.nanoTime();
+        FlatGeometries flat = new FlatGeometries(scene.geometries);
+        geometries = flat.getGeometries().size() > HIERARCHY_THRESHOLD ? new BVH(flat) : flat;
+        buildNanos = System.nanoTime() - start;
+        lights = List.copyOf(scene.lights);
+        samplingPattern = scene.samplingPattern;
+        lightSamples = scene.lightSamples;
+    }
+
+    /**
+     * Updates the snapshot after geometries of the scene moved (e.g. spheres centers or instances
+     * transformations changed between the frames of an animation). The bounding boxes are refitted
+     * and the hierarchy is rebuilt only if the refit degraded it too much.
+     * The geometries mustn't be moved while rays are traced.
+     */
+    public void refit() {
+        if (geometries instanceof BVH bvh)
+            bvh.refit(REBUILD_COST_GROWTH);
+        else
+            ((FlatGeometries) geometries).refit();
+    }
+}
@@ -47,6 +47,12 @@ public class Scene {
      */
     public TargetArea.SamplingPattern samplingPattern = TargetArea.SamplingPattern.JITTERED;
 
+    /**
+     * Number of light sources sampled per shading point when the scene has more lights than that.
+     * Zero means all the light sources are evaluated at every shading point.
+     */
+    public int lightSamples = 0;
+
     /**
      * Constructs a scene with the specified name.
      *
@@ -111,4 +117,35 @@ public class Scene {
         this.samplingPattern = samplingPattern;
         return this;
     }
+
+    /**
+     * Compiles an immutable snapshot of the scene for rendering.
+     * <p>
+     * The nested geometries are flattened and their bounding boxes are precomputed.
+     * Later changes to the scene don't affect the returned snapshot.
+     * </p>
+     *
+     * @return the compiled snapshot of the scene
+     */
+    public CompiledScene compile() {
+        return new CompiledScene(this);
+    }
+
+    /**
+     * Sets the number of light sources sampled per shading point.
+     * <p>
+     * When the scene holds more light sources than this number, the lights are chosen stochastically
+     * according to their unshadowed contribution at the point, and only the chosen ones cast shadow rays.
+     * </p>
+     *
+     * @param lightSamples the number of sampled lights, 0 to evaluate all the lights
+     * @return this Scene object for method chaining
+     * @throws IllegalArgumentException if the number is negative
+     */
+    public Scene setLightSamples(int lightSamples) {
+        if (lightSamples < 0)
+            throw new IllegalArgumentException("Number of light samples must not be negative");
+        this.lightSamples = lightSamples;
+        return this;
+    }
 }
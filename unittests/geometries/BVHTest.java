@@ -0,0 +1,245 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.BoundingBox;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Transform;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link BVH} class
+ */
+class BVHTest {
+    /**
+     * Builds a geometry tree of random spheres and triangles, nested in groups
+     *
+     * @param random the random generator
+     * @return the geometry tree
+     */
+    private static Geometries randomScene(Random random) {
+        Geometries scene = new Geometries();
+        for (int g = 0; g < 10; g++) {
+            Geometries group = new Geometries();
+            for (int i = 0; i < 20; i++) {
+                Point p = new Point(random.nextDouble(-50, 50), random.nextDouble(-50, 50), random.nextDouble(-50, 50));
+                if (random.nextBoolean())
+                    group.add(new Sphere(p, random.nextDouble(0.5, 3)));
+                else
+                    group.add(new Triangle(p, p.add(new Vector(random.nextDouble(1, 5), 0, 0)),
+                            p.add(new Vector(0, random.nextDouble(1, 5), random.nextDouble(-2, 2)))));
+            }
+            scene.add(group);
+        }
+        return scene;
+    }
+
+    /**
+     * Test method for {@link BVH#calculateClosestIntersection(Ray)}
+     */
+    @Test
+    void testCalculateClosestIntersection() {
+        Random random = new Random(42);
+        Geometries scene = randomScene(random);
+        BVH bvh = new BVH(scene);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Random rays - the same closest intersection and the same number of intersections as the tree
+        for (int i = 0; i < 500; i++) {
+            Point head = new Point(random.nextDouble(-80, 80), random.nextDouble(-80, 80), random.nextDouble(-80, 80));
+            Ray ray = new Ray(head, new Point(random.nextDouble(-40, 40), random.nextDouble(-40, 40),
+                    random.nextDouble(-40, 40)).subtract(head));
+            var expected = ray.findClosestIntersection(scene.calculateIntersections(ray));
+            var actual = bvh.calculateClosestIntersection(ray);
+            if (expected == null)
+                assertNull(actual, "Hierarchy finds an intersection which the tree doesn't");
+            else {
+                assertNotNull(actual, "Hierarchy misses an intersection");
+                assertSame(expected.geometry, actual.geometry, "Wrong closest geometry");
+                assertEquals(expected.point, actual.point, "Wrong closest point");
+            }
+            var all = scene.calculateIntersections(ray);
+            var bvhAll = bvh.calculateIntersections(ray);
+            assertEquals(all == null ? 0 : all.size(), bvhAll == null ? 0 : bvhAll.size(),
+                    "Wrong number of intersections");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Coplanar geometries at the same distance - the earlier geometry wins, as in the tree
+        Triangle first = new Triangle(new Point(-1, -1, 0), new Point(1, -1, 0), new Point(0, 1, 0));
+        Triangle second = new Triangle(new Point(-2, -2, 0), new Point(2, -2, 0), new Point(0, 2, 0));
+        Geometries coplanar = new Geometries(first);
+        for (int i = 0; i < 30; i++)
+            coplanar.add(new Sphere(new Point(10 + 3 * i, 0, 0), 1));
+        coplanar.add(second);
+        Ray ray = new Ray(new Point(0, 0, 5), new Vector(0, 0, -1));
+        assertSame(first, new BVH(coplanar).calculateClosestIntersection(ray).geometry,
+                "Wrong geometry wins a tie");
+        // TC12: Unbounded geometry in front of the bounded ones
+        Plane plane = new Plane(new Point(0, 0, 1), new Vector(0, 0, 1));
+        coplanar.add(plane);
+        assertSame(plane, new BVH(coplanar).calculateClosestIntersection(ray).geometry,
+                "Unbounded geometry is missed");
+    }
+
+    /**
+     * Test method for {@link BVH#BVH(Intersectable, BVH.Builder)}
+     */
+    @Test
+    void testBuilders() {
+        Random random = new Random(7);
+        Geometries scene = new Geometries();
+        for (int i = 0; i < 5000; i++)
+            scene.add(new Sphere(new Point(random.nextDouble(-100, 100), random.nextDouble(-100, 100),
+                    random.nextDouble(-100, 100)), random.nextDouble(0.2, 1)));
+        // Duplicate centroids have equal Morton codes
+        for (int i = 0; i < 20; i++)
+            scene.add(new Sphere(new Point(0, 0, 0), 1 + i * 0.01));
+        List<Ray> rays = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Point head = new Point(random.nextDouble(-150, 150), random.nextDouble(-150, 150), 150);
+            rays.add(new Ray(head, new Point(random.nextDouble(-20, 20), random.nextDouble(-20, 20), 0).subtract(head)));
+        }
+        rays.add(new Ray(new Point(0, 0, 150), new Vector(0, 0, -1)));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Every building method finds the closest intersection of the tree
+        for (BVH.Builder builder : BVH.Builder.values()) {
+            BVH bvh = new BVH(scene, builder);
+            assertEquals(scene.getBoundingBox(), bvh.getBoundingBox(), "Wrong bounding box of " + builder);
+            for (Ray ray : rays) {
+                var expected = ray.findClosestIntersection(scene.calculateIntersections(ray));
+                var actual = bvh.calculateClosestIntersection(ray);
+                assertSame(expected == null ? null : expected.geometry, actual == null ? null : actual.geometry,
+                        "Wrong closest geometry of " + builder);
+            }
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Geometries fewer than a leaf and a single geometry
+        for (BVH.Builder builder : BVH.Builder.values()) {
+            Sphere sphere = new Sphere(Point.ZERO, 1);
+            assertSame(sphere, new BVH(new Geometries(sphere), builder)
+                    .calculateClosestIntersection(new Ray(new Point(0, 0, 5), new Vector(0, 0, -1))).geometry,
+                    "Wrong single geometry hierarchy of " + builder);
+            assertNull(new BVH(new Geometries(), builder).getBoundingBox(), "Empty hierarchy of " + builder);
+        }
+    }
+
+    /**
+     * Test method for {@link BVH#refit(double)}
+     */
+    @Test
+    void testRefit() {
+        Random random = new Random(3);
+        Sphere[] spheres = new Sphere[200];
+        Geometries scene = new Geometries();
+        for (int i = 0; i < spheres.length; i++) {
+            spheres[i] = new Sphere(new Point(random.nextDouble(-50, 50), random.nextDouble(-50, 50), 0), 1);
+            scene.add(spheres[i]);
+        }
+        BVH bvh = new BVH(scene);
+        Ray down = new Ray(new Point(70, 70, 10), new Vector(0, 0, -1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A moved sphere is found after a refit of all the geometries
+        spheres[0].setCenter(new Point(70, 70, 0));
+        assertNull(bvh.calculateClosestIntersection(down), "Moved sphere found before the refit");
+        assertFalse(bvh.refit(Double.POSITIVE_INFINITY), "Hierarchy rebuilt without a quality check");
+        assertSame(spheres[0], bvh.calculateClosestIntersection(down).geometry, "Moved sphere not found");
+        // TC02: Refit of the changed geometries only
+        spheres[1].setCenter(new Point(-70, -70, 0));
+        bvh.refit(List.of(spheres[1]), Double.POSITIVE_INFINITY);
+        assertSame(spheres[1], bvh.calculateClosestIntersection(new Ray(new Point(-70, -70, 10),
+                new Vector(0, 0, -1))).geometry, "Moved sphere not found by an incremental refit");
+        assertEquals(scene.getBoundingBox(), bvh.getBoundingBox(), "Wrong refitted bounding box");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Scattering all the spheres degrades the hierarchy, and the quality check rebuilds it
+        Point[] centers = new Point[spheres.length];
+        for (int i = 0; i < spheres.length; i++)
+            spheres[i].setCenter(centers[i] = new Point(random.nextDouble(-50, 50), random.nextDouble(-50, 50), 0));
+        assertTrue(bvh.refit(1.5), "Degraded hierarchy isn't rebuilt");
+        Point eye = new Point(0, 0, 100);
+        for (Point center : centers) {
+            Ray ray = new Ray(eye, center.add(new Vector(0.3, 0.2, 0)).subtract(eye));
+            assertSame(ray.findClosestIntersection(scene.calculateIntersections(ray)).geometry,
+                    bvh.calculateClosestIntersection(ray).geometry, "Wrong closest geometry after a rebuild");
+        }
+        // TC12: A geometry which isn't a leaf of the hierarchy
+        assertThrows(IllegalArgumentException.class,
+                () -> bvh.refit(List.of(new Sphere(Point.ZERO, 1)), Double.POSITIVE_INFINITY),
+                "Refit of a foreign geometry");
+    }
+
+    /**
+     * Test method for {@link BVH#refit(double)} of a two-level hierarchy - a hierarchy of instances
+     * of a shared hierarchy
+     */
+    @Test
+    void testRefitInstances() {
+        Sphere fixed = new Sphere(Point.ZERO, 1);
+        Sphere moving = new Sphere(new Point(3, 0, 0), 1);
+        BVH model = new BVH(new Geometries(fixed, moving));
+        Instance near = new Instance(model, Transform.IDENTITY);
+        Instance far = new Instance(model, Transform.translation(new Vector(0, 20, 0)));
+        BVH scene = new BVH(new Geometries(near, far));
+        Ray down = new Ray(new Point(10, 20, 10), new Vector(0, 0, -1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A geometry moved inside the shared hierarchy is found after refitting both levels
+        moving.setCenter(new Point(10, 0, 0));
+        assertNull(scene.calculateClosestIntersection(down), "Moved sphere found before the refit");
+        model.refit(Double.POSITIVE_INFINITY);
+        scene.refit(Double.POSITIVE_INFINITY);
+        assertEquals(new BoundingBox(-1, -1, -1, 11, 21, 1), scene.getBoundingBox(), "Wrong refitted bounding box");
+        var hit = scene.calculateClosestIntersection(down);
+        assertNotNull(hit, "Moved sphere not found in the moved instance");
+        assertSame(moving, hit.geometry, "Wrong geometry found");
+        assertEquals(new Point(10, 20, 1), hit.point, "Wrong intersection point");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Moving the geometry back shrinks the boxes of both levels
+        moving.setCenter(new Point(3, 0, 0));
+        model.refit(Double.POSITIVE_INFINITY);
+        scene.refit(List.of(far), Double.POSITIVE_INFINITY);
+        assertNull(scene.calculateClosestIntersection(down), "Sphere found at its old place");
+        assertEquals(new BoundingBox(-1, 19, -1, 4, 21, 1), far.getBoundingBox(), "Wrong instance bounding box");
+    }
+
+    /**
+     * Test method for {@link BVH#getBoundingBox()}
+     */
+    @Test
+    void testGetBoundingBox() {
+        Sphere sphere = new Sphere(Point.ZERO, 1);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Box of shared hierarchies placed by instances
+        BVH model = new BVH(new Geometries(sphere));
+        BVH scene = new BVH(new Geometries(new Instance(model, Transform.translation(new Vector(5, 0, 0))),
+                new Instance(model, Transform.translation(new Vector(-5, 0, 0)))));
+        assertEquals(new BoundingBox(-6, -1, -1, 6, 1, 1), scene.getBoundingBox(), "Wrong bounding box");
+        assertEquals(2, scene.getGeometries().size(), "Instances aren't leaves of the top level");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: An unbounded geometry
+        assertNull(new BVH(new Geometries(sphere, new Plane(Point.ZERO, new Vector(0, 0, 1)))).getBoundingBox(),
+                "Unbounded hierarchy has a bounding box");
+        // TC12: No geometries
+        assertNull(new BVH(new Geometries()).getBoundingBox(), "Empty hierarchy has a bounding box");
+        assertNull(new BVH(new Geometries()).calculateClosestIntersection(new Ray(Point.ZERO, new Vector(1, 0, 0))),
+                "Empty hierarchy has intersections");
+        // TC13: Moving an instance and rebuilding only the top level
+        Instance moved = new Instance(model, Transform.IDENTITY);
+        moved.setTransform(Transform.translation(new Vector(0, 10, 0)));
+        assertEquals(new BoundingBox(-1, 9, -1, 1, 11, 1), new BVH(new Geometries(moved)).getBoundingBox(),
+                "Wrong bounding box of a moved instance");
+    }
+}
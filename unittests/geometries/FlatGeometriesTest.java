@@ -0,0 +1,92 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.BoundingBox;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link FlatGeometries} class
+ */
+class FlatGeometriesTest {
+    /**
+     * A sphere for tests
+     */
+    private final Sphere sphere = new Sphere(new Point(-1, 0, 0), 0.5);
+    /**
+     * A triangle for tests
+     */
+    private final Triangle triangle = new Triangle(new Point(-4, -1, 0), new Point(-4, 1, 0), new Point(-4, 1, 2));
+    /**
+     * A cylinder for tests
+     */
+    private final Cylinder cylinder = new Cylinder(0.5, new Ray(new Point(3, 0, 0), new Vector(0, 0, 1)), 3);
+    /**
+     * A plane for tests
+     */
+    private final Plane plane = new Plane(new Point(5, 0, 0), new Point(5, 1, 0), new Point(5, 0, 1));
+
+    /**
+     * Test method for {@link FlatGeometries#FlatGeometries(Intersectable)}
+     */
+    @Test
+    void testConstructor() {
+        Geometries nested = new Geometries(sphere, new Geometries(triangle, new Geometries(cylinder)), plane);
+        FlatGeometries flat = new FlatGeometries(nested);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Nested groups are flattened in depth-first order
+        assertEquals(List.of(sphere, triangle, cylinder, plane), flat.getGeometries(),
+                "Wrong flattened geometries");
+        // TC02: Later changes to the tree don't affect the flattened collection
+        nested.add(new Sphere(new Point(10, 0, 0), 1));
+        assertEquals(4, flat.getGeometries().size(), "Flattened collection changed with the tree");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Empty tree
+        assertTrue(new FlatGeometries(new Geometries()).getGeometries().isEmpty(), "Empty tree is not empty");
+        // TC12: A single geometry
+        assertEquals(List.of(sphere), new FlatGeometries(sphere).getGeometries(), "Wrong single geometry");
+    }
+
+    /**
+     * Test method for {@link FlatGeometries#getBoundingBox()}
+     */
+    @Test
+    void testGetBoundingBox() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Bounded geometries
+        assertEquals(new BoundingBox(-4, -1, -0.5, -0.5, 1, 2), new FlatGeometries(new Geometries(sphere, triangle)).getBoundingBox(),
+                "Wrong bounding box");
+        // TC02: Unbounded geometry
+        assertNull(new FlatGeometries(new Geometries(sphere, plane)).getBoundingBox(), "Unbounded collection has a box");
+    }
+
+    /**
+     * Test method for {@link FlatGeometries#calculateIntersections(Ray, double)}
+     */
+    @Test
+    void testCalculateIntersections() {
+        FlatGeometries flat = new FlatGeometries(new Geometries(new Geometries(sphere, triangle), cylinder, plane));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: All the geometries are intersected
+        var result = flat.calculateIntersections(new Ray(new Point(-5, 0, 0.25), new Vector(1, 0, 0)), 20);
+        assertNotNull(result, "Intersections should not be null");
+        assertEquals(6, result.size(), "Wrong number of intersections");
+        // TC02: Only the geometries within the distance are intersected
+        result = flat.calculateIntersections(new Ray(new Point(-5, 0, 0.25), new Vector(1, 0, 0)), 5);
+        assertNotNull(result, "Intersections should not be null");
+        assertEquals(3, result.size(), "Wrong number of intersections");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: No geometry is intersected
+        assertNull(flat.calculateIntersections(new Ray(new Point(-5, 0, 1), new Vector(0, 0, 1)), 20),
+                "Intersections should be null");
+    }
+}
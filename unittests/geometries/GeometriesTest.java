@@ -119,4 +119,45 @@ class GeometriesTest {
         assertNotNull(result, "ERROR: the intersections' array should not be null");
         assertEquals(3, result.size(), "ERROR: the intersections' array should not be null");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link Geometries#calculateClosestIntersection(Ray)}.
+     */
+    @Test
+    void testCalculateClosestIntersection() {
+        final Vector down = new Vector(0, 0, -1);
+        // Two nested groups along the ray, the farther added first
+        final Sphere far = new Sphere(new Point(0, 0, -10), 1);
+        final Sphere near = new Sphere(new Point(0, 0, -5), 1);
+        final Sphere aside = new Sphere(new Point(10, 0, -3), 1);
+        Geometries farGroup = new Geometries(far, new Sphere(new Point(0, 3, -12), 1));
+        Geometries nearGroup = new Geometries(aside, near);
+        Geometries geometries = new Geometries(farGroup, nearGroup);
+        final Ray ray = new Ray(new Point(0, 0, 10), down);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The nearer group is visited first, whatever the insertion order
+        assertSame(near, geometries.calculateClosestIntersection(ray).geometry, "Wrong closest geometry");
+        // TC02: The closest intersection within a distance
+        assertNull(geometries.calculateClosestIntersection(ray, 13.5), "Intersection beyond the distance");
+        // TC03: A geometry added to a nested group is found
+        Sphere added = new Sphere(new Point(0, 0, 0), 1);
+        farGroup.add(added);
+        assertSame(added, geometries.calculateClosestIntersection(ray).geometry, "Added geometry not found");
+        // TC04: A moved geometry is found
+        added.setCenter(new Point(0, 0, -30));
+        assertSame(near, geometries.calculateClosestIntersection(ray).geometry, "Moved geometry found");
+        assertEquals(6, geometries.calculateIntersections(ray).size(), "Wrong number of intersections");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Coplanar geometries at the same distance - the first inserted wins, like among all the intersections
+        Triangle first = new Triangle(new Point(-1, -1, 0), new Point(1, -1, 0), new Point(0, 1, 0));
+        Triangle second = new Triangle(new Point(-3, -3, 0), new Point(3, -3, 0), new Point(0, 3, 0));
+        assertSame(first, new Geometries(new Geometries(first), second).calculateClosestIntersection(ray).geometry,
+                "Wrong geometry wins a tie");
+        // TC12: An unbounded geometry behind the groups
+        Plane plane = new Plane(new Point(0, 0, -100), down);
+        assertSame(near, new Geometries(plane, geometries).calculateClosestIntersection(ray).geometry,
+                "Unbounded geometry hides the groups");
+    }
+}
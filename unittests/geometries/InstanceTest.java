@@ -0,0 +1,79 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.BoundingBox;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Transform;
+import primitives.Vector;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link Instance} class
+ */
+class InstanceTest {
+    /**
+     * A unit sphere at the origin, shared by the instances
+     */
+    private final Sphere sphere = new Sphere(Point.ZERO, 1);
+
+    /**
+     * Test method for {@link Instance#calculateIntersections(Ray, double)}
+     */
+    @Test
+    void testCalculateIntersections() {
+        // The sphere scaled by 2 and moved to (0,0,5)
+        Instance instance = new Instance(sphere,
+                Transform.scaling(2, Point.ZERO).then(Transform.translation(new Vector(0, 0, 5))));
+        Ray ray = new Ray(new Point(0, 0, 20), new Vector(0, 0, -1));
+        double accuracy = 1e-9;
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray crosses the instance - world points and world normals
+        List<Intersectable.Intersection> intersections = instance.calculateIntersections(ray);
+        assertNotNull(intersections, "Ray misses the instance");
+        assertEquals(2, intersections.size(), "Wrong number of intersections");
+        Intersectable.Intersection nearest = intersections.getFirst().point.getZ() > 5
+                ? intersections.getFirst() : intersections.getLast();
+        assertEquals(7, nearest.point.getZ(), accuracy, "Wrong intersection point");
+        assertEquals(new Vector(0, 0, 1), nearest.normal, "Wrong intersection normal");
+        assertSame(sphere, nearest.geometry, "Intersection doesn't refer to the shared geometry");
+        // TC02: Ray misses the instance (but would hit the untransformed sphere)
+        assertNull(instance.findIntersections(new Ray(new Point(0, 0, -20), new Vector(1, 0, 0))),
+                "Ray outside the instance hits it");
+        // TC03: The maximal distance is measured in world units
+        assertEquals(1, instance.calculateIntersections(ray, 15).size(), "Wrong intersections within the distance");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Non-uniform scaling transforms normals by the inverse transpose
+        Instance ellipsoid = new Instance(sphere, Transform.scaling(new Double3(2, 1, 1), Point.ZERO));
+        Point point = new Point(Math.sqrt(2), Math.sqrt(0.5), 0);
+        var hits = ellipsoid.calculateIntersections(new Ray(new Point(Math.sqrt(2), 5, 0), new Vector(0, -1, 0)));
+        Intersectable.Intersection hit = hits.getFirst().point.getY() > 0 ? hits.getFirst() : hits.getLast();
+        assertEquals(point.getY(), hit.point.getY(), accuracy, "Wrong ellipsoid point");
+        // The ellipsoid gradient at (x,y,z) is (x/4, y, z)
+        Vector expected = new Vector(point.getX() / 4, point.getY(), 0).normalize();
+        assertEquals(1, expected.dotProduct(hit.normal), accuracy, "Wrong ellipsoid normal");
+    }
+
+    /**
+     * Test method for {@link Instance#getBoundingBox()}
+     */
+    @Test
+    void testGetBoundingBox() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Box of a moved instance
+        assertEquals(new BoundingBox(4, -1, -1, 6, 1, 1),
+                new Instance(sphere, Transform.translation(new Vector(5, 0, 0))).getBoundingBox(),
+                "Wrong bounding box of a moved instance");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Unbounded geometry
+        assertNull(new Instance(new Plane(Point.ZERO, new Vector(0, 0, 1)), Transform.IDENTITY).getBoundingBox(),
+                "Unbounded instance has a bounding box");
+    }
+}
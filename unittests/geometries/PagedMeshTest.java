@@ -0,0 +1,171 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link PagedMesh} class
+ */
+class PagedMeshTest {
+    /**
+     * The number of quads along each side of the test terrain
+     */
+    private static final int SIDE = 30;
+
+    /**
+     * Creates a wavy terrain of {@link #SIDE} x {@link #SIDE} quads over the unit square, two triangles per quad
+     *
+     * @return the terrain facets
+     */
+    private static double[] terrain() {
+        double[] facets = new double[SIDE * SIDE * 18];
+        int f = 0;
+        for (int i = 0; i < SIDE; ++i)
+            for (int j = 0; j < SIDE; ++j) {
+                double[][] corners = {corner(i, j), corner(i + 1, j), corner(i + 1, j + 1), corner(i, j + 1)};
+                for (int c : new int[]{0, 1, 2, 0, 2, 3})
+                    for (double coordinate : corners[c])
+                        facets[f++] = coordinate;
+            }
+        return facets;
+    }
+
+    /**
+     * Calculates a vertex of the test terrain
+     *
+     * @param i the vertex column
+     * @param j the vertex row
+     * @return the vertex coordinates
+     */
+    private static double[] corner(int i, int j) {
+        double x = (double) i / SIDE, y = (double) j / SIDE;
+        return new double[]{x, y, 0.1 * Math.sin(7 * x) * Math.cos(5 * y)};
+    }
+
+    /**
+     * Test method for {@link PagedMesh#write(TriangleMesh, Path, int)}
+     * and {@link PagedMesh#calculateClosestIntersection(Ray)}
+     *
+     * @param directory a temporary directory for the paged mesh files
+     * @throws IOException if a paged mesh file can't be written or read
+     */
+    @Test
+    void testCalculateIntersections(@TempDir Path directory) throws IOException {
+        TriangleMesh mesh = TriangleMesh.weld(terrain(), 0, true);
+        Path file = directory.resolve("terrain.pages");
+        PagedMesh.write(mesh, file, 100);
+        Material material = new Material().setKD(0.5);
+        PagedMesh paged = new PagedMesh(file, Long.MAX_VALUE);
+        paged.setMaterial(material);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The mesh is partitioned into clusters of up to the cluster size, with the bounds of the mesh
+        assertEquals((mesh.getTriangleCount() + 99) / 100, paged.getClusterCount(), "Wrong cluster count");
+        assertEquals(mesh.getBoundingBox(), paged.getBoundingBox(), "Wrong bounding box");
+        assertEquals(0, paged.getPageIns(), "Paged in a cluster before any ray");
+        // TC02: The closest intersections and their normals are the ones of the original mesh,
+        // and they refer to the paged mesh
+        for (double x = 0.013; x < 1; x += 0.05)
+            for (double y = 0.017; y < 1; y += 0.05) {
+                Ray ray = new Ray(new Point(x, y, 1), new Vector(0.2, 0.1, -1));
+                var expected = mesh.calculateClosestIntersection(ray);
+                var actual = paged.calculateClosestIntersection(ray);
+                assertEquals(expected == null, actual == null, "Different hit of the paged mesh");
+                if (expected == null)
+                    continue;
+                assertEquals(expected.point, actual.point, "Wrong paged intersection point");
+                assertEquals(expected.normal, actual.normal, "Wrong paged intersection normal");
+                assertSame(paged, actual.geometry, "Wrong intersected geometry");
+                assertSame(material, actual.material, "Wrong intersection material");
+                assertEquals(expected.normal, paged.getNormal(actual.point), "Wrong normal of an intersection point");
+            }
+        // TC03: A grazing ray crossing all the clusters finds all the intersections of the original mesh
+        Ray grazing = new Ray(new Point(-0.1, 0.52, 0.01), new Vector(1, 0.05, 0));
+        var expected = mesh.calculateIntersections(grazing);
+        var actual = paged.calculateIntersections(grazing);
+        assertEquals(expected == null ? 0 : expected.size(), actual == null ? 0 : actual.size(),
+                "Wrong number of paged intersections");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A ray missing the mesh pages in no cluster
+        long pageIns = paged.getPageIns();
+        assertNull(paged.calculateClosestIntersection(new Ray(new Point(2, 2, 1), new Vector(0, 0, -1))),
+                "Found an intersection with a ray missing the mesh");
+        assertEquals(pageIns, paged.getPageIns(), "Paged in a cluster for a ray missing the mesh");
+        // TC12: Cluster size of one triangle
+        PagedMesh.write(mesh, file, 1);
+        assertEquals(mesh.getTriangleCount(), new PagedMesh(file, Long.MAX_VALUE).getClusterCount(),
+                "Wrong cluster count of single triangle clusters");
+        // TC13: Invalid cluster size
+        assertThrows(IllegalArgumentException.class, () -> PagedMesh.write(mesh, file, 0),
+                "Wrote clusters of no triangles");
+    }
+
+    /**
+     * Test method for the cluster cache of {@link PagedMesh}
+     *
+     * @param directory a temporary directory for the paged mesh files
+     * @throws IOException if a paged mesh file can't be written or read
+     */
+    @Test
+    void testCache(@TempDir Path directory) throws IOException {
+        TriangleMesh mesh = TriangleMesh.weld(terrain(), 0, false, TriangleMesh.Precision.SINGLE);
+        Path file = directory.resolve("terrain.pages");
+        PagedMesh.write(mesh, file, 200);
+        Ray down = new Ray(new Point(0.5, 0.5, 1), new Vector(0, 0, -1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Within the budget every cluster is paged in once
+        PagedMesh unlimited = new PagedMesh(file, Long.MAX_VALUE);
+        for (int pass = 0; pass < 2; ++pass)
+            for (double x = 0.013; x < 1; x += 0.1)
+                unlimited.calculateClosestIntersection(new Ray(new Point(x, 0.5, 1), new Vector(0, 0, -1)));
+        long pageIns = unlimited.getPageIns();
+        assertTrue(pageIns > 1 && pageIns <= unlimited.getClusterCount(), "Wrong number of page-ins");
+        // TC02: A repeated ray hits the cache
+        unlimited.calculateClosestIntersection(down);
+        long afterFirst = unlimited.getPageIns();
+        unlimited.calculateClosestIntersection(down);
+        assertEquals(afterFirst, unlimited.getPageIns(), "Paged in a cached cluster");
+        // TC03: Rays traced in parallel share a cache of a few clusters, and find the intersections of the mesh
+        PagedMesh shared = new PagedMesh(file, 3 * mesh.footprint() / unlimited.getClusterCount());
+        IntStream.range(0, 2000).parallel().forEach(i -> {
+            Ray ray = new Ray(new Point((i % 50 + 0.3) / 50, (i / 50 + 0.4) / 40, 1), new Vector(0, 0, -1));
+            var expected = mesh.calculateClosestIntersection(ray);
+            var actual = shared.calculateClosestIntersection(ray);
+            assertEquals(expected == null, actual == null, "Different hit of the shared paged mesh");
+            if (expected != null)
+                assertEquals(expected.point, actual.point, "Wrong intersection of the shared paged mesh");
+        });
+        assertTrue(shared.getPageIns() > shared.getClusterCount(), "Clusters weren't evicted");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A budget below a single cluster keeps only the most recently used cluster,
+        // and alternating rays page their clusters in again
+        PagedMesh tight = new PagedMesh(file, 1);
+        Ray near = new Ray(new Point(0.052, 0.037, 1), new Vector(0, 0, -1));
+        Ray far = new Ray(new Point(0.951, 0.933, 1), new Vector(0, 0, -1));
+        var expected = tight.calculateClosestIntersection(near);
+        for (int i = 0; i < 3; ++i) {
+            assertEquals(expected.point, tight.calculateClosestIntersection(near).point, "Wrong intersection");
+            assertNotNull(tight.calculateClosestIntersection(far), "Missing intersection");
+        }
+        assertTrue(tight.getPageIns() >= 7, "Reused an evicted cluster");
+        assertTrue(tight.getCachedBytes() > 0, "Evicted the most recently used cluster");
+        // TC12: Invalid budget and invalid file
+        assertThrows(IllegalArgumentException.class, () -> new PagedMesh(file, 0), "Accepted no budget");
+        Path text = Files.writeString(directory.resolve("text.pages"), "not a paged mesh");
+        assertThrows(IOException.class, () -> new PagedMesh(text, 1), "Opened a file which isn't a paged mesh");
+    }
+}
@@ -154,6 +154,17 @@ class SphereTest {
         intersectionPoint = new Point(2, 3.732050807568878, 3);
         exp = List.of(intersectionPoint);
         assertEquals(exp, result, "ERROR: Wrong intersection point");
+
+        // TC43: Ray's line goes diagonally through the center, where rounding makes the squared distance
+        // of the center from the line negative (2 points)
+        sphere = new Sphere(new Point(1, 1, 1), 1);
+        intersect = new Ray(Point.ZERO, new Vector(1, 1, 1));
+        result = sphere.findIntersections(intersect);
+        assertNotNull(result, "ERROR: the intersections' array should not be null");
+        assertEquals(2, result.size(), "ERROR: Wrong number of intersections");
+        double d = 1 / Math.sqrt(3);
+        exp = List.of(new Point(1 - d, 1 - d, 1 - d), new Point(1 + d, 1 + d, 1 + d));
+        assertEquals(exp, result, "ERROR: Wrong intersection point");
     }
 
     /**
@@ -0,0 +1,224 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link TriangleMesh} class
+ */
+class TriangleMeshTest {
+    /**
+     * A unit square in the XY plane as two separate facets sharing the diagonal (0,0,0)-(1,1,0),
+     * with a tiny gap at the shared vertices of the second facet
+     */
+    private static final double[] SQUARE = {
+            0, 0, 0, 1, 0, 0, 1, 1, 0,
+            1e-9, 0, 0, 1, 1, 0, 0, 1, 0
+    };
+
+    /**
+     * Test method for {@link TriangleMesh#weld(double[], double, boolean)}
+     */
+    @Test
+    void testWeld() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Vertices within the tolerance are welded and the facets become neighbors
+        TriangleMesh mesh = TriangleMesh.weld(SQUARE, 1e-6, false);
+        assertEquals(4, mesh.getVertexCount(), "Wrong number of welded vertices");
+        assertEquals(2, mesh.getTriangleCount(), "Wrong number of triangles");
+        assertEquals(1, mesh.getNeighbor(0, 2), "Wrong neighbor across the diagonal");
+        assertEquals(0, mesh.getNeighbor(1, 0), "Wrong neighbor across the diagonal");
+        assertEquals(TriangleMesh.NO_NEIGHBOR, mesh.getNeighbor(0, 0), "Boundary edge has a neighbor");
+        // TC02: Negative tolerance
+        assertThrows(IllegalArgumentException.class, () -> TriangleMesh.weld(SQUARE, -1, false),
+                "Welded with a negative tolerance");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Zero tolerance welds only identical vertices
+        mesh = TriangleMesh.weld(SQUARE, 0, false);
+        assertEquals(5, mesh.getVertexCount(), "Wrong number of exactly welded vertices");
+        assertEquals(TriangleMesh.NO_NEIGHBOR, mesh.getNeighbor(0, 2), "Unwelded edge has a neighbor");
+        // TC12: A facet collapsed by the welding is dropped
+        double[] collapsed = {0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0, 0, 1e-9, 0, 0, 0, 0, 1};
+        assertEquals(1, TriangleMesh.weld(collapsed, 1e-6, false).getTriangleCount(),
+                "Collapsed facet isn't dropped");
+    }
+
+    /**
+     * Test method for {@link TriangleMesh#calculateIntersections(Ray)}
+     */
+    @Test
+    void testCalculateIntersections() {
+        TriangleMesh mesh = TriangleMesh.weld(SQUARE, 1e-6, false);
+        Vector down = new Vector(0, 0, -1);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray crosses the first triangle, the intersection carries the face normal
+        List<Intersectable.Intersection> intersections = mesh.calculateIntersections(new Ray(new Point(0.7, 0.2, 1), down));
+        assertNotNull(intersections, "Ray misses the mesh");
+        assertEquals(1, intersections.size(), "Wrong number of intersections");
+        assertEquals(new Point(0.7, 0.2, 0), intersections.getFirst().point, "Wrong intersection point");
+        assertEquals(new Vector(0, 0, 1), intersections.getFirst().normal, "Wrong intersection normal");
+        // TC02: Ray crosses the second triangle
+        assertEquals(List.of(new Point(0.2, 0.7, 0)), mesh.findIntersections(new Ray(new Point(0.2, 0.7, 1), down)),
+                "Wrong intersection with the second triangle");
+        // TC03: Ray misses the mesh
+        assertNull(mesh.findIntersections(new Ray(new Point(2, 2, 1), down)), "Ray outside the mesh hits it");
+        // TC04: The mesh is beyond the maximal distance
+        assertNull(mesh.calculateIntersections(new Ray(new Point(0.7, 0.2, 1), down), 0.5),
+                "Intersection beyond the maximal distance");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Ray through the shared edge (like a triangle's edge, it's not an intersection)
+        assertNull(mesh.findIntersections(new Ray(new Point(0.5, 0.5, 1), down)), "Ray through an edge hits");
+    }
+
+    /**
+     * Test method for smooth normals of {@link TriangleMesh}
+     */
+    @Test
+    void testSmoothNormals() {
+        // Two facets folded along the X axis, at 45 degrees up on both sides
+        double[] roof = {
+                0, 0, 0, 1, 0, 0, 0, 1, 1,
+                1, 0, 0, 0, 0, 0, 1, -1, 1
+        };
+        TriangleMesh mesh = TriangleMesh.weld(roof, 0, true);
+        double accuracy = 1e-9;
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Interpolated normal inside a facet is between the face normal and the ridge normal
+        Vector normal = mesh.calculateIntersections(new Ray(new Point(0.2, 0.1, 5), new Vector(0, 0, -1)))
+                .getFirst().normal;
+        assertEquals(1, normal.length(), accuracy, "Interpolated normal isn't normalized");
+        assertTrue(normal.getY() < 0 && normal.getY() > -Math.sqrt(0.5), "Normal isn't interpolated");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: The normal of a ridge vertex is the average of the facets normals
+        Vector ridge = mesh.getVertexNormal(0);
+        assertEquals(0, ridge.getX(), accuracy, "Wrong ridge normal");
+        assertEquals(0, ridge.getY(), accuracy, "Wrong ridge normal");
+        assertEquals(1, Math.abs(ridge.getZ()), accuracy, "Wrong ridge normal");
+    }
+
+    /**
+     * Test method for single precision {@link TriangleMesh}s
+     * ({@link TriangleMesh#weld(double[], double, boolean, TriangleMesh.Precision)})
+     */
+    @Test
+    void testSinglePrecision() {
+        // A bumpy 8x8 grid of quads, with coordinates which are exact floats
+        int n = 8;
+        double[] facets = new double[n * n * 18];
+        int f = 0;
+        for (int i = 0; i < n; ++i)
+            for (int j = 0; j < n; ++j) {
+                double[][] corners = {{i, j}, {i + 1, j}, {i + 1, j + 1}, {i, j}, {i + 1, j + 1}, {i, j + 1}};
+                for (double[] corner : corners) {
+                    facets[f++] = corner[0] / 4;
+                    facets[f++] = corner[1] / 4;
+                    facets[f++] = ((int) (corner[0] * 3 + corner[1] * 5) % 4) / 8.0;
+                }
+            }
+        TriangleMesh doubleMesh = TriangleMesh.weld(facets, 0, true, TriangleMesh.Precision.DOUBLE);
+        TriangleMesh singleMesh = TriangleMesh.weld(facets, 0, true, TriangleMesh.Precision.SINGLE);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Same intersections as the double precision mesh, and the same normals up to float rounding
+        Vector direction = new Vector(0.1, 0.2, -1);
+        for (double x = 0.05; x < 2; x += 0.1)
+            for (double y = 0.05; y < 2; y += 0.1) {
+                Ray ray = new Ray(new Point(x, y, 3), direction);
+                var expected = doubleMesh.calculateClosestIntersection(ray);
+                var actual = singleMesh.calculateClosestIntersection(ray);
+                assertEquals(expected == null, actual == null, "Different hit of the single precision mesh");
+                if (expected != null) {
+                    assertEquals(expected.point, actual.point, "Wrong single precision intersection point");
+                    // The stored vertex normals are rounded to floats
+                    assertEquals(1, expected.normal.dotProduct(actual.normal), 1e-12,
+                            "Wrong single precision intersection normal");
+                }
+            }
+        // TC02: Coordinates which aren't floats are rounded to floats
+        double[] triangle = {0.1, 0, 0, 1, 0, 0, 0, 1, 0};
+        assertEquals(new Point((float) 0.1, 0, 0), TriangleMesh.weld(triangle, 0, false, TriangleMesh.Precision.SINGLE)
+                .getVertex(0), "Wrong single precision vertex");
+        assertEquals((double) (float) 0.1, TriangleMesh.weld(triangle, 0, false, TriangleMesh.Precision.SINGLE)
+                .getVertex(0).getX(), 0, "Single precision vertex isn't a float");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A ray through a shared edge of the rounded mesh misses both triangles (no cracks, no double hits),
+        // and a ray next to it hits exactly one of them
+        TriangleMesh square = TriangleMesh.weld(SQUARE, 1e-6, false, TriangleMesh.Precision.SINGLE);
+        Vector down = new Vector(0, 0, -1);
+        assertNull(square.findIntersections(new Ray(new Point(0.5, 0.5, 1), down)), "Ray through an edge hits");
+        assertEquals(1, square.findIntersections(new Ray(new Point(0.5, 0.5 + 1e-7, 1), down)).size(),
+                "Ray next to an edge doesn't hit exactly one triangle");
+    }
+
+    /**
+     * Test method for {@link TriangleMesh#toOffHeap()}, {@link TriangleMesh#write(Path)}
+     * and {@link TriangleMesh#map(Path)}
+     *
+     * @param directory a temporary directory for the mesh files
+     * @throws IOException if a mesh file can't be written or read
+     */
+    @Test
+    void testOffHeap(@TempDir Path directory) throws IOException {
+        double[] pyramid = {
+                0, 0, 0, 1, 0, 0, 0.5, 0.5, 1,
+                1, 0, 0, 1, 1, 0, 0.5, 0.5, 1,
+                1, 1, 0, 0, 1, 0, 0.5, 0.5, 1,
+                0, 1, 0, 0, 0, 0, 0.5, 0.5, 1
+        };
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Off-heap copies and mapped files of both precisions, with and without normals,
+        // give the same intersections as the original mesh
+        for (TriangleMesh.Precision precision : TriangleMesh.Precision.values())
+            for (boolean smooth : new boolean[]{false, true}) {
+                TriangleMesh mesh = TriangleMesh.weld(pyramid, 0, smooth, precision);
+                Path file = directory.resolve("pyramid-" + precision + "-" + smooth + ".mesh");
+                mesh.write(file);
+                TriangleMesh mapped = TriangleMesh.map(file);
+                assertEquals(mesh.getVertexCount(), mapped.getVertexCount(), "Wrong mapped vertex count");
+                assertEquals(mesh.getTriangleCount(), mapped.getTriangleCount(), "Wrong mapped triangle count");
+                assertEquals(mesh.getBoundingBox(), mapped.getBoundingBox(), "Wrong mapped bounding box");
+                assertEquals(mesh.getNeighbor(1, 2), mapped.getNeighbor(1, 2), "Wrong mapped neighbor");
+                assertArrayEquals(mesh.spatialOrder(), mapped.spatialOrder(), "The stored hierarchy isn't loaded");
+                for (TriangleMesh copy : List.of(mesh.toOffHeap(), mapped))
+                    for (double x = 0.1; x < 1; x += 0.2)
+                        for (double y = 0.1; y < 1; y += 0.2) {
+                            Ray ray = new Ray(new Point(x, y, 2), new Vector(0.1, -0.1, -1));
+                            var expected = mesh.calculateClosestIntersection(ray);
+                            var actual = copy.calculateClosestIntersection(ray);
+                            assertEquals(expected == null, actual == null, "Different hit of the off-heap mesh");
+                            if (expected != null) {
+                                assertEquals(expected.point, actual.point, "Wrong off-heap intersection point");
+                                assertEquals(expected.normal, actual.normal, "Wrong off-heap intersection normal");
+                            }
+                        }
+            }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A file which isn't a mesh file
+        Path text = Files.writeString(directory.resolve("text.mesh"), "not a mesh");
+        assertThrows(IOException.class, () -> TriangleMesh.map(text), "Mapped a file which isn't a mesh file");
+        // TC12: A truncated mesh file
+        Path truncated = directory.resolve("truncated.mesh");
+        TriangleMesh.weld(pyramid, 0, false).write(truncated);
+        byte[] bytes = Files.readAllBytes(truncated);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 4));
+        assertThrows(IOException.class, () -> TriangleMesh.map(truncated), "Mapped a truncated mesh file");
+    }
+}
@@ -0,0 +1,91 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link WideBVHNodes} class
+ */
+class WideBVHNodesTest {
+    /**
+     * Test method for {@link WideBVHNodes#traverse(Ray, double, BVHNodes.Visitor)}
+     */
+    @Test
+    void testTraverse() {
+        Random random = new Random(11);
+        int count = 3000;
+        double[] bounds = new double[6 * count];
+        for (int i = 0; i < count; i++)
+            for (int axis = 0; axis < 3; axis++) {
+                double min = random.nextDouble(-100, 100);
+                bounds[6 * i + axis] = min;
+                bounds[6 * i + axis + 3] = min + random.nextDouble(0.1, 3);
+            }
+        BVHNodes binary = BVHNodes.build(bounds);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: 4 and 8-wide hierarchies visit the same primitives as the binary one
+        for (int width : new int[]{4, 8}) {
+            WideBVHNodes wide = new WideBVHNodes(binary, width);
+            assertTrue(wide.size < binary.size, "Wide hierarchy isn't smaller than the binary one");
+            for (int i = 0; i < 200; i++) {
+                Point head = new Point(random.nextDouble(-150, 150), random.nextDouble(-150, 150), 150);
+                Ray ray = new Ray(head, new Point(random.nextDouble(-50, 50), random.nextDouble(-50, 50), 0)
+                        .subtract(head));
+                Set<Integer> expected = new TreeSet<>();
+                Set<Integer> actual = new TreeSet<>();
+                binary.traverse(ray, Double.POSITIVE_INFINITY, (p, d) -> {
+                    expected.add(p);
+                    return d;
+                });
+                wide.traverse(ray, Double.POSITIVE_INFINITY, (p, d) -> {
+                    actual.add(p);
+                    return d;
+                });
+                assertEquals(expected, actual, "Wrong primitives visited by a " + width + "-wide hierarchy");
+            }
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A single primitive and no primitives
+        WideBVHNodes single = new WideBVHNodes(BVHNodes.build(new double[]{0, 0, 0, 1, 1, 1}), 4);
+        int[] visits = {0};
+        single.traverse(new Ray(new Point(0.5, 0.5, 5), new Vector(0, 0, -1)), 10, (p, d) -> {
+            visits[0]++;
+            return d;
+        });
+        assertEquals(1, visits[0], "Single primitive not visited");
+        new WideBVHNodes(BVHNodes.build(new double[0]), 4)
+                .traverse(new Ray(Point.ZERO, new Vector(1, 0, 0)), 10, (p, d) -> fail("Empty hierarchy visited"));
+        // TC12: Invalid width
+        assertThrows(IllegalArgumentException.class, () -> new WideBVHNodes(BVHNodes.build(new double[0]), 16),
+                "Too wide hierarchy");
+    }
+
+    /**
+     * Test method for {@link WideBVHNodes#roundDown(double)} and {@link WideBVHNodes#roundUp(double)}
+     */
+    @Test
+    void testRounding() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A double between floats is rounded outwards
+        assertTrue(WideBVHNodes.roundDown(0.1) <= 0.1, "Rounded down above the value");
+        assertTrue(WideBVHNodes.roundUp(0.1) >= 0.1, "Rounded up below the value");
+        assertTrue(WideBVHNodes.roundDown(-0.1) <= -0.1, "Rounded down above a negative value");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A double which is exactly a float is kept
+        assertEquals(0.5f, WideBVHNodes.roundDown(0.5), "Exact float changed");
+        assertEquals(0.5f, WideBVHNodes.roundUp(0.5), "Exact float changed");
+        // TC12: A double beyond the float range
+        assertEquals(Float.MAX_VALUE, WideBVHNodes.roundDown(1e300), "Wrong rounding beyond the float range");
+    }
+}
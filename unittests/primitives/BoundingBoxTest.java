@@ -0,0 +1,113 @@
+package primitives;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link BoundingBox} class
+ */
+class BoundingBoxTest {
+    /**
+     * A unit box for tests from (0,0,0) to (1,1,1)
+     */
+    private final BoundingBox box = new BoundingBox(0, 0, 0, 1, 1, 1);
+
+    /**
+     * Test method for {@link BoundingBox#BoundingBox(double, double, double, double, double, double)}
+     */
+    @Test
+    void testConstructor() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Correct box
+        assertDoesNotThrow(() -> new BoundingBox(-1, -1, -1, 1, 1, 1), "Failed constructing a correct box");
+        // TC02: Minimal coordinate greater than the maximal one
+        assertThrows(IllegalArgumentException.class, () -> new BoundingBox(2, 0, 0, 1, 1, 1),
+                "Constructed a box with inverted coordinates");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Flat box
+        assertDoesNotThrow(() -> new BoundingBox(0, 0, 1, 1, 1, 1), "Failed constructing a flat box");
+    }
+
+    /**
+     * Test method for {@link BoundingBox#of(List)} and {@link BoundingBox#union(BoundingBox)}
+     */
+    @Test
+    void testOfAndUnion() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Box of several points
+        assertEquals(new BoundingBox(-1, 0, 2, 3, 4, 5),
+                BoundingBox.of(List.of(new Point(-1, 4, 2), new Point(3, 0, 5), new Point(0, 1, 3))),
+                "Wrong box of points");
+        // TC02: Union of two boxes
+        assertEquals(new BoundingBox(-1, 0, 0, 1, 1, 3), box.union(new BoundingBox(-1, 0, 2, 0, 1, 3)),
+                "Wrong union of boxes");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: No points
+        assertThrows(IllegalArgumentException.class, () -> BoundingBox.of(List.of()), "Bounded an empty set of points");
+    }
+
+    /**
+     * Test method for {@link BoundingBox#intersects(Ray, double)}
+     */
+    @Test
+    void testIntersects() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray passes through the box
+        assertTrue(box.intersects(new Ray(new Point(-1, 0.5, 0.5), new Vector(1, 0.1, 0)), 10),
+                "Ray through the box is rejected");
+        // TC02: Ray misses the box
+        assertFalse(box.intersects(new Ray(new Point(-1, 2, 0.5), new Vector(1, 0, 0)), 10),
+                "Ray missing the box is accepted");
+        // TC03: Box is behind the ray
+        assertFalse(box.intersects(new Ray(new Point(2, 0.5, 0.5), new Vector(1, 0, 0)), 10),
+                "Box behind the ray is accepted");
+        // TC04: Ray starts inside the box
+        assertTrue(box.intersects(new Ray(new Point(0.5, 0.5, 0.5), new Vector(1, 1, 1)), 10),
+                "Ray from inside the box is rejected");
+        // TC05: Box is farther than the maximal distance
+        assertFalse(box.intersects(new Ray(new Point(-5, 0.5, 0.5), new Vector(1, 0, 0)), 2),
+                "Box beyond the distance is accepted");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Ray parallel to a face, in the plane of the face
+        assertTrue(box.intersects(new Ray(new Point(-1, 0, 0.5), new Vector(1, 0, 0)), 10),
+                "Ray along a face is rejected");
+        // TC12: Ray hits a flat box
+        assertTrue(new BoundingBox(0, 0, 1, 1, 1, 1).intersects(new Ray(new Point(0.5, 0.5, 3), new Vector(0, 0, -1)), 10),
+                "Ray through a flat box is rejected");
+        // TC13: Box ends exactly at the maximal distance
+        assertTrue(box.intersects(new Ray(new Point(-2, 0.5, 0.5), new Vector(1, 0, 0)), 2),
+                "Box at the distance is rejected");
+    }
+
+    /**
+     * Test method for {@link BoundingBox#entryDistance(Ray, double)}
+     */
+    @Test
+    void testEntryDistance() {
+        BoundingBox box = new BoundingBox(0, 0, 0, 1, 1, 1);
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray along the positive direction of the axes
+        assertEquals(2, box.entryDistance(new Ray(new Point(-2, 0.5, 0.5), new Vector(1, 0, 0)), 10), 1e-12,
+                "Wrong entry distance");
+        // TC02: Ray along the negative direction of all the axes
+        assertEquals(Math.sqrt(3), box.entryDistance(new Ray(new Point(2, 2, 2), new Vector(-1, -1, -1)), 10), 1e-12,
+                "Wrong entry distance of a ray with a negative direction");
+        // TC03: Ray starts inside the box
+        assertEquals(0, box.entryDistance(new Ray(new Point(0.5, 0.5, 0.5), new Vector(-1, 2, -3)), 10),
+                "Wrong entry distance of a ray from inside");
+        // TC04: Ray misses the box
+        assertEquals(Double.POSITIVE_INFINITY, box.entryDistance(new Ray(new Point(2, 2, 2), new Vector(1, -1, -1)), 10),
+                "Missing ray has an entry distance");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Negative zero coordinate of the direction, along a face
+        assertEquals(1, box.entryDistance(new Ray(new Point(0.5, 1, 2), new Vector(-0.0, 0, -1)), 10), 1e-12,
+                "Wrong entry distance of a ray along a face");
+    }
+}
@@ -55,4 +55,54 @@ class RayTest {
         points.addAll(List.of(point1, point3, point2));
         assertEquals(point2, ray.findClosestPoint(points), "ERROR: Ray.findClosestPoint() returns wrong point");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link Ray#ofUnit(Point, Vector)} and {@link Ray#ofUnit(Point, Vector, Vector)}
+     */
+    @Test
+    void ofUnit() {
+        Point head = new Point(1, 2, 3);
+        Vector direction = new Vector(1, 1, 0).normalize();
+        Vector normal = new Vector(0, 1, 0);
+        // ============ Equivalence Partitions Tests ==============
+        // Test Case 01 - Same ray as the normalizing constructors
+        assertEquals(new Ray(head, direction), Ray.ofUnit(head, direction), "ERROR: Ray.ofUnit() wrong ray");
+        assertEquals(new Ray(head, new Vector(1, 1, 0), normal), Ray.ofUnit(head, direction, normal),
+                "ERROR: Ray.ofUnit() wrong offset ray");
+        // Test Case 02 - The direction is taken as is
+        assertSame(direction, Ray.ofUnit(head, direction).getDirection(), "ERROR: Ray.ofUnit() copied the direction");
+
+        // =============== Boundary Values Tests ==================
+        // Test Case 01 - Direction orthogonal to the normal - no offset
+        assertEquals(head, Ray.ofUnit(head, new Vector(1, 0, 0), normal).getHead(), "ERROR: Ray.ofUnit() offset the head");
+        // Test Case 02 - A direction which isn't a unit vector is rejected when assertions are enabled
+        if (Ray.class.desiredAssertionStatus())
+            assertThrows(AssertionError.class, () -> Ray.ofUnit(head, new Vector(1, 1, 0)),
+                    "ERROR: Ray.ofUnit() accepted a non-unit direction");
+    }
+
+    /**
+     * Test method for {@link Ray#getInverseDirection()}
+     */
+    @Test
+    void getInverseDirection() {
+        // ============ Equivalence Partitions Tests ==============
+        // Test Case 01 - Inverse coordinates and their signs
+        Ray ray = new Ray(Point.ZERO, new Vector(-1, 2, -2));
+        Ray.InverseDirection inverse = ray.getInverseDirection();
+        assertEquals(-3, inverse.x(), 1e-12, "ERROR: wrong inverse X");
+        assertEquals(1.5, inverse.y(), 1e-12, "ERROR: wrong inverse Y");
+        assertEquals(-1.5, inverse.z(), 1e-12, "ERROR: wrong inverse Z");
+        assertEquals(Ray.InverseDirection.NEGATIVE_X | Ray.InverseDirection.NEGATIVE_Z, inverse.signs(),
+                "ERROR: wrong signs");
+        // Test Case 02 - The inverse direction is calculated once
+        assertSame(inverse, ray.getInverseDirection(), "ERROR: the inverse direction isn't cached");
+
+        // =============== Boundary Values Tests ==================
+        // Test Case 01 - Zero coordinates have infinite inverses, signed by the zeros
+        inverse = new Ray(Point.ZERO, new Vector(-0.0, 0, 1)).getInverseDirection();
+        assertEquals(Double.NEGATIVE_INFINITY, inverse.x(), "ERROR: wrong inverse of -0");
+        assertEquals(Double.POSITIVE_INFINITY, inverse.y(), "ERROR: wrong inverse of 0");
+        assertEquals(Ray.InverseDirection.NEGATIVE_X, inverse.signs(), "ERROR: wrong signs of zeros");
+    }
+}
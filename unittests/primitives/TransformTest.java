@@ -0,0 +1,84 @@
+package primitives;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link Transform} class
+ */
+class TransformTest {
+    /**
+     * Test method for {@link Transform#apply(Point)} and {@link Transform#apply(double[], int, int)}
+     */
+    @Test
+    void testApply() {
+        Transform translation = Transform.translation(new Vector(1, 2, 3));
+        Transform scaling = Transform.scaling(2, new Point(1, 1, 1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Translation of a point
+        assertEquals(new Point(2, 2, 3), translation.apply(new Point(1, 0, 0)), "Wrong translated point");
+        // TC02: Scaling of a point around a center
+        assertEquals(new Point(3, -1, 1), scaling.apply(new Point(2, 0, 1)), "Wrong scaled point");
+        // TC03: Points in an array are transformed in place, outside the range they are unchanged
+        double[] coordinates = {0, 0, 0, 1, 0, 0, 2, 0, 1};
+        translation.apply(coordinates, 3, 2);
+        assertArrayEquals(new double[]{0, 0, 0, 2, 2, 3, 3, 2, 4}, coordinates, "Wrong transformed coordinates");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: The center of a scaling doesn't move
+        assertEquals(new Point(1, 1, 1), scaling.apply(new Point(1, 1, 1)), "Scaling center moved");
+        // TC12: Zero scale factor
+        assertThrows(IllegalArgumentException.class, () -> Transform.scaling(0, Point.ZERO),
+                "Constructed a zero scaling");
+    }
+
+    /**
+     * Test method for {@link Transform#then(Transform)}
+     */
+    @Test
+    void testThen() {
+        Transform translation = Transform.translation(new Vector(1, 0, 0));
+        Transform scaling = Transform.scaling(2, Point.ZERO);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The first transformation is applied first
+        assertEquals(new Point(4, 2, 2), translation.then(scaling).apply(new Point(1, 1, 1)),
+                "Wrong order of composition");
+        assertEquals(new Point(3, 2, 2), scaling.then(translation).apply(new Point(1, 1, 1)),
+                "Wrong order of composition");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Composition with the identity
+        assertEquals(scaling, scaling.then(Transform.IDENTITY), "Identity changed the transformation");
+        assertTrue(Transform.IDENTITY.then(Transform.IDENTITY).isIdentity(), "Identity composition isn't identity");
+    }
+
+    /**
+     * Test method for {@link Transform#inverse()} and {@link Transform#rotation(Vector, double, Point)}
+     */
+    @Test
+    void testInverseAndRotation() {
+        Transform rotation = Transform.rotation(new Vector(0, 0, 1), Math.PI / 2, new Point(1, 0, 0));
+        double accuracy = 1e-12;
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Rotation around an axis through a center point
+        Point rotated = rotation.apply(new Point(2, 0, 5));
+        assertEquals(1, rotated.getX(), accuracy, "Wrong rotated point");
+        assertEquals(1, rotated.getY(), accuracy, "Wrong rotated point");
+        assertEquals(5, rotated.getZ(), accuracy, "Wrong rotated point");
+        // TC02: The inverse undoes a general transformation
+        Transform transform = rotation.then(Transform.scaling(new Double3(2, 3, 4), new Point(1, 2, 3)));
+        Point back = transform.inverse().apply(transform.apply(new Point(-1, 2, 7)));
+        assertEquals(-1, back.getX(), accuracy, "Inverse doesn't undo the transformation");
+        assertEquals(2, back.getY(), accuracy, "Inverse doesn't undo the transformation");
+        assertEquals(7, back.getZ(), accuracy, "Inverse doesn't undo the transformation");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Singular transformation
+        assertThrows(IllegalArgumentException.class,
+                () -> new Transform(1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0).inverse(), "Inverted a singular transformation");
+    }
+}
@@ -0,0 +1,61 @@
+package primitives;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link VectorMath} class
+ */
+class VectorMathTest {
+    /**
+     * Test method for {@link VectorMath#dot(double, double, double, double, double, double)}
+     * and {@link VectorMath#dot(Vector, double, double, double)}
+     */
+    @Test
+    void testDot() {
+        Vector v1 = new Vector(1.1, -2.3, 3.7);
+        Vector v2 = new Vector(-0.3, 4.9, 2.2);
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Same result as the dot product of the vectors, to the last bit
+        assertEquals(v1.dotProduct(v2), VectorMath.dot(1.1, -2.3, 3.7, -0.3, 4.9, 2.2), 0,
+                "ERROR: wrong dot product");
+        assertEquals(v1.dotProduct(v2), VectorMath.dot(v1, -0.3, 4.9, 2.2), 0, "ERROR: wrong dot product");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Orthogonal vectors
+        assertEquals(0, VectorMath.dot(1, 2, 3, 0, 3, -2), 0, "ERROR: orthogonal vectors dot product isn't zero");
+    }
+
+    /**
+     * Test method for {@link VectorMath#lengthSquared(double, double, double)}
+     */
+    @Test
+    void testLengthSquared() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Same result as the squared length of the vector
+        assertEquals(new Vector(1.1, -2.3, 3.7).lengthSquared(), VectorMath.lengthSquared(1.1, -2.3, 3.7), 0,
+                "ERROR: wrong squared length");
+    }
+
+    /**
+     * Test method for {@link VectorMath#isZero(double, double, double)}
+     */
+    @Test
+    void testIsZero() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Non-zero vector
+        assertFalse(VectorMath.isZero(0, 0, 1e-5), "ERROR: non-zero vector is zero");
+        // TC02: Zero vector
+        assertTrue(VectorMath.isZero(0, 0, 0), "ERROR: zero vector isn't zero");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: The difference of equal points, which the vector constructor rejects
+        Point p = new Point(0.1 + 0.2, 1, 1);
+        Point q = new Point(0.3, 1, 1);
+        assertEquals(p, q, "ERROR: the points should be equal");
+        assertTrue(VectorMath.isZero(p.getX() - q.getX(), p.getY() - q.getY(), p.getZ() - q.getZ()),
+                "ERROR: the difference of equal points isn't zero");
+        assertThrows(IllegalArgumentException.class, () -> p.subtract(q), "ERROR: zero vector constructed");
+    }
+}
@@ -159,4 +159,21 @@ class VectorTest {
         Vector normalized = new Vector(1, 0, 0);
         assertEquals(normalized, normalized.normalize(), "ERROR: normalize() wrong result");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link Vector#ofUnit(double, double, double)}
+     */
+    @Test
+    void ofUnit() {
+        // ============ Equivalence Partitions Tests ==============
+        // Test Case 1 - A unit vector is created as is
+        double d = 1 / Math.sqrt(3);
+        Vector unit = Vector.ofUnit(d, d, d);
+        assertEquals(new Vector(1, 1, 1).normalize(), unit, "ERROR: ofUnit() wrong result");
+        assertEquals(1, unit.length(), 1e-15, "ERROR: ofUnit() wrong length");
+
+        // Test Case 2 - A vector which isn't a unit vector is rejected when assertions are enabled
+        if (Vector.class.desiredAssertionStatus())
+            assertThrows(AssertionError.class, () -> Vector.ofUnit(1, 2, 3), "ERROR: ofUnit() accepted a non-unit vector");
+    }
+}
@@ -0,0 +1,91 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import primitives.Color;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link AccumulationBuffer} class
+ */
+class AccumulationBufferTest {
+    /**
+     * Test method for {@link AccumulationBuffer#addSample(int, int, Color)}
+     * and {@link AccumulationBuffer#merge(AccumulationBuffer)}
+     */
+    @Test
+    void testAccumulation() {
+        AccumulationBuffer buffer = new AccumulationBuffer(3, 2);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The color of a pixel is the mean of its samples, unclamped
+        buffer.addSample(1, 1, new Color(100, 600, 0));
+        buffer.addSample(1, 1, new Color(300, 1000, 50));
+        assertEquals(2, buffer.getSamples(1, 1), "Wrong number of samples");
+        assertEquals(new Color(200, 800, 25).getRgb(), buffer.getColor(1, 1).getRgb(), "Wrong mean color");
+        // TC02: Merged buffers add their samples
+        AccumulationBuffer other = new AccumulationBuffer(3, 2);
+        other.addSamples(1, 1, new Color(600, 0, 75), 2);
+        other.addSample(2, 0, new Color(10, 20, 30));
+        buffer.merge(other);
+        assertEquals(4, buffer.getSamples(1, 1), "Wrong number of merged samples");
+        assertEquals(new Color(250, 400, 31.25).getRgb(), buffer.getColor(1, 1).getRgb(), "Wrong merged mean color");
+        assertEquals(new Color(10, 20, 30).getRgb(), buffer.getColor(2, 0).getRgb(), "Wrong merged color");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A pixel without samples is black
+        assertEquals(0, buffer.getSamples(0, 0), "Wrong number of samples of an empty pixel");
+        assertEquals(Color.BLACK.getRgb(), buffer.getColor(0, 0).getRgb(), "Wrong color of an empty pixel");
+        // TC12: A cleared buffer has no samples
+        buffer.clear();
+        assertEquals(0, buffer.getSamples(1, 1), "Wrong number of samples after clearing");
+        // TC13: Buffers of different resolutions can't be merged
+        assertThrows(IllegalArgumentException.class, () -> buffer.merge(new AccumulationBuffer(2, 3)),
+                "Merged buffers of different resolutions");
+    }
+
+    /**
+     * Test method for {@link AccumulationBuffer#writePfm(Path)} and {@link AccumulationBuffer#readPfm(Path, int)}
+     *
+     * @param directory a temporary directory for the PFM files
+     * @throws IOException if a PFM file can't be written or read
+     */
+    @Test
+    void testPfm(@TempDir Path directory) throws IOException {
+        AccumulationBuffer buffer = new AccumulationBuffer(3, 2);
+        buffer.addSample(0, 0, new Color(255, 510, 0));
+        buffer.addSamples(2, 1, new Color(30, 60, 90), 3);
+        Path file = directory.resolve("buffer.pfm");
+        buffer.writePfm(file);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The file has a little-endian color PFM header and the scaled mean colors, bottom row first
+        byte[] bytes = Files.readAllBytes(file);
+        String header = "PF\n3 2\n-1.0\n";
+        assertEquals(header, new String(bytes, 0, header.length()), "Wrong PFM header");
+        assertEquals(header.length() + 2 * 3 * 3 * Float.BYTES, bytes.length, "Wrong PFM file size");
+        // TC02: A read file is the mean of the given number of samples
+        AccumulationBuffer read = AccumulationBuffer.readPfm(file, 4);
+        assertEquals(3, read.nX(), "Wrong width");
+        assertEquals(2, read.nY(), "Wrong height");
+        assertEquals(4, read.getSamples(0, 0), "Wrong number of samples of a read pixel");
+        assertEquals(new Color(255, 510, 0).getRgb(), read.getColor(0, 0).getRgb(), "Wrong read color");
+        assertEquals(new Color(10, 20, 30).getRgb(), read.getColor(2, 1).getRgb(), "Wrong read color of a bottom pixel");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A pixel without samples is written black
+        assertEquals(Color.BLACK.getRgb(), read.getColor(1, 0).getRgb(), "Wrong read color of an empty pixel");
+        // TC12: A file which isn't a PFM file
+        Path text = Files.writeString(directory.resolve("text.pfm"), "P6\n3 2\n255\n");
+        assertThrows(IOException.class, () -> AccumulationBuffer.readPfm(text, 1), "Read a file which isn't a PFM file");
+        // TC13: A truncated PFM file
+        Path truncated = Files.write(directory.resolve("truncated.pfm"), Arrays.copyOf(bytes, bytes.length - 4));
+        assertThrows(IOException.class, () -> AccumulationBuffer.readPfm(truncated, 1), "Read a truncated PFM file");
+    }
+}
@@ -3,10 +3,19 @@ package renderer;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
 import org.junit.jupiter.api.Test;
 
+import geometries.Sphere;
+import lighting.AmbientLight;
 import primitives.*;
 import renderer.Camera;
+import scene.Scene;
 
 /**
  * Testing Camera Class
@@ -89,4 +98,48 @@ class CameraTest {
         // BV01: set to a target on Y-axis without up
         assertThrows(IllegalArgumentException.class, () -> cameraBuilder.setDirection(new Point(0, 10, 0)).build());
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link renderer.Camera#renderImage(String)}.
+     * @throws IOException if a rendered image can't be read
+     */
+    @Test
+    void testRenderImageStreamed() throws IOException {
+        Scene scene = new Scene("Streamed").setBackground(new Color(20, 40, 60))
+                .setAmbientLight(new AmbientLight(new Color(200, 100, 50)));
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 40d));
+        // A wide image of several bands, whose last band is shorter
+        Camera.Builder builder = Camera.getBuilder()
+                .setLocation(Point.ZERO).setDirection(new Point(0, 0, -1), Vector.AXIS_Y)
+                .setVpDistance(100).setVpSize(200, 100).setResolution(2000, 100)
+                .setRayTracer(scene, RayTracerType.SIMPLE);
+        builder.build().renderImage().writeToImage("streamed-reference");
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: An image streamed by several threads is the image rendered in memory
+        builder.setMultithreading(3).build().renderImage("streamed-threads");
+        assertSameImage("streamed-reference", "streamed-threads");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: An image streamed without threads, encoded fast
+        builder.setMultithreading(0).setImageEncoding(PngEncoder.Mode.FAST).build().renderImage("streamed-fast");
+        assertSameImage("streamed-reference", "streamed-fast");
+    }
+
+    /**
+     * Checks that two written images have the same pixels
+     * @param  expected    the name of the expected image
+     * @param  actual      the name of the actual image
+     * @throws IOException if an image can't be read
+     */
+    private static void assertSameImage(String expected, String actual) throws IOException {
+        String folder = System.getProperty("user.dir") + "/images/";
+        BufferedImage expectedImage = ImageIO.read(new File(folder + expected + ".png"));
+        BufferedImage actualImage   = ImageIO.read(new File(folder + actual + ".png"));
+        assertEquals(expectedImage.getWidth(), actualImage.getWidth(), "Wrong image width");
+        assertEquals(expectedImage.getHeight(), actualImage.getHeight(), "Wrong image height");
+        for (int y = 0; y < expectedImage.getHeight(); ++y)
+            for (int x = 0; x < expectedImage.getWidth(); ++x)
+                assertEquals(expectedImage.getRGB(x, y), actualImage.getRGB(x, y), "Wrong streamed pixel");
+    }
+}
@@ -5,6 +5,11 @@ import primitives.Ray;
 import renderer.ImageWriter;
 import org.junit.jupiter.api.Test;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -43,4 +48,36 @@ class ImageWriterTest {
         imageWriter.writeToImage("testGrid");
     }
 
-}
\ No newline at end of file
+    /**
+     * Test method for {@link ImageWriter#writePixel(int, int, Color)} and {@link ImageWriter#writeToImage(String)}
+     *
+     * @throws IOException if the written image can't be read
+     */
+    @Test
+    void testWritePixel() throws IOException {
+        ImageWriter imageWriter = new ImageWriter(3, 2);
+        imageWriter.writePixel(0, 0, new Color(10, 20, 30));
+        imageWriter.writePixel(2, 0, new Color(100.9, 0, 255));
+        imageWriter.writePixel(1, 1, new Color(300, 256, 1000));
+        imageWriter.writeToImage("testWritePixel");
+        BufferedImage image = ImageIO.read(new File(System.getProperty("user.dir") + "/images/testWritePixel.png"));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The image has the resolution and the pixels written by their indices
+        assertEquals(3, image.getWidth(), "Wrong image width");
+        assertEquals(2, image.getHeight(), "Wrong image height");
+        assertEquals(0x0A141E, image.getRGB(0, 0) & 0xFFFFFF, "Wrong pixel color");
+        // TC02: Unwritten pixels are black
+        assertEquals(0, image.getRGB(1, 0) & 0xFFFFFF, "Wrong unwritten pixel color");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Fractional components are truncated
+        assertEquals(0x6400FF, image.getRGB(2, 0) & 0xFFFFFF, "Wrong truncated pixel color");
+        // TC12: Components above 255 are saturated
+        assertEquals(0xFFFFFF, image.getRGB(1, 1) & 0xFFFFFF, "Wrong saturated pixel color");
+        // TC13: Resolution too large for a single pixels array
+        assertThrows(IllegalArgumentException.class, () -> new ImageWriter(1 << 16, 1 << 16),
+                "Created an image too large for its pixels array");
+    }
+
+}
@@ -315,4 +315,23 @@ class LightsTests {
                 .writeToImage("lightTrianglesAll");
     }
 
-}
\ No newline at end of file
+    /**
+     * Produce a picture of two triangles lighted by a ring of spotlights, sampling only some of them at each point
+     */
+    @Test
+    void trianglesManySpotsSampled() {
+        scene2.geometries.add(triangle1, triangle2);
+        for (int i = 0; i < 200; ++i) {
+            double angle = 2 * Math.PI * i / 200;
+            Point position = new Point(80 * Math.cos(angle), 80 * Math.sin(angle), -100);
+            scene2.lights.add(new SpotLight(new Color(20, 15, 10), position, new Vector(0, 0, -1)) //
+                    .setKl(0.001).setKq(0.0001).setNarrowBeam(10));
+        }
+        scene2.setLightSamples(8);
+
+        camera2.setResolution(500, 500) //
+                .build() //
+                .renderImage() //
+                .writeToImage("lightTrianglesManySpotsSampled");
+    }
+}
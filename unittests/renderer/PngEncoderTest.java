@@ -0,0 +1,113 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Adler32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link PngEncoder} class
+ */
+class PngEncoderTest {
+    /**
+     * Encodes an image and decodes it by {@link ImageIO}
+     *
+     * @param mode   the encoding mode
+     * @param pixels the packed RGB pixels
+     * @param nX     the number of pixels in a row
+     * @param nY     the number of pixels in a column
+     * @return the decoded image
+     * @throws IOException if the image can't be encoded or decoded
+     */
+    private static BufferedImage roundTrip(PngEncoder.Mode mode, int[] pixels, int nX, int nY) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new PngEncoder(mode).encode(pixels, nX, nY, out);
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+        assertNotNull(image, "The encoded image isn't readable");
+        return image;
+    }
+
+    /**
+     * Checks that a decoded image has the given pixels
+     *
+     * @param pixels the packed RGB pixels
+     * @param nX     the number of pixels in a row
+     * @param nY     the number of pixels in a column
+     * @param image  the decoded image
+     */
+    private static void assertPixels(int[] pixels, int nX, int nY, BufferedImage image) {
+        assertEquals(nX, image.getWidth(), "Wrong image width");
+        assertEquals(nY, image.getHeight(), "Wrong image height");
+        for (int y = 0; y < nY; ++y)
+            for (int x = 0; x < nX; ++x)
+                assertEquals(pixels[y * nX + x], image.getRGB(x, y) & 0xFFFFFF, "Wrong decoded pixel");
+    }
+
+    /**
+     * Test method for {@link PngEncoder#encode(int[], int, int, java.io.OutputStream)}
+     *
+     * @throws IOException if an image can't be encoded or decoded
+     */
+    @Test
+    void testEncode() throws IOException {
+        // A gradient with noise, of many bands
+        final int nX = 300, nY = 1000;
+        Random random = new Random(7);
+        int[] pixels = new int[nX * nY];
+        for (int y = 0; y < nY; ++y)
+            for (int x = 0; x < nX; ++x)
+                pixels[y * nX + x] = (x * 255 / nX) << 16 | (y * 255 / nY) << 8 | random.nextInt(16);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: An image of many bands, encoded with adaptive filtering
+        assertPixels(pixels, nX, nY, roundTrip(PngEncoder.Mode.DEFAULT, pixels, nX, nY));
+        // TC02: An image of many bands, encoded fast
+        assertPixels(pixels, nX, nY, roundTrip(PngEncoder.Mode.FAST, pixels, nX, nY));
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A single pixel image
+        int[] single = {0x123456};
+        assertPixels(single, 1, 1, roundTrip(PngEncoder.Mode.DEFAULT, single, 1, 1));
+        // TC12: A single row wider than a band
+        int[] row = Arrays.copyOf(pixels, 100_000);
+        assertPixels(row, row.length, 1, roundTrip(PngEncoder.Mode.FAST, row, row.length, 1));
+        // TC13: A single column of one pixel bands
+        int[] column = Arrays.copyOf(pixels, 5000);
+        assertPixels(column, 1, column.length, roundTrip(PngEncoder.Mode.DEFAULT, column, 1, column.length));
+    }
+
+    /**
+     * Test method for {@link PngEncoder#combineAdler(long, long, long)}
+     */
+    @Test
+    void testCombineAdler() {
+        byte[] bytes = new byte[200_000];
+        new Random(3).nextBytes(bytes);
+        Adler32 whole = new Adler32();
+        whole.update(bytes);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The combined checksums of two parts are the checksum of the whole
+        Adler32 first = new Adler32(), second = new Adler32();
+        first.update(bytes, 0, 123_457);
+        second.update(bytes, 123_457, bytes.length - 123_457);
+        assertEquals(whole.getValue(), PngEncoder.combineAdler(first.getValue(), second.getValue(),
+                bytes.length - 123_457), "Wrong combined checksum");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: An empty first part - the initial checksum is 1
+        assertEquals(whole.getValue(), PngEncoder.combineAdler(1, whole.getValue(), bytes.length),
+                "Wrong checksum combined with an empty part");
+        // TC12: An empty second part
+        assertEquals(whole.getValue(), PngEncoder.combineAdler(whole.getValue(), 1, 0),
+                "Wrong checksum combined with an empty part");
+    }
+}
@@ -154,4 +154,28 @@ class RenderTests {
                 .printGrid(100, new Color(YELLOW)) //
                 .writeToImage("xml render test");
     }
-}
\ No newline at end of file
+
+    /**
+     * Produce the frames of an animation of spheres moving over the frames,
+     * rendered with a scene compiled once and refitted
+     */
+    @Test
+    void renderAnimationTest() {
+        Scene scene = new Scene("Animation").setBackground(new Color(75, 127, 90))
+                .setAmbientLight(new AmbientLight(new Color(255, 191, 191)));
+        Sphere[] spheres = new Sphere[40];
+        for (int i = 0; i < spheres.length; i++) {
+            spheres[i] = new Sphere(new Point(-200 + i * 10, 0, -200), 8d);
+            scene.geometries.add(spheres[i]);
+        }
+
+        camera //
+                .setRayTracer(scene, RayTracerType.SIMPLE) //
+                .setResolution(200, 200) //
+                .build() //
+                .renderAnimation(4, frame -> {
+                    for (int i = 0; i < spheres.length; i++)
+                        spheres[i].setCenter(new Point(-200 + i * 10, 40 * Math.sin(i + frame), -200));
+                }, "animation render test");
+    }
+}
@@ -0,0 +1,56 @@
+package renderer;
+
+import geometries.BVH;
+import geometries.Geometries;
+import geometries.Instance;
+import geometries.Sphere;
+import org.junit.jupiter.api.Test;
+import primitives.Material;
+import primitives.Point;
+import primitives.Transform;
+import primitives.Vector;
+import scene.Scene;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link SimpleRayTracer} class
+ */
+class SimpleRayTracerTest {
+    /**
+     * Test method for {@link SimpleRayTracer#prepare()}
+     */
+    @Test
+    void testPrepareKernels() {
+        Material red = new Material().setKD(0.5);
+        Material shiny = new Material().setKS(0.5).setShininess(30);
+        Material glass = new Material().setKT(0.7);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A scene of more leaves than a flat collection holds, which is compiled into a hierarchy -
+        // each material is classified once
+        Scene scene = new Scene("Kernels");
+        for (int i = 0; i < 20; ++i)
+            scene.geometries.add(new Sphere(new Point(3 * i, 0, -50), 1).setMaterial(i % 2 == 0 ? red : shiny));
+        SimpleRayTracer tracer = new SimpleRayTracer(scene);
+        tracer.prepare();
+        Map<Material, MaterialKernel> kernels = tracer.getKernels();
+        assertEquals(2, kernels.size(), "Wrong number of classified materials");
+        assertTrue(kernels.containsKey(red) && kernels.containsKey(shiny), "Material isn't classified");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A material of a geometry shared through an instance of a hierarchy is classified
+        scene.geometries.add(new Instance(new BVH(new Geometries(
+                new Sphere(Point.ZERO, 1).setMaterial(glass))), Transform.translation(new Vector(0, 10, -50))));
+        tracer.prepare();
+        assertEquals(3, tracer.getKernels().size(), "Wrong number of classified materials with an instance");
+        assertTrue(tracer.getKernels().containsKey(glass), "Material of an instanced hierarchy isn't classified");
+        // TC12: Preparing again keeps a single kernel per material
+        MaterialKernel kernel = tracer.getKernels().get(red);
+        tracer.prepare();
+        assertEquals(3, tracer.getKernels().size(), "Materials classified more than once");
+        assertNotSame(kernel, tracer.getKernels().get(red), "Kernels aren't classified again on preparing");
+    }
+}
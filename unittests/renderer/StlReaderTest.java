@@ -7,19 +7,282 @@ import lighting.AmbientLight;
 import lighting.PointLight;
 import lighting.SpotLight;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import primitives.Color;
 import primitives.Material;
 import primitives.Point;
+import primitives.Transform;
 import primitives.Vector;
 import scene.Scene;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
 import static java.awt.Color.*;
 import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link StlReader} class
+ */
 class StlReaderTest {
+    /**
+     * Temporary directory for the generated STL files
+     */
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Facets for the generated files: two valid triangles and a degenerate one (collinear vertices) between them
+     */
+    private static final float[][] FACETS = {
+            {0, 0, 0, 1, 0, 0, 0, 1, 0},
+            {0, 0, 0, 1, 1, 1, 2, 2, 2},
+            {0, 0, 1, 1, 0, 1, 0, 1, 1.5f}
+    };
+
+    /**
+     * Writes a binary STL file with the given facets
+     *
+     * @param name   the file name
+     * @param facets the vertex coordinates of the facets, 9 per facet
+     * @param count  the facets count written in the header
+     * @return the path of the file
+     * @throws IOException if the file can't be written
+     */
+    private Path writeBinary(String name, float[][] facets, int count) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(84 + 50 * facets.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(80);
+        buffer.putInt(count);
+        for (float[] facet : facets) {
+            buffer.putFloat(0).putFloat(0).putFloat(1);
+            for (float coordinate : facet)
+                buffer.putFloat(coordinate);
+            buffer.putShort((short) 0);
+        }
+        return Files.write(tempDir.resolve(name), buffer.array());
+    }
+
+    /**
+     * Test method for {@link StlReader#readBinarySTL(String)}
+     */
+    @Test
+    void testReadBinarySTL() throws IOException {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Valid facets are read in order, the degenerate one is skipped
+        List<Triangle> triangles = StlReader.readBinarySTL(writeBinary("valid.stl", FACETS, FACETS.length).toString());
+        assertEquals(2, triangles.size(), "Wrong number of triangles");
+        assertEquals(List.of(new Point(0, 0, 0), new Point(1, 0, 0), new Point(0, 1, 0)),
+                triangles.get(0).getVertices(), "Wrong vertices of the first triangle");
+        assertEquals(List.of(new Point(0, 0, 1), new Point(1, 0, 1), new Point(0, 1, 1.5)),
+                triangles.get(1).getVertices(), "Wrong vertices of the second triangle");
+        // TC02: The file is shorter than its facets count
+        String truncated = writeBinary("truncated.stl", FACETS, FACETS.length + 1).toString();
+        assertThrows(IOException.class, () -> StlReader.readBinarySTL(truncated), "Truncated file is read");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: No facets
+        assertTrue(StlReader.readBinarySTL(writeBinary("empty.stl", new float[0][], 0).toString()).isEmpty(),
+                "Empty file has triangles");
+        // TC12: More facets than a single parsing chunk
+        float[][] many = new float[100_000][];
+        for (int i = 0; i < many.length; i++)
+            many[i] = new float[]{i, 0, 0, i + 1, 0, 0, i, 1, 0};
+        triangles = StlReader.readBinarySTL(writeBinary("many.stl", many, many.length).toString());
+        assertEquals(many.length, triangles.size(), "Wrong number of triangles");
+        assertEquals(new Point(99_999, 0, 0), triangles.getLast().getVertices().getFirst(), "Wrong order of triangles");
+    }
+
+    /**
+     * Writes an ASCII STL file with the given facets
+     *
+     * @param name   the file name
+     * @param facets the vertex coordinates of the facets, 9 per facet, as they are written in the file
+     * @return the path of the file
+     * @throws IOException if the file can't be written
+     */
+    private Path writeASCII(String name, String[][] facets) throws IOException {
+        StringBuilder text = new StringBuilder("solid test\n");
+        for (String[] facet : facets) {
+            text.append("  facet normal 0 0 1\n    outer loop\n");
+            for (int v = 0; v < 9; v += 3)
+                text.append("      vertex ").append(facet[v]).append(' ').append(facet[v + 1]).append(' ')
+                        .append(facet[v + 2]).append('\n');
+            text.append("    endloop\n  endfacet\n");
+        }
+        text.append("endsolid test\n");
+        return Files.writeString(tempDir.resolve(name), text);
+    }
+
+    /**
+     * Test method for {@link StlReader#readASCIISTL(String)}
+     */
+    @Test
+    void testReadASCIISTL() throws IOException {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Valid facets are read in order, the degenerate one is skipped
+        String[][] facets = {
+                {"0", "0", "0", "1.0", "0", "0", "0", "1e0", "0"},
+                {"0", "0", "0", "1", "1", "1", "2", "2", "2"},
+                {"-0.0", "+0", "1", "1", "0", "1E+0", "0", "1", "1.5"}
+        };
+        List<Triangle> triangles = StlReader.readASCIISTL(writeASCII("valid.stl", facets).toString());
+        assertEquals(2, triangles.size(), "Wrong number of triangles");
+        assertEquals(List.of(new Point(0, 0, 0), new Point(1, 0, 0), new Point(0, 1, 0)),
+                triangles.get(0).getVertices(), "Wrong vertices of the first triangle");
+        assertEquals(List.of(new Point(0, 0, 1), new Point(1, 0, 1), new Point(0, 1, 1.5)),
+                triangles.get(1).getVertices(), "Wrong vertices of the second triangle");
+        // TC02: Malformed coordinate
+        String malformed = writeASCII("malformed.stl", new String[][]{
+                {"0", "0", "0", "1", "0", "0", "0", "1", "x"}}).toString();
+        assertThrows(IOException.class, () -> StlReader.readASCIISTL(malformed), "Malformed file is read");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: No facets
+        assertTrue(StlReader.readASCIISTL(writeASCII("empty.stl", new String[0][]).toString()).isEmpty(),
+                "Empty file has triangles");
+        // TC12: More facets than a single parsing chunk, with numbers of every precision
+        Random random = new Random(1);
+        String[][] many = new String[100_000][];
+        double[] expected = new double[many.length * 9];
+        for (int i = 0; i < many.length; i++) {
+            many[i] = new String[9];
+            for (int c = 0; c < 9; c++) {
+                double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12) - 4);
+                many[i][c] = random.nextBoolean() ? Double.toString(value) : Float.toString((float) value);
+                expected[i * 9 + c] = Double.parseDouble(many[i][c]);
+            }
+        }
+        double[] actual = StlReader.readASCIIFacets(writeASCII("many.stl", many).toString());
+        assertArrayEquals(expected, actual, "Wrong coordinates");
+    }
+
+    /**
+     * Test method for {@link StlReader#readSTL(String, Transform, java.util.function.Consumer)}
+     * and {@link StlReader#readSTLPositioned(String, Point)}
+     */
+    @Test
+    void testReadSTLStreaming() throws IOException {
+        String file = writeBinary("streamed.stl", FACETS, FACETS.length).toString();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Triangles are transformed on the fly and streamed in order
+        List<Triangle> triangles = new ArrayList<>();
+        StlReader.readSTL(file, Transform.translation(new Vector(1, 2, 3)), triangles::add);
+        assertEquals(2, triangles.size(), "Wrong number of triangles");
+        assertEquals(List.of(new Point(1, 2, 3), new Point(2, 2, 3), new Point(1, 3, 3)),
+                triangles.get(0).getVertices(), "Wrong vertices of the first triangle");
+        // TC02: The centroid of the positioned triangles is at the target
+        Point target = new Point(5, 5, 5);
+        assertEquals(target, StlReader.calculateCentroid(StlReader.readSTLPositioned(file, target)),
+                "Wrong centroid of the positioned triangles");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: The identity transformation streams the triangles unchanged
+        triangles.clear();
+        StlReader.readSTL(file, Transform.IDENTITY, triangles::add);
+        assertEquals(StlReader.readSTL(file).get(1).getVertices(), triangles.get(1).getVertices(),
+                "Identity changed the triangles");
+    }
+
+    /**
+     * Test method for the facets cache of {@link StlReader#readFacets(String)}
+     */
+    @Test
+    void testFacetsCache() throws IOException {
+        Path file = writeBinary("cached.stl", FACETS, FACETS.length);
+        Path cache = Path.of(file + StlReader.CACHE_SUFFIX);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The first read writes the cache
+        double[] facets = StlReader.readFacets(file.toString());
+        assertTrue(Files.exists(cache), "Cache isn't written");
+        // TC02: Later reads load the cache (a changed cached coordinate proves it isn't parsed again)
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Double.BYTES).order(ByteOrder.LITTLE_ENDIAN).putDouble(0, 42), 32);
+        }
+        assertEquals(42, StlReader.readFacets(file.toString())[0], "Cache isn't used");
+        // TC03: A cache of a modified file is ignored and rewritten
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 10_000));
+        assertArrayEquals(facets, StlReader.readFacets(file.toString()), "Stale cache is used");
+        assertArrayEquals(facets, StlReader.readFacets(file.toString()), "Rewritten cache is wrong");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A truncated cache is ignored
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.WRITE)) {
+            channel.truncate(40);
+        }
+        assertArrayEquals(facets, StlReader.readFacets(file.toString()), "Truncated cache is used");
+        // TC12: A disabled cache isn't read
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Double.BYTES).order(ByteOrder.LITTLE_ENDIAN).putDouble(0, 42), 32);
+        }
+        StlReader.setCacheEnabled(false);
+        try {
+            assertArrayEquals(facets, StlReader.readFacets(file.toString()), "Disabled cache is used");
+        } finally {
+            StlReader.setCacheEnabled(true);
+        }
+    }
+
+    /**
+     * Test method for {@link StlReader#readFacets(String, StlReader.FacetVisitor)}
+     */
+    @Test
+    void testReadFacetsVisitor() throws IOException {
+        // More facets than a few parsing chunks
+        float[][] many = new float[200_000][];
+        for (int i = 0; i < many.length; i++)
+            many[i] = new float[]{i, 0, 0, i + 1, 0, 0, i, 1, 0};
+        String file = writeBinary("visited.stl", many, many.length).toString();
+        double[] expected;
+        StlReader.setCacheEnabled(false);
+        try {
+            expected = StlReader.readFacets(file);
+        } finally {
+            StlReader.setCacheEnabled(true);
+        }
+        double[] visited = new double[expected.length];
+        int[] count = {0};
+        StlReader.FacetVisitor visitor = (facets, offset) -> {
+            System.arraycopy(facets, offset, visited, count[0]++ * StlReader.FACET_COORDINATES,
+                    StlReader.FACET_COORDINATES);
+            // The visitor may change the visited coordinates
+            Arrays.fill(facets, offset, offset + StlReader.FACET_COORDINATES, -1);
+        };
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The parsed chunks are visited in the file order, and the cache is written
+        StlReader.readFacets(file, visitor);
+        assertEquals(many.length, count[0], "Wrong number of visited facets");
+        assertArrayEquals(expected, visited, "Wrong visited coordinates");
+        assertTrue(Files.exists(Path.of(file + StlReader.CACHE_SUFFIX)), "Cache isn't written");
+        // TC02: The cache is visited by chunks, and keeps the coordinates from before the visitor changed them
+        count[0] = 0;
+        Arrays.fill(visited, 0);
+        StlReader.readFacets(file, visitor);
+        assertEquals(many.length, count[0], "Wrong number of facets visited from the cache");
+        assertArrayEquals(expected, visited, "Wrong coordinates visited from the cache");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A file without facets isn't visited
+        String empty = writeBinary("visited-empty.stl", new float[0][], 0).toString();
+        StlReader.readFacets(empty, (facets, offset) -> fail("An empty file has a facet"));
+        StlReader.readFacets(empty, (facets, offset) -> fail("An empty cache has a facet"));
+        // TC12: A truncated file fails while streaming
+        String truncated = writeBinary("visited-truncated.stl", FACETS, FACETS.length + 1).toString();
+        assertThrows(IOException.class, () -> StlReader.readFacets(truncated, (facets, offset) -> {}),
+                "Truncated file is visited");
+    }
 
     @Test
     void readSTLPositioned() throws IOException {
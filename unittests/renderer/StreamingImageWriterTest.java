@@ -0,0 +1,109 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link StreamingImageWriter} class
+ */
+class StreamingImageWriterTest {
+    /**
+     * The color of the pixels of a band of the test images
+     *
+     * @param band the band index
+     * @return the packed RGB color
+     */
+    private static int bandColor(int band) {
+        return band * 0x010203 & 0xFFFFFF;
+    }
+
+    /**
+     * Renders a band of a test image - all its pixels in the color of the band
+     *
+     * @param writer the image writer
+     * @param nX     the number of pixels in a row
+     * @param band   the band index
+     */
+    private static void writeBand(StreamingImageWriter writer, int nX, int band) {
+        int[] pixels = new int[writer.rows(band) * nX];
+        Arrays.fill(pixels, bandColor(band));
+        writer.writeBand(band, pixels);
+    }
+
+    /**
+     * Test method for {@link StreamingImageWriter#takeBand()} and
+     * {@link StreamingImageWriter#writeBand(int, int[])}
+     *
+     * @throws Exception if a thread is interrupted or the image can't be read
+     */
+    @Test
+    void testBackPressure() throws Exception {
+        // Rows wider than a band, so every row is a band
+        final int nX = 100_000, nY = 40, window = 3, threads = 4;
+        StreamingImageWriter writer = new StreamingImageWriter("streamed-back-pressure", nX, nY,
+                PngEncoder.Mode.FAST, window);
+        assertEquals(nY, writer.bandCount(), "Wrong number of bands");
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: While band 0 is slow, the other threads take only the bands within the window,
+        // so the reorder buffer holds less than a window of bands
+        CountDownLatch bandZeroTaken = new CountDownLatch(1);
+        CountDownLatch releaseBandZero = new CountDownLatch(1);
+        var workers = new LinkedList<Thread>();
+        for (int t = 0; t < threads; ++t)
+            workers.add(new Thread(() -> {
+                int band;
+                while ((band = writer.takeBand()) >= 0) {
+                    if (band == 0) {
+                        bandZeroTaken.countDown();
+                        try {
+                            releaseBandZero.await();
+                        } catch (InterruptedException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                    writeBand(writer, nX, band);
+                }
+            }));
+        for (var worker : workers) worker.start();
+        bandZeroTaken.await();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (writer.pendingBands() < window - 1 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        // Give the blocked threads time to (wrongly) take more bands
+        Thread.sleep(200);
+        assertEquals(window - 1, writer.pendingBands(), "Wrong number of bands waiting for the slow band");
+
+        // TC02: Once the slow band is written, all the bands are written in order
+        releaseBandZero.countDown();
+        for (var worker : workers) worker.join();
+        assertEquals(0, writer.pendingBands(), "Bands left in the reorder buffer");
+        writer.close();
+        BufferedImage image = ImageIO.read(new File(ImageWriter.FOLDER_PATH + "/streamed-back-pressure.png"));
+        for (int y = 0; y < nY; ++y) {
+            assertEquals(bandColor(y), image.getRGB(0, y) & 0xFFFFFF, "Wrong first pixel of band " + y);
+            assertEquals(bandColor(y), image.getRGB(nX - 1, y) & 0xFFFFFF, "Wrong last pixel of band " + y);
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: An aborted rendering hands out no more bands, and its image is incomplete
+        StreamingImageWriter aborted = new StreamingImageWriter("streamed-aborted", nX, nY,
+                PngEncoder.Mode.FAST, 1);
+        assertEquals(0, aborted.takeBand(), "Wrong first band");
+        aborted.abort();
+        assertEquals(-1, aborted.takeBand(), "Took a band of an aborted rendering");
+        assertThrows(IllegalStateException.class, aborted::close, "Closed an incomplete image");
+        // TC12: A window of no bands
+        assertThrows(IllegalArgumentException.class,
+                () -> new StreamingImageWriter("streamed-no-window", nX, nY, PngEncoder.Mode.FAST, 0),
+                "Accepted an empty window");
+    }
+}